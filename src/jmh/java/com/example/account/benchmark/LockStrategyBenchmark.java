@@ -0,0 +1,98 @@
+package com.example.account.benchmark;
+
+import com.example.account.exception.AccountException;
+import com.example.account.service.LocalLockStrategy;
+import com.example.account.service.LockService;
+import com.example.account.service.LockStrategy;
+import com.example.account.service.RedisCircuitBreaker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 락 모드별(redis / local) lock -> 임계구역 -> unlock 한 사이클의 지연시간 비교
+ * - single : 모든 스레드가 같은 계좌 하나를 두고 경쟁
+ * - many   : 10,000개 계좌 중 임의의 계좌를 사용 (경쟁이 거의 없음)
+ * SampleTime 모드라서 결과에 p0.50 / p0.99 백분위가 함께 출력된다
+ * 실행 : ./gradlew jmh
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class LockStrategyBenchmark {
+
+    private static final int REDIS_PORT = 6390;
+    private static final int ACCOUNT_COUNT = 10_000;
+
+    @Param({"local", "redis"})
+    private String mode;
+
+    @Param({"single", "many"})
+    private String accounts;
+
+    private RedisServer redisServer;
+    private RedissonClient redissonClient;
+    private LockStrategy lockStrategy;
+    private String[] accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("redis".equals(mode)) {
+            redisServer = new RedisServer(REDIS_PORT);
+            redisServer.start();
+
+            Config config = new Config();
+            config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+            redissonClient = Redisson.create(config);
+            lockStrategy = new LockService(redissonClient, new RedisCircuitBreaker(5, 500L, 10000L));
+        } else {
+            lockStrategy = new LocalLockStrategy(1024, false);
+        }
+
+        int size = "single".equals(accounts) ? 1 : ACCOUNT_COUNT;
+        accountNumbers = new String[size];
+        for (int i = 0; i < size; i++) {
+            accountNumbers[i] = String.valueOf(1_000_000_000L + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+        }
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @Benchmark
+    public void lockAndUnlock(Blackhole blackhole) {
+        String accountNumber =
+                accountNumbers[ThreadLocalRandom.current().nextInt(accountNumbers.length)];
+
+        try {
+            lockStrategy.lock(accountNumber);
+        } catch (AccountException e) {
+            // 1초 안에 락을 못 잡은 경우도 한 번의 요청으로 보고 지연시간에 포함시킨다
+            blackhole.consume(e);
+            return;
+        }
+        try {
+            // 잔액 변경 정도의 짧은 임계구역을 흉내낸다
+            Blackhole.consumeCPU(1_000);
+        } finally {
+            lockStrategy.unlock(accountNumber);
+        }
+    }
+}
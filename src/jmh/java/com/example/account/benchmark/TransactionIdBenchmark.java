@@ -0,0 +1,41 @@
+package com.example.account.benchmark;
+
+import com.example.account.service.TimeOrderedTransactionIdGenerator;
+import com.example.account.service.TransactionIdGenerator;
+import com.example.account.service.UuidTransactionIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 거래 아이디 생성 비용 비교 (기존 UUID 방식 vs 시간순 아이디)
+ * - 여러 스레드가 동시에 거래를 저장하는 상황을 가정해서 8 스레드로 측정
+ * - 할당량은 gc profiler 로 함께 측정된다 (build.gradle 의 jmh.profilers, gc.alloc.rate.norm = 아이디 1개당 할당 바이트)
+ * 실행 : ./gradlew jmh
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TransactionIdBenchmark {
+
+    @Param({"uuid", "time-ordered"})
+    private String generator;
+
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactionIdGenerator = "uuid".equals(generator)
+                ? new UuidTransactionIdGenerator()
+                : new TimeOrderedTransactionIdGenerator(1);
+    }
+
+    @Benchmark
+    public String nextId() {
+        return transactionIdGenerator.nextId();
+    }
+}
@@ -14,4 +14,22 @@ public @interface AccountLock {
     // 어노테이션의 속성 정의
     // 이 어노테이션을 사용할 때 특별히 값을 지정하지 않으면, 기본적으로 5000밀리초(5초)의 값을 사용
     // 속성 값을 지정하고 싶다면, 어노테이션 사용 시 @AccountLock(tryLockTime = 3000L)와 같이 명시
+
+    long leaseTime() default 15000L;
+    // 락을 잡은 뒤 자동으로 풀리기까지의 시간 (밀리초)
+    // 요청 처리가 이 시간보다 오래 걸리면 다른 요청이 락을 가져갈 수 있으므로 주의
+
+    boolean watchdog() default false;
+    // true 이면 leaseTime 대신, 락을 잡은 요청이 살아있는 동안 Redisson 이 주기적으로 lease 를 연장해준다
+    // (요청이 죽으면 연장이 멈추므로 락이 영원히 남지는 않음)
+
+    boolean fair() default false;
+    // true 이면 먼저 기다린 요청이 먼저 락을 가져간다 (Redisson fair lock)
+    // 같은 계좌를 잠그는 엔드포인트끼리는 같은 값을 써야 한다
+
+    boolean queue() default false;
+    // true 이면 account.transaction.mode=queue 일 때 요청마다 락을 거는 대신 계좌별 대기열(AccountCommandQueue)에서 실행된다
+    // (tryLockTime 안에 차례가 오지 않으면 락을 못 잡은 것과 같은 에러)
+    // 계좌 락은 대기열 워커가 묶음마다 잡으므로 leaseTime / watchdog / fair 대신 AccountCommandQueue.LOCK 을 따른다
+    // -> fair = true 인 엔드포인트와 같은 계좌를 함께 쓰지 않는다
 }
@@ -0,0 +1,11 @@
+package com.example.account.aop;
+
+import java.lang.annotation.*;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+// Idempotency-Key 헤더가 있는 요청은 같은 키로 다시 들어와도 한 번만 실행하고, 이후에는 저장된 응답을 돌려준다
+// (IdempotencyAspect 가 @AccountLock 보다 먼저 가로채므로 재시도 요청은 락과 DB 작업을 하지 않는다)
+public @interface Idempotent {
+}
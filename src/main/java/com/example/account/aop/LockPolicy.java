@@ -0,0 +1,37 @@
+package com.example.account.aop;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+@Builder
+public class LockPolicy { // @AccountLock 의 속성을 한 번만 읽어서 담아두는 객체 (메서드마다 캐싱해서 사용)
+
+    // 어노테이션 없이 직접 락을 거는 경우의 기본값 (최대 1초 대기, 15초 lease)
+    public static final LockPolicy DEFAULT = new LockPolicy("default", 1000L, 15000L, false, false);
+
+    private final String name; // 어떤 엔드포인트의 락인지 (메트릭 태그로 사용)
+    private final long waitMillis;
+    private final long leaseMillis;
+    private final boolean watchdog;
+    private final boolean fair;
+
+    // @AccountLock 을 붙일 수 없는 곳(비동기 엔드포인트 등)에서 어노테이션 기본값과 같은 정책을 쓸 때
+    public static LockPolicy of(String name) {
+        return LockPolicy.builder()
+                .name(name)
+                .waitMillis(5000L)
+                .leaseMillis(15000L)
+                .build();
+    }
+
+    public static LockPolicy from(String name, AccountLock accountLock) {
+        return LockPolicy.builder()
+                .name(name)
+                .waitMillis(accountLock.tryLockTime())
+                .leaseMillis(accountLock.leaseTime())
+                .watchdog(accountLock.watchdog())
+                .fair(accountLock.fair())
+                .build();
+    }
+}
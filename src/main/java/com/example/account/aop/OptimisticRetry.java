@@ -0,0 +1,12 @@
+package com.example.account.aop;
+
+import java.lang.annotation.*;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+// account.transaction.mode=optimistic 일 때,
+// 이 어노테이션이 붙은 메서드는 OptimisticLockException 이 나면 트랜잭션을 처음부터 다시 실행한다
+// (lock 모드에서는 OptimisticRetryAspect 가 등록되지 않으므로 아무 동작도 하지 않음)
+public @interface OptimisticRetry {
+}
@@ -0,0 +1,83 @@
+package com.example.account.controller;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.dto.CancelBalance;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.service.AsyncAccountLockExecutor;
+import com.example.account.service.FailedTransactionJournal;
+import com.example.account.service.TransactionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+/*
+* 잔액 사용 / 사용 취소의 비동기 버전
+* - 계좌 락을 기다리는 동안 Tomcat 스레드를 반납하고, 락을 잡으면 응답을 이어서 처리한다
+* - 락 정책은 @AccountLock 기본값과 같다 (대기 5초, lease 15초)
+*/
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${account.lock.mode:redis}' == 'redis' and '${account.transaction.mode:lock}' == 'lock'")
+public class AsyncTransactionController {
+
+    private static final LockPolicy USE_BALANCE_LOCK =
+            LockPolicy.of("AsyncTransactionController.useBalance");
+    private static final LockPolicy CANCEL_BALANCE_LOCK =
+            LockPolicy.of("AsyncTransactionController.cancleBalance");
+
+    private final TransactionService transactionService;
+    private final FailedTransactionJournal failedTransactionJournal; // 실패 거래 내역은 뒤에서 모아서 저장
+    private final AsyncAccountLockExecutor asyncAccountLockExecutor;
+
+    @PostMapping("/transaction/use/async")
+    public CompletableFuture<UseBalance.Response> useBalance(
+            @Valid @RequestBody UseBalance.Request request) {
+
+        return asyncAccountLockExecutor.execute(request.getAccountNumber(), USE_BALANCE_LOCK, () -> {
+            try {
+                return UseBalance.Response.from(
+                        transactionService.useBalance(
+                        request.getUserId(), request.getAccountNumber(), request.getAmount()));
+            } catch (AccountException e) {
+                log.error("Failed to use balance");
+
+                failedTransactionJournal.recordFailedUse(
+                        request.getAccountNumber(),
+                        request.getAmount()
+                );
+
+                throw e;
+            }
+        });
+    }
+
+    @PostMapping("/transaction/cancel/async")
+    public CompletableFuture<CancelBalance.Response> cancleBalance(
+            @Valid @RequestBody CancelBalance.Request request) {
+
+        return asyncAccountLockExecutor.execute(request.getAccountNumber(), CANCEL_BALANCE_LOCK, () -> {
+            try {
+                return CancelBalance.Response.from(
+                        transactionService.cancelBalance(
+                        request.getTransactionId(), request.getAccountNumber(), request.getAmount()));
+            } catch (AccountException e) {
+                log.error("Failed to cancel balance");
+
+                failedTransactionJournal.recordFailedCancel(
+                        request.getAccountNumber(),
+                        request.getAmount()
+                );
+
+                throw e;
+            }
+        });
+    }
+}
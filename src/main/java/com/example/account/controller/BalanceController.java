@@ -0,0 +1,35 @@
+package com.example.account.controller;
+
+import com.example.account.dto.BalanceRebuild;
+import com.example.account.service.BalanceCheckpointService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+/*
+* 거래 내역으로 다시 계산한 잔액 조회 (감사용)
+* GET /account/1000000000/balance                          : 현재 잔액 + 계좌 row 잔액과 일치 여부
+* GET /account/1000000000/balance?at=2022-06-01T00:00:00   : 그 시점의 잔액
+*/
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "account.balance-checkpoint.enabled", havingValue = "true")
+public class BalanceController {
+
+    private final BalanceCheckpointService balanceCheckpointService;
+
+    @GetMapping("/account/{accountNumber}/balance")
+    public BalanceRebuild rebuildBalance(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+
+        return balanceCheckpointService.rebuild(accountNumber, at);
+    }
+}
@@ -1,22 +1,36 @@
 package com.example.account.controller;
 
 import com.example.account.aop.AccountLock;
+import com.example.account.aop.Idempotent;
 import com.example.account.dto.CancelBalance;
+import com.example.account.dto.ErrorResponse;
 import com.example.account.dto.QueryTransactionResponse;
-import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistory;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceResult;
 import com.example.account.exception.AccountException;
+import com.example.account.service.FailedTransactionJournal;
 import com.example.account.service.TransactionService;
+import com.example.account.service.UseBalanceBatchService;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /*
 * 잔액 관련 컨트롤러
-* 1. 잔액 사용
+* 1. 잔액 사용 (여러 건 한번에 사용)
 * 2. 잔액 사용 취소
 * 3. 거래 확인
+* 4. 계좌별 거래 내역 조회
 */
 @Slf4j
 @RestController
@@ -24,9 +38,19 @@ import org.springframework.web.bind.annotation.*;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final FailedTransactionJournal failedTransactionJournal; // 실패 거래 내역은 뒤에서 모아서 저장
+    private final UseBalanceBatchService useBalanceBatchService;
+    private final Validator validator;
+
+    @Value("${account.transaction.batch.max-size:1000}")
+    private int maxBatchSize = 1000;
+
+    @Value("${account.transaction.history.max-size:100}")
+    private int maxHistorySize = 100;
 
     @PostMapping("/transaction/use")
-    @AccountLock
+    @Idempotent // Idempotency-Key 헤더로 재시도해도 한 번만 사용됨
+    @AccountLock(queue = true) // queue 모드에서는 계좌별 대기열에서 실행
     public UseBalance.Response useBalance(
             @Valid @RequestBody UseBalance.Request request) throws InterruptedException {
 
@@ -39,7 +63,7 @@ public class TransactionController {
         } catch (AccountException e) {
             log.error("Failed to use balance");
 
-            transactionService.saveFailedUseTransaction(
+            failedTransactionJournal.recordFailedUse(
                     request.getAccountNumber(),
                     request.getAmount()
             );
@@ -49,8 +73,51 @@ public class TransactionController {
 
     }
 
+    /*
+        [
+            {"userId":1, "accountNumber":"1000000000", "amount":1000},
+            {"userId":1, "accountNumber":"1000000001", "amount":2000}
+        ]
+        요청 순서대로 건별 UseBalance.Response 또는 ErrorResponse 를 돌려준다
+        - 계좌 락은 계좌별로 한 번만 잡으므로 @AccountLock 을 붙이지 않는다 (UseBalanceBatchService)
+        - 검증에 실패한 건은 INVALID_REQUEST 로 응답하고 나머지는 그대로 처리한다
+    */
+    @PostMapping("/transaction/use/batch")
+    public List<Object> useBalanceBatch(
+            @RequestBody List<UseBalance.Request> requests) {
+
+        if (requests.isEmpty() || requests.size() > maxBatchSize) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+
+        List<Object> responses = new ArrayList<>(requests.size());
+        List<UseBalance.Request> validRequests = new ArrayList<>(requests.size());
+        for (UseBalance.Request request : requests) {
+            if (request == null || !validator.validate(request).isEmpty()) {
+                responses.add(new ErrorResponse(
+                        ErrorCode.INVALID_REQUEST, ErrorCode.INVALID_REQUEST.getDescription()));
+            } else {
+                responses.add(null);
+                validRequests.add(request);
+            }
+        }
+
+        List<UseBalanceResult> results = useBalanceBatchService.useBalances(validRequests);
+        int next = 0;
+        for (int i = 0; i < responses.size(); i++) {
+            if (responses.get(i) == null) {
+                UseBalanceResult result = results.get(next++);
+                responses.set(i, result.isSuccess()
+                        ? UseBalance.Response.from(result.getTransactionDto())
+                        : new ErrorResponse(result.getErrorCode(), result.getErrorCode().getDescription()));
+            }
+        }
+        return responses;
+    }
+
     @PostMapping("/transaction/cancel")
-    @AccountLock
+    @Idempotent
+    @AccountLock(queue = true)
     public CancelBalance.Response cancleBalance(
             @Valid @RequestBody CancelBalance.Request request) {
 
@@ -61,7 +128,7 @@ public class TransactionController {
         } catch (AccountException e) {
             log.error("Failed to cancel balance");
 
-            transactionService.saveFailedCancelTransaction(
+            failedTransactionJournal.recordFailedCancel(
                     request.getAccountNumber(),
                     request.getAmount()
             );
@@ -79,4 +146,24 @@ public class TransactionController {
                 transactionService.queryTransaction(transactionId));
     }
 
+    /*
+        GET /account/1000000000/transactions?transactionType=USE&transactionResultType=S&size=20
+        다음 페이지는 응답의 nextCursor 를 cursor 파라미터로 넘겨서 조회한다
+    */
+    @GetMapping("/account/{accountNumber}/transactions")
+    public TransactionHistory.Response getTransactions(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false) TransactionType transactionType,
+            @RequestParam(required = false) TransactionResultType transactionResultType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        if (size < 1 || size > maxHistorySize) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+
+        return transactionService.getTransactions(
+                accountNumber, transactionType, transactionResultType, cursor, size);
+    }
+
 }
@@ -0,0 +1,55 @@
+package com.example.account.controller;
+
+import com.example.account.exception.AccountException;
+import com.example.account.service.TransactionExportService;
+import com.example.account.type.ExportFormat;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/*
+* 거래 내역 내보내기 컨트롤러 (정산용)
+* GET /account/1000000000/transactions/export?format=csv&date=2022-06-01
+* - date 를 빼면 계좌의 전체 거래 내역
+* - 응답 본문은 만들어두지 않고 DB 에서 읽는 대로 바로 쓴다 (TransactionExportService)
+*/
+@RestController
+@RequiredArgsConstructor
+public class TransactionExportController {
+
+    private final TransactionExportService transactionExportService;
+
+    @GetMapping("/account/{accountNumber}/transactions/export")
+    public void exportTransactions(
+            @PathVariable String accountNumber,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            HttpServletResponse response) throws IOException {
+
+        String filename = "transactions-" + accountNumber
+                + (date == null ? "" : "-" + date) + "." + format.getExtension();
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+
+        try {
+            transactionExportService.export(accountNumber, date, format, response.getOutputStream());
+        } catch (AccountException e) {
+            // 아직 아무것도 쓰지 않았으면 위에서 지정한 Content-Type 을 지워서 에러 응답(JSON)을 줄 수 있게 한다
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+}
@@ -18,6 +18,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @SuperBuilder
+@Table(indexes = @Index(name = "idx_account_account_number", columnList = "accountNumber", unique = true))
+// 잔액 사용 / 취소마다 계좌번호로 조회하므로 인덱스를 건다 (발급기가 겹치지 않게 발급하므로 unique)
 //@EntityListeners(AuditingEntityListener.class) -> BaseEntity에 설정했기 때문에 주석처리
 // AuditingEntityListener는 config에 설정을 넣어줘야만 사용할 수 있다
 // JpaAuditingConfiguration 파일
@@ -27,7 +29,7 @@ public class Account extends BaseEntity{ // 이 클래스의 멤버변수처럼
 //    @GeneratedValue
 //    Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY) // 소유주 id 만 필요한 경우가 대부분이라 필요할 때만 읽는다
     private AccountUser accountUser;
     private String accountNumber;
 
@@ -38,6 +40,20 @@ public class Account extends BaseEntity{ // 이 클래스의 멤버변수처럼
     private LocalDateTime registeredAt;
     private LocalDateTime unregistedAt;
 
+    // 낙관적 락(account.transaction.mode=optimistic) 용 버전 컬럼
+    // 커밋 시점에 버전이 바뀌어 있으면 OptimisticLockException 이 발생한다
+    @Version
+    private Long version;
+
+    // 이 계좌에 마지막으로 쓰기를 한 분산 락의 fencing token
+    // lease 가 만료된 뒤 늦게 도착한 (더 작은 token 을 가진) 쓰기는 거절된다
+    private Long fencingToken;
+
+    // 잔액을 바꾼 거래(S)마다 1씩 늘어나는 계좌별 거래 순번 (마지막 거래의 Transaction.accountSeq)
+    // 잔액과 같은 row 에서 같이 바뀌므로 계좌별로는 커밋 순서와 같다 (row id 는 insert 순서라 커밋 순서와 다를 수 있음)
+    @Builder.Default
+    private Long transactionSeq = 0L;
+
     // @CreatedDate 와 @LastModifiedDate는
     // @EntityListeners 가 있어야만 사용할 수 있다
 //    @CreatedDate
@@ -52,6 +68,7 @@ public class Account extends BaseEntity{ // 이 클래스의 멤버변수처럼
         }
 
         balance -= amount;
+        nextTransactionSeq();
     }
 
     public void cancelBalance(Long amount) {
@@ -60,5 +77,10 @@ public class Account extends BaseEntity{ // 이 클래스의 멤버변수처럼
         }
 
         balance += amount;
+        nextTransactionSeq();
+    }
+
+    private void nextTransactionSeq() {
+        transactionSeq = (transactionSeq == null ? 0L : transactionSeq) + 1;
     }
 }
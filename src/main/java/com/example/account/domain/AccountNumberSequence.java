@@ -0,0 +1,19 @@
+package com.example.account.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+@Entity
+@Getter @Setter
+@AllArgsConstructor @NoArgsConstructor
+@Builder
+public class AccountNumberSequence { // 계좌번호 발급 현황 (노드들이 번호 구간을 빌려갈 때 사용하는 row)
+
+    @Id
+    private String name;
+
+    // 아직 어떤 노드에도 빌려주지 않은 첫번째 번호
+    // 노드가 구간을 빌려갈 때마다 구간 크기만큼 증가하고, 줄어들지 않는다 (재시작해도 같은 번호를 다시 주지 않음)
+    private Long nextValue;
+}
@@ -24,6 +24,10 @@ public class AccountUser extends BaseEntity { // User라고 붙이지 않은 이
 
     private String name;
 
+    // 해지되지 않은 계좌 수 (AccountUserRepository 의 조건부 UPDATE 로만 바꾼다)
+    @Builder.Default
+    private Integer accountCount = 0;
+
 //    @CreatedDate
 //    private LocalDateTime createdAt;
 //    @LastModifiedDate
@@ -0,0 +1,30 @@
+package com.example.account.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+import java.time.LocalDateTime;
+
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@SuperBuilder
+@Entity
+@Table(indexes = @Index(name = "idx_balance_checkpoint_account", columnList = "accountId, lastAccountSeq"))
+// 계좌별로 가장 최근(또는 특정 시점 이전의 가장 최근) 체크포인트를 찾으므로 인덱스를 건다
+public class BalanceCheckpoint extends BaseEntity { // 어느 거래까지 반영한 잔액인지 기록해둔 체크포인트
+    // 잔액 = 마지막 체크포인트의 balance + 그 뒤(lastAccountSeq 다음 순번)의 성공한 거래들
+    // 체크포인트는 추가만 하고 수정하지 않는다
+
+    // 계좌 엔티티를 읽지 않도록 연관관계 대신 id 만 저장
+    private Long accountId;
+    private Long balance;
+
+    // 이 체크포인트에 반영된 마지막 거래의 계좌별 순번 (Transaction.accountSeq, 계좌를 만들 때의 체크포인트는 0)
+    private Long lastAccountSeq;
+    // 이 체크포인트 기준 시각 (마지막 거래의 거래일시, 계좌를 만들 때의 체크포인트는 등록일시,
+    // 계좌 row 에서 다시 잡은 체크포인트는 잡은 시각)
+    private LocalDateTime checkpointAt;
+}
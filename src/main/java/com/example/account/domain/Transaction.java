@@ -15,6 +15,14 @@ import java.time.LocalDateTime;
 @NoArgsConstructor @AllArgsConstructor
 @SuperBuilder
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_transaction_transaction_id", columnList = "transactionId", unique = true),
+        @Index(name = "idx_transaction_account_transacted_at", columnList = "account_id, transactedAt, id"),
+        @Index(name = "idx_transaction_account_seq", columnList = "account_id, accountSeq")
+})
+// 거래 아이디로 조회(거래 확인, 사용 취소)하므로 인덱스를 건다
+// 계좌별 거래 내역은 (계좌, 거래일시, id) 순서로 키셋 페이지네이션 하므로 인덱스를 건다
+// 잔액 체크포인트 뒤의 거래는 (계좌, 계좌별 거래 순번) 으로 찾으므로 인덱스를 건다
 //@EntityListeners(AuditingEntityListener.class)
 public class Transaction extends BaseEntity {
 
@@ -27,7 +35,7 @@ public class Transaction extends BaseEntity {
     @Enumerated(EnumType.STRING)
     private TransactionResultType transactionResultType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Account account;
     private Long amount;
     private Long balanceSnapshot;
@@ -35,6 +43,9 @@ public class Transaction extends BaseEntity {
     private String transactionId;
     private LocalDateTime transactedAt;
 
+    // 잔액을 바꾼 거래(S)의 계좌별 순번 (Account.transactionSeq), 실패(F) 거래는 null
+    private Long accountSeq;
+
 //    @CreatedDate
 //    private LocalDateTime createdAt;
 //    @LastModifiedDate
@@ -0,0 +1,14 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class AccountRef { // 계좌번호로 찾은 계좌의 바뀌지 않는 값들 (AccountNumberCache 에 보관)
+    private Long id;
+    private String accountNumber;
+    private Long ownerId;              // 소유주(AccountUser) id
+    private LocalDateTime registeredAt;
+}
@@ -0,0 +1,40 @@
+package com.example.account.dto;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+@Builder
+public class ArchivedTransaction { // archive segment 파일에 옮겨 담는 거래 1건 (TransactionArchiver)
+    private Long id; // Transaction 테이블의 row id (옮긴 뒤 지울 때만 사용, 파일에는 저장하지 않음)
+    private String transactionId;
+    private Long accountId;
+    private String accountNumber;
+    private TransactionType transactionType;
+    private TransactionResultType transactionResultType;
+    private Long amount;
+    private Long balanceSnapshot;
+    private LocalDateTime transactedAt;
+
+    // 거래 확인 / 사용 취소에서 테이블의 거래와 똑같이 쓸 수 있도록 (저장되지 않은 엔티티)
+    public Transaction toTransaction() {
+        return Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .account(Account.builder()
+                        .id(accountId)
+                        .accountNumber(accountNumber)
+                        .build())
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/*
+{
+    "accountNumber":"1000000000",
+    "at":null,
+    "balance":9000,
+    "checkpointBalance":10000,
+    "checkpointAt":"2022-06-01T23:26:14.671859",
+    "tailCount":1,
+    "currentBalance":9000,
+    "consistent":true
+}
+*/
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class BalanceRebuild { // 체크포인트 + 그 뒤의 거래로 다시 계산한 잔액
+    private String accountNumber;
+    private LocalDateTime at;          // null 이면 현재 잔액
+    private Long balance;              // 다시 계산한 잔액
+    private Long checkpointBalance;
+    private LocalDateTime checkpointAt;
+    private Long tailCount;            // 체크포인트 뒤에 더한 거래 수
+
+    // 현재 잔액을 계산한 경우만 : 계좌 row 의 잔액과 비교
+    private Long currentBalance;
+    private Boolean consistent;
+}
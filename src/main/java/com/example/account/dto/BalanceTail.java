@@ -0,0 +1,14 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class BalanceTail { // 체크포인트 뒤에 쌓인 성공한 거래들의 합계 (TransactionRepository.sumBalanceTail)
+    private Long count;
+    private Long delta;                    // 사용은 -금액, 사용 취소는 +금액
+    private Long lastSeq;                  // 마지막 거래의 계좌별 순번, 거래가 없으면 null
+    private LocalDateTime lastTransactedAt; // 거래가 없으면 null
+}
@@ -0,0 +1,16 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+@Builder
+public class FailedTransaction { // 아직 저장되지 않은 실패 거래 내역 (FailedTransactionJournal 대기열에 쌓임)
+    private TransactionType transactionType;
+    private String accountNumber;
+    private Long amount;
+    private LocalDateTime transactedAt; // 실패한 시각 (저장되는 시각이 아님)
+}
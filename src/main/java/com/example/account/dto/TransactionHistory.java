@@ -0,0 +1,86 @@
+package com.example.account.dto;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+public class TransactionHistory { // 계좌별 거래 내역 조회 (GET /account/{accountNumber}/transactions)
+
+    /*
+        TransactionRepository 가 JPQL 생성자 표현식으로 바로 만들어주는 projection
+        - Transaction / Account 엔티티를 영속성 컨텍스트에 올리지 않는다
+        - id 는 다음 페이지 커서를 만들 때만 사용
+    */
+    @Getter
+    @AllArgsConstructor
+    public static class Item {
+        @JsonIgnore
+        private Long id;
+        private TransactionType transactionType;
+        private TransactionResultType transactionResultType;
+        private String transactionId;
+        private Long amount;
+        private Long balanceSnapshot;
+        private LocalDateTime transactedAt;
+    }
+
+    /*
+    {
+        "accountNumber":"1000000000",
+        "transactions":[ {...}, {...} ],
+        "nextCursor":"MjAyMi0wNi0wMVQyMzoyNjoxNC42NzE4NTl8MTA"
+    }
+    nextCursor 가 null 이면 마지막 페이지
+    */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private String accountNumber;
+        private List<Item> transactions;
+        private String nextCursor;
+    }
+
+    // (transactedAt, id) 키셋 커서 : 마지막으로 본 거래보다 오래된 거래부터 이어서 조회한다
+    // offset 방식과 달리 뒤 페이지로 갈수록 느려지지 않고, 그 사이 새 거래가 들어와도 중복 / 누락이 없다
+    @Getter
+    @AllArgsConstructor
+    public static class Cursor {
+        private static final String SEPARATOR = "|";
+
+        private LocalDateTime transactedAt;
+        private Long id;
+
+        public static Cursor of(Item item) {
+            return new Cursor(item.getTransactedAt(), item.getId());
+        }
+
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (transactedAt + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        // 잘못된 커서는 INVALID_REQUEST
+        public static Cursor decode(String cursor) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf(SEPARATOR);
+                return new Cursor(
+                        LocalDateTime.parse(decoded.substring(0, separator)),
+                        Long.parseLong(decoded.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new AccountException(ErrorCode.INVALID_REQUEST);
+            }
+        }
+    }
+}
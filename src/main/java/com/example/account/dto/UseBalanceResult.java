@@ -0,0 +1,30 @@
+package com.example.account.dto;
+
+import com.example.account.type.ErrorCode;
+import lombok.*;
+
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class UseBalanceResult { // 여러 건을 한번에 처리할 때 요청 하나하나의 처리 결과
+    // 성공하면 transactionDto, 실패하면 errorCode 가 채워진다
+
+    private TransactionDto transactionDto;
+    private ErrorCode errorCode;
+
+    public static UseBalanceResult success(TransactionDto transactionDto) {
+        return UseBalanceResult.builder()
+                .transactionDto(transactionDto)
+                .build();
+    }
+
+    public static UseBalanceResult failure(ErrorCode errorCode) {
+        return UseBalanceResult.builder()
+                .errorCode(errorCode)
+                .build();
+    }
+
+    public boolean isSuccess() {
+        return errorCode == null;
+    }
+}
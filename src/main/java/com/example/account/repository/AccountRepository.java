@@ -2,9 +2,20 @@ package com.example.account.repository;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountDto;
+import com.example.account.dto.AccountRef;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,15 +24,76 @@ import java.util.Optional;
                                                     // < PK, 엔티티의 primary 타입>
 public interface AccountRepository extends JpaRepository<Account, Long> {
 
-    // 📍 실제 구현은 어디에 있나요..?
-    // 인프런 김영한 강의 - JPA 강의 듣기
-    Optional<Account> findFirstByOrderByIdDesc();
+    // 계좌번호는 모두 10자리라서 문자열 비교로도 가장 큰 번호를 구할 수 있다
+    // (AccountNumberAllocator 가 처음 번호를 발급할 때 한 번만 사용)
+    @Query("select max(a.accountNumber) from Account a")
+    Optional<String> findMaxAccountNumber();
 
     Optional<Account> findByAccountNumber(String AccountNumber);
 
-    Integer countByAccountUser(AccountUser accountUser);
+    // 거래 내역 조회처럼 계좌 id 만 필요할 때 (Account / AccountUser 를 읽지 않음)
+    @Query("select a.id from Account a where a.accountNumber = :accountNumber")
+    Optional<Long> findIdByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    // AccountNumberCache 가 캐시에 담는 계좌의 바뀌지 않는 값들 (AccountUser 를 읽지 않음)
+    @Query("select new com.example.account.dto.AccountRef(a.id, a.accountNumber, a.accountUser.id, a.registeredAt) " +
+            "from Account a where a.accountNumber = :accountNumber")
+    Optional<AccountRef> findRefByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    // 실패 거래 내역을 여러 건 한번에 저장할 때 계좌를 한 번의 쿼리로 읽어온다
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+
+    // Redis 분산 락을 쓸 수 없을 때 대신 사용하는 DB row 락 (select ... for update)
+    // 트랜잭션이 끝날 때까지 다른 트랜잭션의 같은 계좌 쓰기가 기다린다 (최대 3초)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("select a from Account a where a.accountNumber = :accountNumber")
+    Optional<Account> findByAccountNumberForUpdate(@Param("accountNumber") String accountNumber);
+
+    // 잔액 체크포인트를 추가할 때 : 커밋된 마지막 거래의 계좌별 순번 (Account.balance 는 읽지 않음)
+    @Query("select a.transactionSeq from Account a where a.id = :id")
+    Optional<Long> findTransactionSeqById(@Param("id") Long id);
+
+    // GET /account : a.accountUser.id 는 FK 컬럼이라 AccountUser 를 join 하지 않는다
+    @Query("select new com.example.account.dto.AccountDto(" +
+            "a.accountUser.id, a.accountNumber, a.balance, a.registeredAt, a.unregistedAt) " +
+            "from Account a where a.accountUser.id = :userId order by a.id")
+    List<AccountDto> findDtosByAccountUserId(@Param("userId") Long userId);
+
+    // GET /account/{id} 는 엔티티를 그대로 응답하므로 지연 로딩인 소유주를 같은 쿼리에서 읽는다
+    @EntityGraph(attributePaths = "accountUser")
+    Optional<Account> findWithAccountUserById(Long id);
 
     // JPA 관련 기능 중 : Account에 연관관계로 포함된 AccountUser가 있기 때문에
     // 이 메서드가 이 인터페이스 안에서 자동으로 생성되는 것임
     List<Account> findByAccountUser(AccountUser accountUser);
+
+    // atomic 모드 : 락 없이 UPDATE 한 번으로 잔액을 차감한다 (read-modify-write 가 없음)
+    // 소유주 일치 / 사용중 / 잔액 충분 조건을 모두 만족할 때만 1건이 변경되고, 아니면 0 을 반환
+    // 엔티티를 거치지 않으므로 version 은 직접 올려서 낙관적 락을 쓰는 다른 쓰기와도 충돌을 감지하게 한다
+    // 잔액과 함께 계좌별 거래 순번(transactionSeq)도 올린다 (cancelBalance 도 같음)
+    @Modifying(clearAutomatically = true)
+    @Query("update Account a set a.balance = a.balance - :amount, a.version = a.version + 1, " +
+            "a.transactionSeq = coalesce(a.transactionSeq, 0) + 1 " +
+            "where a.accountNumber = :accountNumber and a.accountUser.id = :userId " +
+            "and a.balance >= :amount " +
+            "and a.accountStatus = com.example.account.type.AccountStatus.IN_USE")
+    int useBalanceIfAvailable(@Param("userId") Long userId,
+                              @Param("accountNumber") String accountNumber,
+                              @Param("amount") Long amount);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Account a set a.balance = a.balance + :amount, a.version = a.version + 1, " +
+            "a.transactionSeq = coalesce(a.transactionSeq, 0) + 1 " +
+            "where a.id = :id")
+    int cancelBalance(@Param("id") Long id, @Param("amount") Long amount);
+
+    // 잔액을 쓰기 전에 fencing token 을 기록한다
+    // 이미 더 큰 token 이 기록되어 있으면(= 그 사이 다른 노드가 락을 가져가서 쓰기를 했으면) 0 을 반환
+    // 이 UPDATE 가 계좌 row 에 락을 걸기 때문에, 트랜잭션이 끝날 때까지 다른 token 의 쓰기도 순서대로 처리된다
+    @Modifying(clearAutomatically = true)
+    @Query("update Account a set a.fencingToken = :token " +
+            "where a.accountNumber = :accountNumber " +
+            "and (a.fencingToken is null or a.fencingToken <= :token)")
+    int fence(@Param("accountNumber") String accountNumber, @Param("token") Long token);
 }
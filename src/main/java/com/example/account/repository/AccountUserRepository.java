@@ -2,8 +2,23 @@ package com.example.account.repository;
 
 import com.example.account.domain.AccountUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface AccountUserRepository extends JpaRepository<AccountUser, Long> {
+
+    // 계좌를 만들기 전에 사용자의 계좌 수를 1 늘린다 (max 개 미만일 때만 1건이 변경되고, 아니면 0 을 반환)
+    // 사용자 row 에 락이 걸리므로 같은 사용자의 동시 생성도 트랜잭션이 끝날 때까지 순서대로 처리된다
+    @Modifying
+    @Query("update AccountUser u set u.accountCount = u.accountCount + 1 " +
+            "where u.id = :id and u.accountCount < :max")
+    int increaseAccountCount(@Param("id") Long id, @Param("max") int max);
+
+    @Modifying
+    @Query("update AccountUser u set u.accountCount = u.accountCount - 1 " +
+            "where u.id = :id and u.accountCount > 0")
+    int decreaseAccountCount(@Param("id") Long id);
 }
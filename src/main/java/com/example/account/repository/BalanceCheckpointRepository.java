@@ -0,0 +1,19 @@
+package com.example.account.repository;
+
+import com.example.account.domain.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Long> {
+
+    // 가장 최근 체크포인트
+    Optional<BalanceCheckpoint> findFirstByAccountIdOrderByLastAccountSeqDesc(Long accountId);
+
+    // 특정 시점 이전의 가장 최근 체크포인트 (시점 잔액 조회)
+    Optional<BalanceCheckpoint> findFirstByAccountIdAndCheckpointAtLessThanEqualOrderByLastAccountSeqDesc(
+            Long accountId, LocalDateTime checkpointAt);
+}
@@ -1,13 +1,141 @@
 package com.example.account.repository;
 
 import com.example.account.domain.Transaction;
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.dto.BalanceTail;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    // 내보내기 할 때 DB 에서 한 번에 가져오는 row 수 (영속성 컨텍스트도 이 단위로 비운다)
+    int EXPORT_FETCH_SIZE = 500;
+
     Optional<Transaction> findByTransactionId(String transactionId);
+
+    // GET /transaction/{transactionId} : 계좌번호만 join 해서 바로 TransactionDto 로 받는다 (엔티티를 만들지 않음)
+    @Query("select new com.example.account.dto.TransactionDto(" +
+            "a.accountNumber, t.transactionType, t.transactionResultType, " +
+            "t.amount, t.balanceSnapshot, t.transactionId, t.transactedAt) " +
+            "from Transaction t join t.account a where t.transactionId = :transactionId")
+    Optional<TransactionDto> findDtoByTransactionId(@Param("transactionId") String transactionId);
+
+    // ledger 복구할 때 여러 거래가 테이블에 있는지 한번에 확인
+    List<Transaction> findByTransactionIdIn(Collection<String> transactionIds);
+
+    // ledger 복구할 때 in-doubt 거래의 계좌별 순번을 다른 (커밋된) 거래가 쓰고 있는지 확인
+    boolean existsByAccountIdAndAccountSeq(Long accountId, Long accountSeq);
+
+    // 계좌별 거래 내역 (최신순, 키셋 페이지네이션)
+    // - t.account.id 는 FK 컬럼이라 Account 를 join / 조회하지 않는다
+    // - 거래 종류 / 결과 필터는 null 이면 적용하지 않는다 (인덱스 컬럼이 아니라 읽은 row 에만 거르는 조건)
+    // - 첫 페이지와 다음 페이지를 다른 쿼리로 나눠서, 커서 조건에 null 확인(:cursorAt is null or ...)을 두지 않는다
+    //   -> 옵티마이저가 커서 조건을 인덱스 범위로 쓸 수 있다
+    // idx_transaction_account_transacted_at (account_id, transacted_at, id) 인덱스를 역순으로 읽는다
+
+    // 첫 페이지 : 계좌의 가장 최근 거래부터
+    @Query("select new com.example.account.dto.TransactionHistory$Item(" +
+            "t.id, t.transactionType, t.transactionResultType, t.transactionId, " +
+            "t.amount, t.balanceSnapshot, t.transactedAt) " +
+            "from Transaction t " +
+            "where t.account.id = :accountId " +
+            "and (:transactionType is null or t.transactionType = :transactionType) " +
+            "and (:transactionResultType is null or t.transactionResultType = :transactionResultType) " +
+            "order by t.transactedAt desc, t.id desc")
+    List<TransactionHistory.Item> findHistory(@Param("accountId") Long accountId,
+                                              @Param("transactionType") TransactionType transactionType,
+                                              @Param("transactionResultType") TransactionResultType transactionResultType,
+                                              Limit limit);
+
+    // 다음 페이지 : 커서(cursorAt, cursorId)보다 오래된 거래부터
+    // transactedAt <= :cursorAt 는 아래 or 조건에 포함되지만, 인덱스 범위의 시작점으로 쓰이도록 따로 둔다
+    @Query("select new com.example.account.dto.TransactionHistory$Item(" +
+            "t.id, t.transactionType, t.transactionResultType, t.transactionId, " +
+            "t.amount, t.balanceSnapshot, t.transactedAt) " +
+            "from Transaction t " +
+            "where t.account.id = :accountId " +
+            "and t.transactedAt <= :cursorAt " +
+            "and (t.transactedAt < :cursorAt or (t.transactedAt = :cursorAt and t.id < :cursorId)) " +
+            "and (:transactionType is null or t.transactionType = :transactionType) " +
+            "and (:transactionResultType is null or t.transactionResultType = :transactionResultType) " +
+            "order by t.transactedAt desc, t.id desc")
+    List<TransactionHistory.Item> findHistoryBefore(@Param("accountId") Long accountId,
+                                                    @Param("transactionType") TransactionType transactionType,
+                                                    @Param("transactionResultType") TransactionResultType transactionResultType,
+                                                    @Param("cursorAt") LocalDateTime cursorAt,
+                                                    @Param("cursorId") Long cursorId,
+                                                    Limit limit);
+
+    // 거래 내역 내보내기 (오래된 순) : List 로 모으지 않고 커서로 EXPORT_FETCH_SIZE 씩 읽는다
+    // - 반드시 트랜잭션 안에서 소비하고 close 해야 한다 (try-with-resources)
+    // - 계좌(계좌번호)는 join fetch 로 같은 쿼리에서 읽고, read-only 로 읽어서 변경 감지용 스냅샷을 만들지 않는다
+    //   (내보내는 행에 사용자 정보는 없으므로 지연 로딩인 소유주는 읽지 않는다)
+    // - from / to 가 null 이면 기간 제한 없음
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from Transaction t join fetch t.account a " +
+            "where a.id = :accountId " +
+            "and (:from is null or t.transactedAt >= :from) " +
+            "and (:to is null or t.transactedAt < :to) " +
+            "order by t.transactedAt, t.id")
+    Stream<Transaction> streamForExport(@Param("accountId") Long accountId,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
+    // archive 로 옮길 거래 (transactedAt 이 cutoff 이전, row id 순으로 afterId 다음부터)
+    @Query("select new com.example.account.dto.ArchivedTransaction(" +
+            "t.id, t.transactionId, a.id, a.accountNumber, t.transactionType, " +
+            "t.transactionResultType, t.amount, t.balanceSnapshot, t.transactedAt) " +
+            "from Transaction t join t.account a " +
+            "where t.transactedAt < :cutoff and t.id > :afterId " +
+            "order by t.id")
+    List<ArchivedTransaction> findArchivable(@Param("cutoff") LocalDateTime cutoff,
+                                             @Param("afterId") Long afterId,
+                                             Limit limit);
+
+    // 체크포인트(afterSeq) 뒤부터 untilSeq 까지의 거래들로 잔액 변화량을 합산
+    // 계좌별 순번(accountSeq)은 잔액을 바꾼 거래(S)에만 있으므로 실패(F) 거래는 저절로 빠진다
+    // 순번은 빠짐없이 1씩 늘어나므로 count 가 untilSeq - afterSeq 보다 작으면 아직 테이블에 없는 거래가 있다
+    // idx_transaction_account_seq (account_id, account_seq) 인덱스의 범위만 읽는다
+    @Query("select new com.example.account.dto.BalanceTail(count(t), " +
+            "coalesce(sum(case when t.transactionType = com.example.account.type.TransactionType.USE " +
+            "then -t.amount else t.amount end), 0L), " +
+            "max(t.accountSeq), max(t.transactedAt)) " +
+            "from Transaction t " +
+            "where t.account.id = :accountId " +
+            "and t.accountSeq > :afterSeq and t.accountSeq <= :untilSeq")
+    BalanceTail sumBalanceTail(@Param("accountId") Long accountId,
+                               @Param("afterSeq") Long afterSeq,
+                               @Param("untilSeq") Long untilSeq);
+
+    // 시점 잔액 : 체크포인트(afterSeq) 뒤의 거래 중 until 시각까지의 거래들로 잔액 변화량을 합산
+    @Query("select new com.example.account.dto.BalanceTail(count(t), " +
+            "coalesce(sum(case when t.transactionType = com.example.account.type.TransactionType.USE " +
+            "then -t.amount else t.amount end), 0L), " +
+            "max(t.accountSeq), max(t.transactedAt)) " +
+            "from Transaction t " +
+            "where t.account.id = :accountId " +
+            "and t.accountSeq > :afterSeq and t.transactedAt <= :until")
+    BalanceTail sumBalanceTailUntil(@Param("accountId") Long accountId,
+                                    @Param("afterSeq") Long afterSeq,
+                                    @Param("until") LocalDateTime until);
 }
@@ -0,0 +1,200 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+@Slf4j
+@Component
+public class AccountCommandQueue { // 계좌별 단일 작성자(single writer) 대기열 -> AccountQueueAspect 에서 사용됨
+    // 락을 두고 경쟁하다 1초 만에 실패하는 대신, 같은 계좌의 요청은 mailbox 에 줄을 세우고
+    // 계좌마다 하나의 가상 스레드 워커가 들어온 순서대로 하나씩 처리한다
+    // - mailbox 크기는 capacity 로 제한 (넘치면 ACCOUNT_QUEUE_FULL)
+    // - idle-millis 동안 요청이 없으면 워커가 종료되고 mailbox 도 map 에서 제거된다
+    // - mailbox 는 노드(JVM)마다 따로 있으므로, 워커는 쌓여있는 요청을 처리하는 동안 계좌 락(LockStrategy)을 잡는다
+    //   -> 다른 노드의 워커 / 락을 거는 엔드포인트와도 직렬화되고, 락은 요청마다가 아니라 한 번에 처리하는 묶음마다 한 번 잡는다
+
+    // 워커가 잡는 계좌 락 (대기 / lease 는 @AccountLock 기본값과 같음)
+    static final LockPolicy LOCK = LockPolicy.of("AccountCommandQueue");
+
+    @FunctionalInterface
+    public interface Command<T> {
+        T execute() throws Throwable;
+    }
+
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final LockStrategy lockStrategy;
+    private final int capacity;
+    private final long idleMillis;
+    private final int lockBatchSize;
+
+    public AccountCommandQueue(
+            LockStrategy lockStrategy,
+            @Value("${account.queue.capacity:1000}") int capacity,
+            @Value("${account.queue.idle-millis:5000}") long idleMillis,
+            @Value("${account.queue.lock-batch-size:100}") int lockBatchSize) {
+        this.lockStrategy = lockStrategy;
+        this.capacity = capacity;
+        this.idleMillis = idleMillis;
+        this.lockBatchSize = Math.max(1, lockBatchSize);
+    }
+
+    // 계좌의 mailbox 에 명령을 넣고, 워커가 처리할 때까지 기다렸다가 결과를 돌려준다
+    // timeoutMillis 안에 차례가 오지 않으면 명령을 실행하지 않고 ACCOUNT_TRANSACTION_LOCK (락 대기시간이 지난 것과 같은 응답)
+    // 이미 실행이 시작된 명령은 되돌릴 수 없으므로 끝날 때까지 기다려서 결과를 돌려준다
+    public <T> T execute(String accountNumber, long timeoutMillis, Command<T> command) throws Throwable {
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<T> future = submit(accountNumber, () -> {
+            if (!started.compareAndSet(false, true)) {
+                return null; // 기다리다 포기한 요청 -> 실행하지 않고 넘어간다
+            }
+            return command.execute();
+        });
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (started.compareAndSet(false, true)) {
+                log.error("Account queue wait timeout : {}", accountNumber);
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+            return await(future);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Throwable {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(String accountNumber, Command<T> command) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Task task = new Task(() -> {
+            try {
+                future.complete(command.execute());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, future::completeExceptionally);
+
+        while (true) {
+            Mailbox mailbox = mailboxes.computeIfAbsent(accountNumber, Mailbox::new);
+            switch (mailbox.offer(task)) {
+                case ACCEPTED:
+                    return future;
+                case FULL:
+                    log.error("Account queue is full : {}", accountNumber);
+                    throw new AccountException(ErrorCode.ACCOUNT_QUEUE_FULL);
+                case RETIRED:
+                    // 방금 종료된 mailbox -> 새 mailbox 를 만들어서 다시 시도
+                    break;
+            }
+        }
+    }
+
+    int activeMailboxCount() {
+        return mailboxes.size();
+    }
+
+    private enum Offer {
+        ACCEPTED, FULL, RETIRED
+    }
+
+    // fail : 계좌 락을 잡지 못해서 실행하지 못한 경우
+    private record Task(Runnable run, Consumer<Throwable> fail) {
+    }
+
+    private final class Mailbox {
+        private final String accountNumber;
+        private final BlockingQueue<Task> commands = new ArrayBlockingQueue<>(capacity);
+        // 아래 두 값은 this 로 동기화
+        private boolean running;
+        private boolean retired;
+
+        private Mailbox(String accountNumber) {
+            this.accountNumber = accountNumber;
+        }
+
+        private synchronized Offer offer(Task task) {
+            if (retired) {
+                return Offer.RETIRED;
+            }
+            if (!commands.offer(task)) {
+                return Offer.FULL;
+            }
+            if (!running) {
+                running = true;
+                Thread.ofVirtual()
+                        .name("account-queue-" + accountNumber)
+                        .start(this::drain);
+            }
+            return Offer.ACCEPTED;
+        }
+
+        private void drain() {
+            while (true) {
+                Task task;
+                try {
+                    task = commands.poll(idleMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    // 인터럽트되면 idle 과 똑같이 취급 (남은 요청이 있으면 계속 처리)
+                    task = null;
+                }
+
+                if (task == null) {
+                    synchronized (this) {
+                        // 기다리는 동안 들어온 요청이 없을 때만 종료 (offer 와 같은 모니터로 경쟁 방지)
+                        if (commands.isEmpty()) {
+                            retired = true;
+                            running = false;
+                            mailboxes.remove(accountNumber, this);
+                            return;
+                        }
+                    }
+                    continue;
+                }
+
+                runLocked(task);
+            }
+        }
+
+        // 계좌 락을 한 번 잡고, 그 사이에 쌓여있는 요청을 lockBatchSize 개까지 / lease 의 절반이 지나기 전까지 처리한다
+        private void runLocked(Task first) {
+            try {
+                lockStrategy.lock(accountNumber, LOCK);
+            } catch (RuntimeException e) {
+                // 락을 못 잡은 요청만 실패시키고, 다음 요청은 다시 락을 잡아본다
+                first.fail().accept(e);
+                return;
+            }
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LOCK.getLeaseMillis() / 2);
+                Task task = first;
+                for (int executed = 1; ; executed++) {
+                    task.run().run();
+                    if (executed == lockBatchSize || System.nanoTime() - deadline >= 0) {
+                        return;
+                    }
+                    task = commands.poll();
+                    if (task == null) {
+                        return;
+                    }
+                }
+            } finally {
+                lockStrategy.unlock(accountNumber, LOCK);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.account.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class AccountLockContext { // 현재 스레드가 잡고 있는 계좌 락의 fencing token (또는 DB 락 사용 여부)을 들고 다닌다
+    // 락을 잡는 곳(LockService)과 잔액을 쓰는 곳(TransactionService)이 멀리 떨어져 있어서
+    // 메서드 파라미터 대신 ThreadLocal 로 전달한다 (락은 잡은 스레드에서만 풀 수 있으므로 같은 스레드가 보장됨)
+
+    // Redis 대신 DB row 락(PESSIMISTIC_WRITE)으로 계좌를 잠가야 하는 경우
+    private static final long DATABASE_LOCK = -1L;
+
+    private static final ThreadLocal<Map<String, Long>> FENCING_TOKENS =
+            ThreadLocal.withInitial(HashMap::new);
+
+    private AccountLockContext() {
+    }
+
+    public static void setFencingToken(String accountNumber, long token) {
+        FENCING_TOKENS.get().put(accountNumber, token);
+    }
+
+    // Redis 가 불안정해서 분산 락을 잡지 못한 경우 -> 잔액을 쓰는 트랜잭션에서 DB row 락을 잡는다
+    public static void useDatabaseLock(String accountNumber) {
+        FENCING_TOKENS.get().put(accountNumber, DATABASE_LOCK);
+    }
+
+    public static boolean isDatabaseLock(String accountNumber) {
+        Long token = FENCING_TOKENS.get().get(accountNumber);
+        return token != null && token == DATABASE_LOCK;
+    }
+
+    // 락 없이 호출된 경우(다른 transaction.mode, local 락, DB 락 등) null
+    public static Long getFencingToken(String accountNumber) {
+        Long token = FENCING_TOKENS.get().get(accountNumber);
+        return token == null || token == DATABASE_LOCK ? null : token;
+    }
+
+    public static void clear(String accountNumber) {
+        Map<String, Long> tokens = FENCING_TOKENS.get();
+        tokens.remove(accountNumber);
+        if (tokens.isEmpty()) {
+            FENCING_TOKENS.remove();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.account.service;
+
+import com.example.account.domain.AccountNumberSequence;
+import com.example.account.repository.AccountNumberSequenceRepository;
+import com.example.account.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Service
+public class AccountNumberAllocator { // 계좌번호 발급기
+    // DB 의 AccountNumberSequence row 에서 번호 구간(blockSize 개)을 빌려와서 메모리에서 하나씩 나눠준다
+    // - 구간을 빌릴 때만 DB 에 접근하므로, 계좌 생성마다 "가장 최근 계좌" 를 조회하지 않아도 된다
+    // - 구간은 row 락을 잡고 빌려가므로 여러 노드가 동시에 발급해도 번호가 겹치지 않는다
+    // - 빌려간 구간은 바로 커밋되므로, 재시작하면 다 쓰지 못한 번호는 건너뛰고 다시 사용하지 않는다
+    // - 구간을 빌리는 스레드는 DB 커넥션을 새로 잡으므로, 트랜잭션(커넥션)을 잡기 전에 호출해야 한다
+    //   (커넥션을 쥔 요청들이 새 구간을 기다리면 빌리는 스레드가 커넥션을 못 받아 풀이 고갈된다)
+
+    static final String SEQUENCE_NAME = "account_number";
+    private static final long FIRST_ACCOUNT_NUMBER = 1000000000L;
+
+    private final AccountNumberSequenceRepository accountNumberSequenceRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate leaseTransaction;
+    private final int blockSize;
+
+    private volatile Block block = new Block(0L, 0L);
+    // synchronized 로 DB 를 기다리면 가상 스레드가 carrier 스레드에 고정(pinning)되므로 ReentrantLock 을 쓴다
+    private final ReentrantLock leaseLock = new ReentrantLock();
+
+    public AccountNumberAllocator(
+            AccountNumberSequenceRepository accountNumberSequenceRepository,
+            AccountRepository accountRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${account.number.block-size:100}") int blockSize) {
+        this.accountNumberSequenceRepository = accountNumberSequenceRepository;
+        this.accountRepository = accountRepository;
+        // 계좌 생성 트랜잭션이 롤백되더라도 빌려간 구간은 남아있어야 하므로 별도 트랜잭션으로 처리
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    public String nextAccountNumber() {
+        while (true) {
+            Block current = block;
+            long accountNumber = current.next.getAndIncrement();
+            if (accountNumber < current.end) {
+                return String.valueOf(accountNumber);
+            }
+
+            // 구간을 다 썼으면 한 스레드만 새 구간을 빌려오고, 나머지는 기다렸다가 새 구간에서 받아간다
+            leaseLock.lock();
+            try {
+                if (block == current) {
+                    block = lease();
+                }
+            } finally {
+                leaseLock.unlock();
+            }
+        }
+    }
+
+    private Block lease() {
+        try {
+            return leaseTransaction.execute(status -> leaseBlock());
+        } catch (DataIntegrityViolationException e) {
+            // 다른 노드가 먼저 sequence row 를 만든 경우 -> 만들어진 row 에서 다시 빌린다
+            log.info("Account number sequence already created, retry lease");
+            return leaseTransaction.execute(status -> leaseBlock());
+        }
+    }
+
+    private Block leaseBlock() {
+        AccountNumberSequence sequence =
+                accountNumberSequenceRepository.findByNameForUpdate(SEQUENCE_NAME)
+                        .orElseGet(this::createSequence);
+
+        long start = sequence.getNextValue();
+        sequence.setNextValue(start + blockSize);
+        log.debug("Leased account numbers [{}, {})", start, start + blockSize);
+
+        return new Block(start, start + blockSize);
+    }
+
+    // 처음 발급할 때는 이미 있는 계좌번호 다음부터 시작한다
+    private AccountNumberSequence createSequence() {
+        long nextValue = accountRepository.findMaxAccountNumber()
+                .map(accountNumber -> Long.parseLong(accountNumber) + 1)
+                .orElse(FIRST_ACCOUNT_NUMBER);
+
+        return accountNumberSequenceRepository.saveAndFlush(
+                AccountNumberSequence.builder()
+                        .name(SEQUENCE_NAME)
+                        .nextValue(nextValue)
+                        .build());
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.dto.AccountRef;
+import com.example.account.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+public class AccountNumberCache { // 계좌번호 -> 계좌 id (+ 소유주 id, 등록일시) 캐시
+    // 잔액 사용 / 취소 / 실패 내역 저장마다 계좌번호로 계좌를 조회하고 있었다
+    // 계좌번호와 id, 소유주, 등록일시는 계좌가 만들어진 뒤 바뀌지 않으므로 TTL 없이 보관하고
+    // 계좌 자체는 id(primary key)로 읽는다 -> 같은 트랜잭션 안에서는 영속성 컨텍스트에서 바로 꺼내진다
+    // - 크기 제한(max-size)을 넘으면 가장 오래 안 쓴 계좌부터 내보낸다 (LRU)
+    // - 없는 계좌는 기억하지 않는다 (그 번호로 곧 계좌가 만들어질 수 있음)
+    // - 해지(deleteAccount)되면 invalidate 로 지운다
+
+    static final String METRIC = "account.account-cache";
+
+    private final AccountRepository accountRepository;
+    // access order LinkedHashMap = LRU, this 로 동기화
+    private final LinkedHashMap<String, AccountRef> cache;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+
+    public AccountNumberCache(
+            AccountRepository accountRepository,
+            MeterRegistry meterRegistry,
+            @Value("${account.account-cache.max-size:100000}") int maxSize) {
+        this.accountRepository = accountRepository;
+
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+        this.evictionCounter = Counter.builder(METRIC + ".evictions")
+                .description("계좌 캐시에서 크기 제한으로 내보낸 수")
+                .register(meterRegistry);
+
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AccountRef> eldest) {
+                if (size() > maxSize) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder(METRIC + ".size", this, AccountNumberCache::size)
+                .description("캐시에 있는 계좌 수")
+                .register(meterRegistry);
+    }
+
+    public Optional<AccountRef> find(String accountNumber) {
+        synchronized (this) {
+            AccountRef ref = cache.get(accountNumber);
+            if (ref != null) {
+                hitCounter.increment();
+                return Optional.of(ref);
+            }
+        }
+
+        missCounter.increment();
+        Optional<AccountRef> loaded = accountRepository.findRefByAccountNumber(accountNumber);
+        loaded.ifPresent(ref -> {
+            synchronized (this) {
+                cache.put(accountNumber, ref);
+            }
+        });
+        return loaded;
+    }
+
+    // AccountRepository.findByAccountNumber 와 같은 모양 (없는 계좌면 Optional.empty())
+    public Optional<Account> findAccount(String accountNumber) {
+        Optional<AccountRef> ref = find(accountNumber);
+        if (ref.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<Account> account = accountRepository.findById(ref.get().getId());
+        if (account.isEmpty()) {
+            invalidate(accountNumber);
+        }
+        return account;
+    }
+
+    public synchronized void invalidate(String accountNumber) {
+        cache.remove(accountNumber);
+    }
+
+    // 다른 노드의 무효화 메시지를 놓쳤을 수 있을 때 (NearCacheInvalidator)
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    synchronized int size() {
+        return cache.size();
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC + ".requests")
+                .description("계좌 캐시 조회 결과")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.aop.AccountLockIdInterface;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "account.transaction.mode", havingValue = "queue")
+// queue 모드일 때 @AccountLock(queue = true) 인 엔드포인트는 락 대신 계좌별 대기열에서 순서대로 실행된다
+// (queue = false 인 엔드포인트는 그대로 LockAopAspect 가 계좌 락을 건다)
+// 워커가 계좌 락을 잡고 실행하므로 여러 노드가 같은 계좌를 동시에 바꾸지 않는다 (AccountCommandQueue)
+public class AccountQueueAspect {
+
+    private final AccountCommandQueue accountCommandQueue;
+
+    @Around("@annotation(accountLock) && args(request)")
+    public Object aroundMethod(
+            ProceedingJoinPoint pjp,
+            AccountLock accountLock,
+            AccountLockIdInterface request) throws Throwable {
+
+        if (!accountLock.queue()) {
+            return pjp.proceed();
+        }
+
+        // 실제 메서드는 해당 계좌의 워커 스레드에서 실행되고, 요청 스레드는 결과를 기다린다
+        // 락 대기시간(tryLockTime) 안에 차례가 오지 않으면 락을 못 잡은 것과 같은 에러
+        return accountCommandQueue.execute(request.getAccountNumber(), accountLock.tryLockTime(), pjp::proceed);
+    }
+}
@@ -14,11 +14,14 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 import static com.example.account.type.AccountStatus.*;
 import static com.example.account.type.ErrorCode.*;
@@ -28,27 +31,45 @@ import static com.example.account.type.ErrorCode.*;
 // AccountRepository를 사용해서 데이터를 저장하는 클래스
 public class AccountService {
 
+    private static final int MAX_ACCOUNT_COUNT_PER_USER = 10;
+
     //    @Autowired @Inject : 예전에는 이 어노테이션을 사용했었음
     private final AccountRepository accountRepository;
-    private final AccountUserRepository accountUserRepository;
+    private final AccountUserCache accountUserCache; // 사용자 조회는 캐시를 거친다 (AccountUserRepository 앞단)
+    private final AccountUserRepository accountUserRepository; // 사용자별 계좌 수 증감
+    private final AccountNumberCache accountNumberCache;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final TransactionTemplate transactionTemplate; // 계좌 생성은 번호를 받은 뒤에 트랜잭션을 시작한다
+
+    // account.balance-checkpoint.enabled=true 일 때만 주입 -> 초기 잔액을 첫 체크포인트로 남긴다
+    @Autowired(required = false)
+    private BalanceCheckpointService balanceCheckpointService;
+
+    // account.near-cache.enabled=true 일 때만 주입 -> 해지한 계좌를 다른 노드의 캐시에서도 지운다
+    @Autowired(required = false)
+    private NearCacheInvalidator nearCacheInvalidator;
 
     /**
      * 1. 사용자가 있는지 조회(확인)
      * 2. 계좌의 번호 생성
      * 3. 계좌 저장, 저장된 정보를 넘김
      */
-    @Transactional
     public AccountDto createAccount(Long userId, Long initialBalance) {
 
+        // 발급기가 미리 빌려둔 번호 구간에서 하나를 받아온다 (동시에 생성해도 겹치지 않음)
+        // 구간을 새로 빌릴 때는 DB 커넥션이 하나 더 필요하므로, 커넥션을 잡는 트랜잭션보다 먼저 받는다
+        // (생성에 실패하면 받은 번호는 건너뛰고 다시 쓰지 않는다)
+        String newAccountNumber = accountNumberAllocator.nextAccountNumber();
+
+        return transactionTemplate.execute(status -> createAccount(userId, initialBalance, newAccountNumber));
+    }
+
+    private AccountDto createAccount(Long userId, Long initialBalance, String newAccountNumber) {
+
         AccountUser accountUser = getAccountUser(userId);
 
         validateCreateAccount(accountUser);
 
-        // 가장 최근 계좌번호를 가져와서 그것보다 +1 인 숫자를 넣어줄 것임
-        String newAccountNumber = accountRepository.findFirstByOrderByIdDesc()
-                .map(account -> (Integer.parseInt(account.getAccountNumber())) + 1 + "")
-                .orElse("1000000000");
-
         Account account = accountRepository.save(
                 Account.builder()
                         .accountUser(accountUser)
@@ -59,14 +80,26 @@ public class AccountService {
                         .build()
         );
 
+        if (balanceCheckpointService != null) {
+            balanceCheckpointService.createInitialCheckpoint(account);
+        }
+
         return AccountDto.fromEntity(account);
         // 사실 account 같은 일회성 변수는
         // 생성하지 않고 걍 fromEntity() 안에 넣어주는 것을 선호하심 (강사님 선호)
     }
 
     // Exception 발생시키는 부분은 계속 더 추가될 수 있으니 따로 메서드로 뺀다!
+    // 계좌 수를 세는 대신 사용자의 계좌 수를 조건부로 1 늘린다 (계좌 저장과 같은 트랜잭션이라 실패하면 함께 롤백)
     private void validateCreateAccount(AccountUser accountUser) {
-        if (accountRepository.countByAccountUser(accountUser) == 10) {
+        int updated;
+        try {
+            updated = accountUserRepository.increaseAccountCount(accountUser.getId(), MAX_ACCOUNT_COUNT_PER_USER);
+        } catch (PessimisticLockingFailureException e) {
+            // 같은 사용자의 계좌 생성이 몰려서 사용자 row 락을 기다리다 시간이 지난 경우
+            throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+        }
+        if (updated == 0) {
             throw new AccountException(USER_MAX_COUNT_PER_USER_10);
         }
     }
@@ -76,7 +109,8 @@ public class AccountService {
         if (id < 0) {
             throw new RuntimeException("Minus");
         }
-        return accountRepository.findById(id).get();
+        // 응답으로 엔티티를 그대로 직렬화하므로 지연 로딩인 소유주도 같이 읽어둔다
+        return accountRepository.findWithAccountUserById(id).get();
     }
 
 /*
@@ -92,7 +126,7 @@ public class AccountService {
 
         AccountUser accountUser = getAccountUser(userId);
         Account account
-                = accountRepository.findByAccountNumber(accountNumber)
+                = accountNumberCache.findAccount(accountNumber)
                 .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
 
         validateDeleteAccount(accountUser, account);
@@ -102,12 +136,19 @@ public class AccountService {
 
         accountRepository.save(account);
         // 필요 없는 코드이지만 Test에서 save(captor.capture())을 사용하기 위해서 씀
+        accountUserRepository.decreaseAccountCount(accountUser.getId());
+        if (nearCacheInvalidator != null) {
+            nearCacheInvalidator.invalidateAccount(accountNumber);
+        } else {
+            accountNumberCache.invalidate(accountNumber);
+        }
 
         return AccountDto.fromEntity(account);
     }
 
     private void validateDeleteAccount(AccountUser accountUser, Account account) {
-        if (accountUser.getId() != account.getAccountUser().getId()) {
+        // 캐시에서 받은 사용자는 계좌의 소유주와 다른 객체라서 Long 끼리 값으로 비교해야 한다
+        if (!Objects.equals(accountUser.getId(), account.getAccountUser().getId())) {
             throw new AccountException(USER_ACCOUNT_UN_MATCH);
         }
         if (account.getAccountStatus() == UNREGISTERED) {
@@ -118,28 +159,18 @@ public class AccountService {
         }
     }
 
-    @Transactional // 이게 없으면 레이지로딩이 안되어서 제대로 로드가 안됨
+    @Transactional
     public List<AccountDto> getAccountByUserId(Long userId) {
         AccountUser accountUser = getAccountUser(userId);
 
-        List<Account> accounts = accountRepository.findByAccountUser(accountUser);
-
-        // 📍 stream을 왜 생성하는건지 모르겠다
-        return accounts.stream()
-                .map(AccountDto::fromEntity)
-                // 위 코드 대신 .map(account -> AccountDto.fromEntity(account)) 도 가능
-                .collect(Collectors.toList());
-        /**
-         **Collectors.toList()**는 마치 "상자에 물건을 담아라"라는 명령이 적혀 있는 설명서와 같아요.
-         **collect()**는 그 설명서를 읽고 실제로 물건을 담는 작업을 수행하는 단계입니다.
-         Collectors.toList()가 리스트에 담으라는 규칙을 제공하고, collect() 메서드는 이 규칙에 맞춰 스트림의 요소들을 리스트로 모으는 거예요.
-         그래서, Collectors.toList() 자체는 실제로 데이터를 모으는 일을 하지 않아요. 대신 리스트로 모으는 규칙을 정의하고, collect()가 이 규칙을 사용해 결과를 리스트로 만드는 거죠.*/
+        // 엔티티를 읽지 않고 필요한 컬럼만 바로 AccountDto 로 받는다 (쿼리 1번, 영속성 컨텍스트에 남는 것 없음)
+        return accountRepository.findDtosByAccountUserId(accountUser.getId());
     }
 
     // 🛠️리팩토링 1 : 반복되는 AccountUser 객체 생성 코드를 메서드로 만들어버리기
     private AccountUser getAccountUser(Long userId) {
         AccountUser accountUser
-                = accountUserRepository.findById(userId)
+                = accountUserCache.findById(userId)
                 .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
         return accountUser;
     }
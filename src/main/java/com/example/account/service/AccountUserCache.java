@@ -0,0 +1,148 @@
+package com.example.account.service;
+
+import com.example.account.domain.AccountUser;
+import com.example.account.repository.AccountUserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class AccountUserCache { // AccountUserRepository.findById 앞에 두는 read-through 캐시
+    // 사용자 정보는 거의 바뀌지 않는데 잔액 사용 / 계좌 생성마다 SELECT 를 하고 있었다
+    // - 크기 제한(max-size)을 넘으면 가장 오래 안 쓴 사용자부터 내보낸다 (LRU)
+    // - ttl-seconds 가 지나면 다시 DB 에서 읽는다
+    // - 없는 사용자(USER_NOT_FOUND)도 negative-ttl-seconds 동안 기억해서 같은 잘못된 요청이 DB 까지 가지 않게 한다
+    // 캐시에서 돌려주는 AccountUser 는 영속성 컨텍스트에 속하지 않은(detached) 복사본이다
+
+    static final String METRIC = "account.user-cache";
+
+    private final AccountUserRepository accountUserRepository;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    // access order LinkedHashMap = LRU, this 로 동기화
+    private final LinkedHashMap<Long, Entry> cache;
+
+    private final Counter hitCounter;
+    private final Counter negativeHitCounter;
+    private final Counter missCounter;
+    private final Counter sizeEvictionCounter;
+    private final Counter expiredEvictionCounter;
+
+    public AccountUserCache(
+            AccountUserRepository accountUserRepository,
+            MeterRegistry meterRegistry,
+            @Value("${account.user-cache.max-size:10000}") int maxSize,
+            @Value("${account.user-cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${account.user-cache.negative-ttl-seconds:10}") long negativeTtlSeconds) {
+        this.accountUserRepository = accountUserRepository;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.negativeHitCounter = requestCounter(meterRegistry, "negative-hit");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+        this.sizeEvictionCounter = evictionCounter(meterRegistry, "size");
+        this.expiredEvictionCounter = evictionCounter(meterRegistry, "expired");
+
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > maxSize) {
+                    sizeEvictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder(METRIC + ".size", this, AccountUserCache::size)
+                .description("캐시에 있는 사용자 수 (없는 사용자 포함)")
+                .register(meterRegistry);
+    }
+
+    // AccountUserRepository.findById 와 같은 모양 (없는 사용자면 Optional.empty())
+    public Optional<AccountUser> findById(Long userId) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry entry = cache.get(userId);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    if (entry.user == null) {
+                        negativeHitCounter.increment();
+                        return Optional.empty();
+                    }
+                    hitCounter.increment();
+                    return Optional.of(copy(entry.user));
+                }
+                cache.remove(userId);
+                expiredEvictionCounter.increment();
+            }
+        }
+
+        // DB 조회는 락 밖에서 (같은 사용자를 동시에 읽으면 두 번 조회될 수 있지만 결과는 같다)
+        missCounter.increment();
+        AccountUser user = accountUserRepository.findById(userId)
+                .map(AccountUserCache::copy)
+                .orElse(null);
+        synchronized (this) {
+            cache.put(userId, new Entry(user, now + (user == null ? negativeTtlNanos : ttlNanos)));
+        }
+        // 처음 읽은 경우에도 캐시에서 꺼낸 경우와 같이 복사본을 돌려준다
+        return Optional.ofNullable(user).map(AccountUserCache::copy);
+    }
+
+    // 사용자 정보가 바뀌거나 새로 만들어진 경우 호출
+    public synchronized void invalidate(Long userId) {
+        cache.remove(userId);
+    }
+
+    // 다른 노드의 무효화 메시지를 놓쳤을 수 있을 때 (NearCacheInvalidator)
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    synchronized int size() {
+        return cache.size();
+    }
+
+    // accountCount 는 캐시에 넣은 시점의 값이다 (계좌 수 제한은 AccountUserRepository 의 조건부 UPDATE 로만 확인)
+    private static AccountUser copy(AccountUser user) {
+        return AccountUser.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .accountCount(user.getAccountCount())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC + ".requests")
+                .description("사용자 캐시 조회 결과")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter evictionCounter(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder(METRIC + ".evictions")
+                .description("사용자 캐시에서 내보낸 수")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    private static final class Entry {
+        private final AccountUser user; // null 이면 없는 사용자
+        private final long expiresAt;   // System.nanoTime 기준
+
+        private Entry(AccountUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
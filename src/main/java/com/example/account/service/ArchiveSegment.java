@@ -0,0 +1,275 @@
+package com.example.account.service;
+
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.Getter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+final class ArchiveSegment implements Closeable { // 오래된 거래를 담는 읽기 전용 압축 파일 1개
+    /*
+        | header : magic(4) version(1) |
+        | block 0 | block 1 | ... |           거래 아이디 순으로 정렬해서 block-size 건씩
+        | sparse index : (block 의 첫 거래 아이디, block 위치) * block 수, 마지막 거래 아이디 |
+        | footer : index 위치(8) block 수(4) 거래 수(4) magic(4) |
+
+        block = | 거래 수(4) | 압축 전 크기(4) | 압축 후 크기(4) | crc32c(4) | deflate 로 압축한 컬럼들 |
+        - 컬럼 단위(거래 아이디들, 계좌 id 들, 금액들 ...)로 모아서 쓰기 때문에 같은 종류의 값끼리 붙어있어 압축이 잘 된다
+        - 거래 아이디 하나를 찾을 때는 sparse index(메모리)에서 block 을 고르고 그 block 하나만 읽어서 푼다
+    */
+
+    private static final int MAGIC = 0x54584152; // "TXAR"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private static final int BLOCK_HEADER_SIZE = 16;
+    private static final int FOOTER_SIZE = 20;
+
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+    private static final TransactionResultType[] RESULT_TYPES = TransactionResultType.values();
+
+    @Getter
+    private final Path path;
+    private final FileChannel channel;
+    private final String[] firstIds;
+    private final long[] offsets;
+    private final String lastId;
+    @Getter
+    private final int rowCount;
+
+    private ArchiveSegment(Path path, FileChannel channel, String[] firstIds, long[] offsets,
+                           String lastId, int rowCount) {
+        this.path = path;
+        this.channel = channel;
+        this.firstIds = firstIds;
+        this.offsets = offsets;
+        this.lastId = lastId;
+        this.rowCount = rowCount;
+    }
+
+    // 임시 파일에 모두 쓰고 fsync 한 뒤 이름을 바꾼다 -> 반쯤 써진 segment 는 보이지 않는다
+    static ArchiveSegment write(Path path, List<ArchivedTransaction> transactions, int blockSize)
+            throws IOException {
+        List<ArchivedTransaction> sorted = new ArrayList<>(transactions);
+        sorted.sort(Comparator.comparing(ArchivedTransaction::getTransactionId));
+        int blockCount = (sorted.size() + blockSize - 1) / blockSize;
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            DataOutputStream data = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(out), 64 * 1024));
+            data.writeInt(MAGIC);
+            data.writeByte(VERSION);
+
+            String[] firstIds = new String[blockCount];
+            long[] offsets = new long[blockCount];
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                for (int block = 0; block < blockCount; block++) {
+                    List<ArchivedTransaction> rows = sorted.subList(
+                            block * blockSize, Math.min(sorted.size(), (block + 1) * blockSize));
+                    firstIds[block] = rows.get(0).getTransactionId();
+                    offsets[block] = data.size();
+                    writeBlock(data, rows, deflater);
+                }
+            } finally {
+                deflater.end();
+            }
+
+            long indexOffset = data.size();
+            for (int block = 0; block < blockCount; block++) {
+                data.writeUTF(firstIds[block]);
+                data.writeLong(offsets[block]);
+            }
+            data.writeUTF(sorted.get(sorted.size() - 1).getTransactionId());
+            data.writeLong(indexOffset);
+            data.writeInt(blockCount);
+            data.writeInt(sorted.size());
+            data.writeInt(MAGIC);
+            data.flush();
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    private static void writeBlock(DataOutputStream data, List<ArchivedTransaction> rows, Deflater deflater)
+            throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(rows.size() * 80);
+        DataOutputStream columns = new DataOutputStream(raw);
+        for (ArchivedTransaction row : rows) columns.writeUTF(row.getTransactionId());
+        for (ArchivedTransaction row : rows) columns.writeLong(row.getAccountId());
+        for (ArchivedTransaction row : rows) columns.writeUTF(row.getAccountNumber());
+        for (ArchivedTransaction row : rows) columns.writeByte(row.getTransactionType().ordinal());
+        for (ArchivedTransaction row : rows) columns.writeByte(row.getTransactionResultType().ordinal());
+        for (ArchivedTransaction row : rows) columns.writeLong(row.getAmount());
+        for (ArchivedTransaction row : rows) columns.writeLong(row.getBalanceSnapshot());
+        for (ArchivedTransaction row : rows) columns.writeLong(row.getTransactedAt().toEpochSecond(ZoneOffset.UTC));
+        for (ArchivedTransaction row : rows) columns.writeInt(row.getTransactedAt().getNano());
+        byte[] input = raw.toByteArray();
+
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 2);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        byte[] output = compressed.toByteArray();
+
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(output);
+        data.writeInt(rows.size());
+        data.writeInt(input.length);
+        data.writeInt(output.length);
+        data.writeInt((int) crc32c.getValue());
+        data.write(output);
+    }
+
+    // footer 와 sparse index 만 읽어서 메모리에 올린다 (block 은 찾을 때 읽음)
+    static ArchiveSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            ByteBuffer footer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            int blockCount = footer.getInt();
+            int rowCount = footer.getInt();
+            if (header.getInt() != MAGIC || header.get() != VERSION || footer.getInt() != MAGIC) {
+                throw new IOException("Not an archive segment : " + path);
+            }
+
+            ByteBuffer index = read(channel, indexOffset, (int) (size - FOOTER_SIZE - indexOffset));
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    index.array(), 0, index.remaining()));
+            String[] firstIds = new String[blockCount];
+            long[] offsets = new long[blockCount];
+            for (int block = 0; block < blockCount; block++) {
+                firstIds[block] = in.readUTF();
+                offsets[block] = in.readLong();
+            }
+            String lastId = in.readUTF();
+            return new ArchiveSegment(path, channel, firstIds, offsets, lastId, rowCount);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // 없으면 null
+    ArchivedTransaction find(String transactionId) throws IOException {
+        if (firstIds.length == 0
+                || transactionId.compareTo(firstIds[0]) < 0
+                || transactionId.compareTo(lastId) > 0) {
+            return null;
+        }
+        int block = Arrays.binarySearch(firstIds, transactionId);
+        if (block < 0) {
+            block = -block - 2; // 찾는 아이디보다 작은 첫 거래 아이디 중 가장 큰 block
+        }
+        return findInBlock(offsets[block], transactionId);
+    }
+
+    private ArchivedTransaction findInBlock(long offset, String transactionId) throws IOException {
+        ByteBuffer header = read(channel, offset, BLOCK_HEADER_SIZE);
+        int rows = header.getInt();
+        int rawLength = header.getInt();
+        int compressedLength = header.getInt();
+        int crc = header.getInt();
+
+        ByteBuffer compressed = read(channel, offset + BLOCK_HEADER_SIZE, compressedLength);
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(compressed.array(), 0, compressedLength);
+        if ((int) crc32c.getValue() != crc) {
+            throw new IOException("Corrupted archive block at " + offset + " : " + path);
+        }
+
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array(), 0, compressedLength);
+            inflater.inflate(raw);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted archive block at " + offset + " : " + path, e);
+        } finally {
+            inflater.end();
+        }
+
+        // 컬럼 순서대로 읽으면서 필요한 위치(row)의 값만 꺼낸다
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        String[] ids = new String[rows];
+        for (int i = 0; i < rows; i++) ids[i] = in.readUTF();
+        int row = Arrays.binarySearch(ids, transactionId);
+        if (row < 0) {
+            return null;
+        }
+
+        long accountId = column(in, rows, row, Long.BYTES).readLong();
+        String accountNumber = null;
+        for (int i = 0; i < rows; i++) {
+            String value = in.readUTF();
+            if (i == row) accountNumber = value;
+        }
+        TransactionType transactionType = TRANSACTION_TYPES[column(in, rows, row, 1).readByte()];
+        TransactionResultType resultType = RESULT_TYPES[column(in, rows, row, 1).readByte()];
+        long amount = column(in, rows, row, Long.BYTES).readLong();
+        long balanceSnapshot = column(in, rows, row, Long.BYTES).readLong();
+        long epochSecond = column(in, rows, row, Long.BYTES).readLong();
+        int nano = column(in, rows, row, Integer.BYTES).readInt();
+
+        return ArchivedTransaction.builder()
+                .transactionId(transactionId)
+                .accountId(accountId)
+                .accountNumber(accountNumber)
+                .transactionType(transactionType)
+                .transactionResultType(resultType)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactedAt(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC))
+                .build();
+    }
+
+    // 고정 크기 컬럼에서 row 번째 값 위치로 이동하고, 읽은 뒤에는 다음 컬럼 시작으로 가도록 나머지를 건너뛴다
+    private static DataInputStream column(DataInputStream in, int rows, int row, int width) throws IOException {
+        in.skipNBytes((long) row * width);
+        byte[] value = in.readNBytes(width);
+        in.skipNBytes((long) (rows - row - 1) * width);
+        return new DataInputStream(new ByteArrayInputStream(value));
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive segment");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+@ConditionalOnExpression("'${account.lock.mode:redis}' == 'redis' and '${account.transaction.mode:lock}' == 'lock'")
+// Redis 락을 쓰는 lock 모드에서만 동작 (다른 모드는 계좌 락 대신 각자의 방식으로 동시성을 제어한다)
+public class AsyncAccountLockExecutor { // 계좌 락을 비동기로 잡은 뒤 작업을 실행하고 락을 푼다
+    // @AccountLock(LockAopAspect) 은 락을 기다리는 동안 Tomcat 스레드를 붙잡고 있지만,
+    // 여기서는 락을 기다리는 동안 어떤 스레드도 사용하지 않고, 락을 잡은 뒤의 DB 작업만 가상 스레드에서 실행한다
+
+    private final LockService lockService;
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // 비동기 락의 주인 id (실제 스레드 id 는 양수이므로 겹치지 않도록 음수를 사용)
+    private final AtomicLong lockIds = new AtomicLong();
+    private final ConcurrentHashMap<String, LockedEndpoint> lockedEndpoints = new ConcurrentHashMap<>();
+
+    public AsyncAccountLockExecutor(LockService lockService, MeterRegistry meterRegistry) {
+        this.lockService = lockService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> CompletableFuture<T> execute(
+            String accountNumber, LockPolicy policy, Supplier<T> work) {
+
+        LockedEndpoint lockedEndpoint = lockedEndpoints.computeIfAbsent(
+                policy.getName(), name -> LockedEndpoint.of(policy, meterRegistry));
+        long lockId = -lockIds.incrementAndGet();
+        long start = System.nanoTime();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        lockService.lockAsync(accountNumber, policy, lockId)
+                .whenComplete((fencingToken, e) -> lockedEndpoint.recordWait(start, e == null))
+                .thenApplyAsync(fencingToken -> {
+                    try {
+                        return runLocked(accountNumber, fencingToken, work);
+                    } finally {
+                        if (fencingToken != LockStrategy.NO_FENCING_TOKEN) {
+                            lockService.unlockAsync(accountNumber, policy, lockId);
+                        }
+                    }
+                }, executor)
+                .whenComplete((value, e) -> {
+                    if (e == null) {
+                        result.complete(value);
+                    } else {
+                        // 컨트롤러의 예외 처리(GlobalException)가 원래 예외를 받을 수 있도록 감싼 예외를 벗겨낸다
+                        result.completeExceptionally(
+                                e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    }
+                });
+        return result;
+    }
+
+    // 동기 락과 같은 방식으로 fencing token (또는 DB 락 사용 여부)을 작업 스레드에 넘겨준다
+    private <T> T runLocked(String accountNumber, long fencingToken, Supplier<T> work) {
+        if (fencingToken == LockStrategy.NO_FENCING_TOKEN) {
+            AccountLockContext.useDatabaseLock(accountNumber);
+        } else {
+            AccountLockContext.setFencingToken(accountNumber, fencingToken);
+        }
+        try {
+            return work.get();
+        } finally {
+            AccountLockContext.clear(accountNumber);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.BalanceCheckpoint;
+import com.example.account.dto.BalanceRebuild;
+import com.example.account.dto.BalanceTail;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.BalanceCheckpointRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "account.balance-checkpoint.enabled", havingValue = "true")
+public class BalanceCheckpointService { // 거래 내역으로 잔액을 다시 계산 (체크포인트 + 그 뒤의 거래)
+    // Account.balance 는 거래마다 바뀌는 값이라 맞는지 확인할 방법이 없었다
+    // 1. 계좌를 만들 때 초기 잔액으로 첫 체크포인트를 남긴다
+    // 2. 계좌별로 성공한 거래가 interval 건 쌓이면 뒤에서(balance-checkpoint-writer) 새 체크포인트를 추가한다
+    //    새 체크포인트 = 이전 체크포인트 + 그 사이 거래들 (Account.balance 는 보지 않음)
+    // 3. 잔액 / 특정 시점의 잔액은 체크포인트 하나 + 그 뒤의 거래(최대 interval 건 정도)만 읽어서 계산한다
+    // 잔액 검증(AMOUNT_EXCEED_BALANCE)은 계좌 락 안에서 현재 잔액이 필요하므로 Account.balance 는 그대로 쓰고,
+    // 여기서 계산한 잔액은 감사 / 복구용으로 Account.balance 와 비교한다
+    // 체크포인트 뒤의 거래는 row id 가 아니라 계좌별 거래 순번(Transaction.accountSeq)으로 찾는다
+    // - row id 는 insert 할 때 정해져서 커밋 순서와 다를 수 있다 (먼저 id 를 받은 거래가 체크포인트 뒤에 커밋되면 빠짐)
+    // - 순번은 잔액과 같은 계좌 row 에서 올라가므로 계좌별 커밋 순서와 같고, 빠짐없이 1씩 늘어난다
+    //   -> 더한 거래 수가 순번 차이보다 작으면 아직 테이블에 없는 거래(ledger 모드)나 archive 로 옮겨진 거래가 있는 것이므로
+    //      체크포인트를 추가하지 않고, 잔액 조회는 틀린 값 대신 실패 응답을 준다
+
+    static final String METRIC = "account.balance-checkpoint";
+
+    private final BalanceCheckpointRepository balanceCheckpointRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int interval;
+
+    // account.archive.enabled=true 일 때만 주입 -> 1년이 지난 거래는 테이블에 없다
+    @Autowired(required = false)
+    private TransactionArchive transactionArchive;
+
+    // 계좌별로 마지막 체크포인트 요청 뒤에 쌓인 거래 수 (재시작하면 0 부터 다시 센다)
+    private final ConcurrentHashMap<Long, Integer> pendingCounts = new ConcurrentHashMap<>();
+    private final BlockingQueue<Long> checkpointQueue = new LinkedBlockingQueue<>();
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final Counter writtenCounter;
+    private final Counter mismatchCounter;
+
+    public BalanceCheckpointService(
+            BalanceCheckpointRepository balanceCheckpointRepository,
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${account.balance-checkpoint.interval:100}") int interval) {
+        this.balanceCheckpointRepository = balanceCheckpointRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.interval = Math.max(1, interval);
+
+        this.writtenCounter = Counter.builder(METRIC + ".written")
+                .description("추가한 잔액 체크포인트 수")
+                .register(meterRegistry);
+        this.mismatchCounter = Counter.builder(METRIC + ".mismatch")
+                .description("다시 계산한 잔액이 계좌 row 의 잔액과 다른 횟수")
+                .register(meterRegistry);
+
+        this.writer = Thread.ofPlatform()
+                .name("balance-checkpoint-writer")
+                .daemon(true)
+                .start(this::writeLoop);
+    }
+
+    // 계좌를 만드는 트랜잭션 안에서 호출
+    public void createInitialCheckpoint(Account account) {
+        balanceCheckpointRepository.save(BalanceCheckpoint.builder()
+                .accountId(account.getId())
+                .balance(account.getBalance())
+                .lastAccountSeq(0L)
+                .checkpointAt(account.getRegisteredAt())
+                .build());
+    }
+
+    // 잔액을 바꾼 거래(S)를 저장할 때마다 호출 -> interval 건이 되면 체크포인트 대기열에 넣는다
+    public void recordTransaction(Long accountId) {
+        Integer count = pendingCounts.merge(accountId, 1, Integer::sum);
+        if (count >= interval) {
+            pendingCounts.remove(accountId);
+            if (queued.add(accountId)) {
+                checkpointQueue.offer(accountId);
+            }
+        }
+    }
+
+    /*
+        정책 : 계좌가 없는 경우, 계좌가 만들어지기 전 시점인 경우
+              체크포인트 뒤의 거래가 테이블에 다 있지 않은 경우 (아직 저장 중, archive 로 옮겨짐)
+        ➡️ 실패 응답
+    */
+    public BalanceRebuild rebuild(String accountNumber, LocalDateTime at) {
+        Long accountId = accountRepository.findIdByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        latestCheckpoint(accountId); // 체크포인트가 없던 계좌라면 먼저 만든다
+
+        return transactionTemplate.execute(status -> at == null
+                ? rebuildCurrent(accountNumber, accountId)
+                : rebuildAt(accountNumber, accountId, at));
+    }
+
+    // 현재 잔액 : 계좌 row 의 잔액과 순번을 한 번에 읽고, 그 순번까지의 거래로 계산해서 비교한다
+    private BalanceRebuild rebuildCurrent(String accountNumber, Long accountId) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        long untilSeq = seq(account.getTransactionSeq());
+        BalanceCheckpoint checkpoint = balanceCheckpointRepository
+                .findFirstByAccountIdOrderByLastAccountSeqDesc(accountId)
+                .orElseThrow(() -> new AccountException(ErrorCode.INVALID_REQUEST));
+        BalanceTail tail = transactionRepository.sumBalanceTail(
+                accountId, checkpoint.getLastAccountSeq(), untilSeq);
+        if (tail.getCount() != untilSeq - checkpoint.getLastAccountSeq()) {
+            throw new AccountException(missingTailError(checkpoint));
+        }
+
+        long balance = checkpoint.getBalance() + tail.getDelta();
+        boolean consistent = Objects.equals(account.getBalance(), balance);
+        if (!consistent) {
+            mismatchCounter.increment();
+            log.warn("Rebuilt balance {} differs from account balance {} : {}",
+                    balance, account.getBalance(), accountNumber);
+        }
+        return rebuildOf(accountNumber, null, balance, checkpoint, tail)
+                .currentBalance(account.getBalance())
+                .consistent(consistent)
+                .build();
+    }
+
+    // 시점 잔액 : 그 시점 이전의 가장 최근 체크포인트 + 그 시점까지의 거래
+    // 중간이 빠졌는지는 순번으로 알 수 있지만 끝부분이 빠진 건 알 수 없으므로, archive 로 옮겨졌을 수 있는 기간은 계산하지 않는다
+    private BalanceRebuild rebuildAt(String accountNumber, Long accountId, LocalDateTime at) {
+        BalanceCheckpoint checkpoint = balanceCheckpointRepository
+                .findFirstByAccountIdAndCheckpointAtLessThanEqualOrderByLastAccountSeqDesc(accountId, at)
+                .orElseThrow(() -> new AccountException(ErrorCode.INVALID_REQUEST));
+        if (archived(checkpoint)) {
+            throw new AccountException(ErrorCode.BALANCE_HISTORY_ARCHIVED);
+        }
+        BalanceTail tail = transactionRepository.sumBalanceTailUntil(
+                accountId, checkpoint.getLastAccountSeq(), at);
+        if (tail.getCount() > 0 && tail.getCount() != tail.getLastSeq() - checkpoint.getLastAccountSeq()) {
+            throw new AccountException(missingTailError(checkpoint));
+        }
+
+        long balance = checkpoint.getBalance() + tail.getDelta();
+        return rebuildOf(accountNumber, at, balance, checkpoint, tail).build();
+    }
+
+    private static BalanceRebuild.BalanceRebuildBuilder rebuildOf(
+            String accountNumber, LocalDateTime at, long balance, BalanceCheckpoint checkpoint, BalanceTail tail) {
+        return BalanceRebuild.builder()
+                .accountNumber(accountNumber)
+                .at(at)
+                .balance(balance)
+                .checkpointBalance(checkpoint.getBalance())
+                .checkpointAt(checkpoint.getCheckpointAt())
+                .tailCount(tail.getCount());
+    }
+
+    // 마지막 체크포인트 뒤의 거래를 더해서 새 체크포인트를 추가한다 (뒤에 쌓인 거래가 없으면 그대로)
+    // 계좌 row 의 순번(커밋된 마지막 거래)까지만 더하므로, 그 뒤에 커밋되는 거래는 다음 체크포인트에 들어간다
+    public BalanceCheckpoint checkpoint(Long accountId) {
+        return transactionTemplate.execute(status -> {
+            BalanceCheckpoint last = latestCheckpoint(accountId);
+            long untilSeq = seq(accountRepository.findTransactionSeqById(accountId)
+                    .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND)));
+            if (untilSeq <= last.getLastAccountSeq()) {
+                return last;
+            }
+            BalanceTail tail = transactionRepository.sumBalanceTail(
+                    accountId, last.getLastAccountSeq(), untilSeq);
+            if (tail.getCount() != untilSeq - last.getLastAccountSeq()) {
+                if (archived(last)) {
+                    // 체크포인트 뒤의 거래가 archive 로 옮겨져서 더 이상 이어서 계산할 수 없다 -> 계좌 row 에서 다시 잡는다
+                    log.warn("Transactions after balance checkpoint are archived, re-basing : {}", accountId);
+                    return rebase(accountId);
+                }
+                // ledger 모드에서 아직 테이블에 저장되지 않은 거래가 있다 -> 다음에 interval 건이 쌓이면 다시 시도
+                log.info("Balance checkpoint of {} skipped : {} of {} transactions persisted",
+                        accountId, tail.getCount(), untilSeq - last.getLastAccountSeq());
+                return last;
+            }
+            writtenCounter.increment();
+            return balanceCheckpointRepository.save(BalanceCheckpoint.builder()
+                    .accountId(accountId)
+                    .balance(last.getBalance() + tail.getDelta())
+                    .lastAccountSeq(untilSeq)
+                    .checkpointAt(tail.getLastTransactedAt())
+                    .build());
+        });
+    }
+
+    private BalanceCheckpoint latestCheckpoint(Long accountId) {
+        return balanceCheckpointRepository.findFirstByAccountIdOrderByLastAccountSeqDesc(accountId)
+                .orElseGet(() -> transactionTemplate.execute(status -> rebase(accountId)));
+    }
+
+    // 기능을 켜기 전에 만들어진 계좌, 체크포인트 뒤의 거래가 archive 로 옮겨진 계좌 :
+    // 계좌 row 의 잔액과 순번으로 지금 시각의 체크포인트를 잡는다 (한 row 를 한 번 읽으므로 두 값은 같은 커밋의 값)
+    // 이 체크포인트보다 이전 시점의 잔액은 계산할 수 없다
+    private BalanceCheckpoint rebase(Long accountId) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        log.info("Balance checkpoint of {} taken from account row at seq {}",
+                account.getAccountNumber(), seq(account.getTransactionSeq()));
+        return balanceCheckpointRepository.save(BalanceCheckpoint.builder()
+                .accountId(accountId)
+                .balance(account.getBalance())
+                .lastAccountSeq(seq(account.getTransactionSeq()))
+                .checkpointAt(LocalDateTime.now())
+                .build());
+    }
+
+    // 이 체크포인트 뒤의 거래 중 archive 로 옮겨졌을 수 있는 거래가 있는지
+    private boolean archived(BalanceCheckpoint checkpoint) {
+        return transactionArchive != null && checkpoint.getCheckpointAt().isBefore(TransactionArchiver.cutoff());
+    }
+
+    private ErrorCode missingTailError(BalanceCheckpoint checkpoint) {
+        return archived(checkpoint) ? ErrorCode.BALANCE_HISTORY_ARCHIVED : ErrorCode.BALANCE_HISTORY_INCOMPLETE;
+    }
+
+    // 이 기능 전에 만들어진 계좌 row 는 순번이 비어있을 수 있다
+    private static long seq(Long transactionSeq) {
+        return transactionSeq == null ? 0L : transactionSeq;
+    }
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                Long accountId = checkpointQueue.poll(100L, TimeUnit.MILLISECONDS);
+                if (accountId == null) {
+                    continue;
+                }
+                queued.remove(accountId);
+                checkpoint(accountId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // 다음에 interval 건이 쌓이면 다시 시도된다
+                log.error("Failed to write balance checkpoint", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.account.service;
+
+import com.example.account.dto.FailedTransaction;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class FailedTransactionJournal { // 실패 거래 내역(F)을 모아서 뒤에서 저장 (write-behind)
+    // 잔액 사용/취소가 실패할 때마다 계좌 락을 잡은 채로 계좌 조회 + insert 를 하던 것을
+    // 크기 제한이 있는 대기열에 넣기만 하고, 별도의 writer 스레드가 모아서 batch insert 한다
+    // - 대기열이 가득 차면(writer 가 못 따라가면) 요청 스레드에서 바로 저장한다 (내역을 버리지 않음)
+    // - 종료할 때는 대기열에 남은 내역을 모두 저장한 뒤 끝난다
+
+    static final String METRIC = "account.failed-journal";
+
+    private final TransactionService transactionService;
+    private final BlockingQueue<FailedTransaction> buffer;
+    private final int batchSize;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final Counter queuedCounter;
+    private final Counter overflowCounter;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+
+    public FailedTransactionJournal(
+            TransactionService transactionService,
+            MeterRegistry meterRegistry,
+            @Value("${account.failed-journal.capacity:10000}") int capacity,
+            @Value("${account.failed-journal.batch-size:100}") int batchSize) {
+        this.transactionService = transactionService;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+
+        Gauge.builder(METRIC + ".size", buffer, BlockingQueue::size)
+                .description("저장 대기중인 실패 거래 내역 수")
+                .register(meterRegistry);
+        this.queuedCounter = counter(meterRegistry, "queued");
+        this.overflowCounter = counter(meterRegistry, "overflow");
+        this.writtenCounter = counter(meterRegistry, "written");
+        this.droppedCounter = counter(meterRegistry, "dropped");
+
+        this.writer = Thread.ofPlatform()
+                .name("failed-transaction-writer")
+                .daemon(true)
+                .start(this::writeLoop);
+    }
+
+    public void recordFailedUse(String accountNumber, Long amount) {
+        record(TransactionType.USE, accountNumber, amount);
+    }
+
+    public void recordFailedCancel(String accountNumber, Long amount) {
+        record(TransactionType.CANCLE, accountNumber, amount);
+    }
+
+    private void record(TransactionType transactionType, String accountNumber, Long amount) {
+        FailedTransaction failedTransaction = FailedTransaction.builder()
+                .transactionType(transactionType)
+                .accountNumber(accountNumber)
+                .amount(amount)
+                .transactedAt(LocalDateTime.now())
+                .build();
+
+        if (running && buffer.offer(failedTransaction)) {
+            queuedCounter.increment();
+            return;
+        }
+
+        // backpressure : 대기열이 가득 찼거나 종료 중 -> 요청 스레드에서 바로 저장
+        overflowCounter.increment();
+        write(List.of(failedTransaction));
+    }
+
+    private void writeLoop() {
+        List<FailedTransaction> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                FailedTransaction first = buffer.poll(100L, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<FailedTransaction> batch) {
+        try {
+            transactionService.saveFailedTransactions(batch);
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            // 감사용 기록이므로 저장 실패가 거래 처리에 영향을 주지 않게 한다
+            droppedCounter.increment(batch.size());
+            log.error("Failed to write {} failed transactions", batch.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+
+        // writer 가 시간 안에 끝나지 못한 경우 남은 내역은 여기서 저장
+        List<FailedTransaction> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+    }
+
+    int pendingCount() {
+        return buffer.size();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC + ".records")
+                .description("실패 거래 내역 처리 결과")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.dto.UseBalance;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Aspect
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@Order(0)
+// TransactionService.useBalance 의 @Transactional 보다 바깥에서 가로채야
+// 묶음 단위 트랜잭션(useBalances)이 락을 잡은 상태에서 따로 커밋된다
+@ConditionalOnProperty(name = "account.transaction.mode", havingValue = "group")
+public class GroupCommitAspect { // group 모드에서 LockAopAspect 대신 동작
+
+    private final LockStrategy lockStrategy;
+    private final UseBalanceGroupCommitter useBalanceGroupCommitter;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Method, LockedEndpoint> lockedEndpoints = new ConcurrentHashMap<>();
+
+    // @AccountLock 엔드포인트 : 잔액 사용은 묶음마다 UseBalanceGroupCommitter 가 락을 잡으므로 그대로 실행하고,
+    // 그 외(잔액 사용 취소)는 lock 모드와 똑같이 요청마다 락을 건다
+    @Around("@annotation(com.example.account.aop.AccountLock) && args(request)")
+    public Object aroundAccountLock(
+            ProceedingJoinPoint pjp,
+            AccountLockIdInterface request) throws Throwable {
+
+        if (request instanceof UseBalance.Request) {
+            return pjp.proceed();
+        }
+
+        LockedEndpoint lockedEndpoint = lockedEndpoints.computeIfAbsent(
+                ((MethodSignature) pjp.getSignature()).getMethod(),
+                method -> LockedEndpoint.of(method, meterRegistry));
+
+        lockedEndpoint.lock(lockStrategy, request.getAccountNumber());
+        try {
+            return pjp.proceed();
+        } finally {
+            lockedEndpoint.unlock(lockStrategy, request.getAccountNumber());
+        }
+    }
+
+    // 잔액 사용 호출을 계좌별 group commit 대기열로 보낸다
+    @Around("execution(* com.example.account.service.TransactionService.useBalance(..)) " +
+            "&& args(userId, accountNumber, amount)")
+    public Object aroundUseBalance(
+            ProceedingJoinPoint pjp,
+            Long userId, String accountNumber, Long amount) {
+
+        return useBalanceGroupCommitter.useBalance(userId, accountNumber, amount);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Aspect
+@Component
+@Slf4j
+@Order(-1)
+// 락(LockAopAspect / GroupCommitAspect / AccountQueueAspect 등)보다 바깥에서 실행되어야
+// 재시도 요청이 락을 기다리거나 DB 에 접근하지 않고 저장된 응답을 바로 돌려받는다
+public class IdempotencyAspect { // @Idempotent 엔드포인트의 Idempotency-Key 처리
+    // 1. 완료된 응답이 있으면 그대로 돌려준다 (같은 키로 다른 본문이 오면 IDEMPOTENCY_KEY_REUSED)
+    // 2. 같은 노드에서 실행 중이면 그 실행이 끝나기를 기다렸다가 같은 결과를 돌려준다
+    // 3. 다른 노드에서 실행 중이면(Redis IN_FLIGHT) 완료될 때까지 짧게 polling
+    // 성공한 응답만 저장한다 -> 실패한 요청은 같은 키로 다시 시도할 수 있다
+    // IN_FLIGHT 표시는 엔드포인트의 락 대기시간 + lease 동안 유지하고, 실행이 더 길어지면 주기적으로 늘려준다
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final long waitMillis;
+    private final long pollMillis;
+    private final long inFlightMillis;
+
+    private final ConcurrentHashMap<String, InFlight> inFlights = new ConcurrentHashMap<>();
+    // 메서드별 IN_FLIGHT 유지시간 (@AccountLock 의 tryLockTime + leaseTime)
+    private final ConcurrentHashMap<Method, Long> inFlightMillisByMethod = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("idempotency-in-flight-renewer").daemon(true).factory());
+
+    private final Counter executedCounter;
+    private final Counter replayedCounter;
+    private final Counter joinedCounter;
+
+    public IdempotencyAspect(
+            IdempotencyStore idempotencyStore,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${account.idempotency.wait-millis:10000}") long waitMillis,
+            @Value("${account.idempotency.poll-millis:50}") long pollMillis,
+            @Value("${account.idempotency.in-flight-millis:30000}") long inFlightMillis) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.waitMillis = waitMillis;
+        this.pollMillis = pollMillis;
+        this.inFlightMillis = inFlightMillis;
+        this.executedCounter = counter(meterRegistry, "executed");
+        this.replayedCounter = counter(meterRegistry, "replayed");
+        this.joinedCounter = counter(meterRegistry, "joined");
+    }
+
+    @Around("@annotation(com.example.account.aop.Idempotent) && args(request)")
+    public Object aroundMethod(ProceedingJoinPoint pjp, Object request) throws Throwable {
+        String idempotencyKey = currentIdempotencyKey();
+        if (idempotencyKey == null) {
+            return pjp.proceed();
+        }
+
+        // 엔드포인트마다 키를 따로 관리한다 (사용 / 취소에 같은 키를 써도 서로 영향 없음)
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        String key = method.getDeclaringClass().getSimpleName() + "." + method.getName() + ":" + idempotencyKey;
+        String fingerprint = objectMapper.writeValueAsString(request);
+
+        IdempotencyStore.Completed completed = idempotencyStore.getCompleted(key, method.getReturnType());
+        if (completed != null) {
+            return replay(completed, fingerprint);
+        }
+
+        InFlight mine = new InFlight(fingerprint);
+        InFlight running = inFlights.putIfAbsent(key, mine);
+        if (running != null) {
+            checkFingerprint(running.fingerprint, fingerprint);
+            joinedCounter.increment();
+            return await(running.future);
+        }
+
+        try {
+            Object response = executeOnce(pjp, key, fingerprint, method);
+            mine.future.complete(response);
+            return response;
+        } catch (Throwable t) {
+            mine.future.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlights.remove(key, mine);
+        }
+    }
+
+    private Object executeOnce(
+            ProceedingJoinPoint pjp, String key, String fingerprint, Method method) throws Throwable {
+
+        Class<?> responseType = method.getReturnType();
+        long ttlMillis = inFlightMillisByMethod.computeIfAbsent(method, this::inFlightMillis);
+        String token = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (!idempotencyStore.tryStart(key, token, ttlMillis)) {
+            // 다른 노드가 실행 중이거나 방금 완료함
+            IdempotencyStore.Completed completed = idempotencyStore.getCompleted(key, responseType);
+            if (completed != null) {
+                return replay(completed, fingerprint);
+            }
+            if (System.currentTimeMillis() > deadline) {
+                log.error("Idempotent request is still in progress : {}", key);
+                throw new AccountException(ErrorCode.IDEMPOTENT_REQUEST_IN_PROGRESS);
+            }
+            Thread.sleep(pollMillis);
+        }
+
+        long renewMillis = Math.max(1L, ttlMillis / 3);
+        ScheduledFuture<?> renewal = renewer.scheduleAtFixedRate(
+                () -> idempotencyStore.refresh(key, token, ttlMillis), renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+        try {
+            Object response = pjp.proceed();
+            idempotencyStore.complete(key, fingerprint, response);
+            executedCounter.increment();
+            return response;
+        } catch (Throwable t) {
+            idempotencyStore.abort(key, token);
+            throw t;
+        } finally {
+            renewal.cancel(false);
+        }
+    }
+
+    // 락을 기다리고 lease 동안 실행할 수 있으므로 그보다 먼저 IN_FLIGHT 가 만료되지 않게 한다
+    private long inFlightMillis(Method method) {
+        AccountLock accountLock = method.getAnnotation(AccountLock.class);
+        if (accountLock == null) {
+            return inFlightMillis;
+        }
+        return Math.max(inFlightMillis, accountLock.tryLockTime() + accountLock.leaseTime());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewer.shutdownNow();
+    }
+
+    private Object replay(IdempotencyStore.Completed completed, String fingerprint) {
+        checkFingerprint(completed.getFingerprint(), fingerprint);
+        replayedCounter.increment();
+        return completed.getResponse();
+    }
+
+    private void checkFingerprint(String expected, String fingerprint) {
+        if (!Objects.equals(expected, fingerprint)) {
+            throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future) throws Throwable {
+        try {
+            return future.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (TimeoutException e) {
+            throw new AccountException(ErrorCode.IDEMPOTENT_REQUEST_IN_PROGRESS);
+        }
+    }
+
+    private static String currentIdempotencyKey() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        String idempotencyKey = request.getHeader(HEADER);
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+        return idempotencyKey;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("account.idempotency")
+                .description("Idempotency-Key 요청 처리 결과")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class InFlight {
+        private final String fingerprint;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        private InFlight(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
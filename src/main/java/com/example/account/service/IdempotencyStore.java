@@ -0,0 +1,174 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class IdempotencyStore { // Idempotency-Key 별로 완료된 응답을 저장 -> IdempotencyAspect 에서 사용됨
+    // - 로컬 : 최근 응답을 크기 제한이 있는 LRU 에 객체 그대로 보관 (재시도는 보통 같은 노드로 들어옴)
+    // - Redis : 다른 노드로 들어온 재시도를 위해 JSON 으로 TTL 과 함께 저장
+    //           실행 중에는 IN_FLIGHT 표시를 먼저 넣어서 다른 노드가 같은 요청을 동시에 실행하지 못하게 한다
+    // Redis 를 쓸 수 없으면 완료된 응답은 로컬 캐시에서만 찾고,
+    // 새로 실행하는 요청은 다른 노드가 같은 키를 실행 중인지 알 수 없으므로 실행하지 않는다 (IDEMPOTENCY_UNAVAILABLE)
+
+    static final String KEY_PREFIX = "IDEM:";
+    private static final String IN_FLIGHT = "IN_FLIGHT:";
+
+    // 내가 넣은 IN_FLIGHT 표시가 아직 있을 때만 만료시간을 늘린다
+    private static final String REFRESH_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('pexpire', KEYS[1], ARGV[2]); " +
+            "end; " +
+            "return 0;";
+
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    // access order LinkedHashMap = LRU, this 로 동기화
+    private final LinkedHashMap<String, Completed> localCache;
+
+    public IdempotencyStore(
+            RedissonClient redissonClient,
+            ObjectMapper objectMapper,
+            @Value("${account.idempotency.ttl-seconds:86400}") long ttlSeconds,
+            @Value("${account.idempotency.local-max-size:10000}") int localMaxSize) {
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.localCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+                return size() > localMaxSize;
+            }
+        };
+    }
+
+    // 완료된 응답이 있으면 돌려주고, 없거나 아직 실행 중이면 null
+    public Completed getCompleted(String key, Class<?> responseType) {
+        Completed completed = getLocal(key);
+        if (completed != null) {
+            return completed;
+        }
+
+        String value;
+        try {
+            value = bucket(key).get();
+        } catch (RuntimeException e) {
+            log.warn("Failed to read idempotency key from redis : {}", key);
+            return null;
+        }
+        if (value == null || value.startsWith(IN_FLIGHT)) {
+            return null;
+        }
+
+        try {
+            StoredResponse stored = objectMapper.readValue(value, StoredResponse.class);
+            completed = new Completed(stored.getFingerprint(),
+                    objectMapper.readValue(stored.getResponse(), responseType),
+                    System.currentTimeMillis() + ttlMillis);
+        } catch (JsonProcessingException e) {
+            log.error("Invalid idempotent response for key : {}", key);
+            return null;
+        }
+        putLocal(key, completed);
+        return completed;
+    }
+
+    // 이 노드가 실행을 맡으면 true (다른 노드가 실행 중이거나 이미 완료된 경우 false)
+    // Redis 에 표시하지 못하면 실행하지 않는다 -> 다른 노드로 들어온 재시도가 한 번 더 실행되지 않도록
+    public boolean tryStart(String key, String token, long inFlightMillis) {
+        try {
+            return bucket(key).trySet(IN_FLIGHT + token, inFlightMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            log.error("Failed to mark idempotency key in redis : {}", key);
+            throw new AccountException(ErrorCode.IDEMPOTENCY_UNAVAILABLE);
+        }
+    }
+
+    // 실행이 길어지는 동안 IN_FLIGHT 표시가 만료되지 않도록 늘려준다 (실패해도 다음 주기에 다시 시도)
+    public void refresh(String key, String token, long inFlightMillis) {
+        try {
+            redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, REFRESH_SCRIPT,
+                    RScript.ReturnType.INTEGER, List.of(KEY_PREFIX + key),
+                    IN_FLIGHT + token, String.valueOf(inFlightMillis));
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh idempotency key in redis : {}", key);
+        }
+    }
+
+    public void complete(String key, String fingerprint, Object response) {
+        putLocal(key, new Completed(fingerprint, response, System.currentTimeMillis() + ttlMillis));
+
+        try {
+            String value = objectMapper.writeValueAsString(
+                    new StoredResponse(fingerprint, objectMapper.writeValueAsString(response)));
+            bucket(key).set(value, ttlMillis, TimeUnit.MILLISECONDS);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Failed to store idempotent response in redis : {}", key);
+        }
+    }
+
+    // 실행이 실패하면 IN_FLIGHT 표시를 지워서 재시도가 다시 실행될 수 있게 한다
+    public void abort(String key, String token) {
+        try {
+            bucket(key).compareAndSet(IN_FLIGHT + token, null);
+        } catch (RuntimeException e) {
+            log.warn("Failed to clear idempotency key in redis : {}", key);
+        }
+    }
+
+    private synchronized Completed getLocal(String key) {
+        Completed completed = localCache.get(key);
+        if (completed != null && completed.expiresAt < System.currentTimeMillis()) {
+            localCache.remove(key);
+            return null;
+        }
+        return completed;
+    }
+
+    private synchronized void putLocal(String key, Completed completed) {
+        localCache.put(key, completed);
+    }
+
+    synchronized int localSize() {
+        return localCache.size();
+    }
+
+    private RBucket<String> bucket(String key) {
+        return redissonClient.getBucket(KEY_PREFIX + key, StringCodec.INSTANCE);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Completed {
+        private final String fingerprint; // 처음 요청의 본문 (같은 키로 다른 요청이 오는지 확인용)
+        private final Object response;
+        private final long expiresAt;
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class StoredResponse { // Redis 에 저장하는 형태
+        private String fingerprint;
+        private String response;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.account.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Slf4j
+final class LedgerFile implements Closeable { // append-only segment 파일 + group fsync
+    // 파일 이름 : ledger-<처음부터 센 byte 위치 20자리>.log, segment-bytes 를 넘으면 다음 파일로 넘어간다
+    // fsync(force) 는 한 스레드(leader)만 하고, 그동안 기록된 다른 레코드들은 다음 fsync 한 번으로 함께 내려간다
+    // -> 동시에 들어온 거래가 많을수록 거래당 fsync 횟수가 줄어든다
+
+    private static final String PREFIX = "ledger-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentBytes;
+
+    // 아래 값들은 writeLock 으로 동기화
+    private final Object writeLock = new Object();
+    private FileChannel channel;
+    private long segmentStart;
+    private long written;
+
+    // 아래 값들은 syncLock 으로 동기화 (writeLock 을 잡은 채로 syncLock 을 잡을 수는 있지만 반대는 안 됨)
+    private final Object syncLock = new Object();
+    private long durable;
+    private boolean syncing;
+
+    @Getter
+    private final AtomicLong fsyncCount = new AtomicLong();
+
+    LedgerFile(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.max(segmentBytes, LedgerRecord.SIZE);
+        Files.createDirectories(directory);
+
+        long start = 0;
+        List<Path> segments = segments(directory);
+        if (!segments.isEmpty()) {
+            Path last = segments.get(segments.size() - 1);
+            start = segmentStart(last) + Files.size(last);
+        }
+        // 이전 실행의 마지막 segment 는 끝이 깨졌을 수 있으므로 이어서 쓰지 않고 새 segment 를 연다
+        openSegment(start);
+        this.durable = start;
+    }
+
+    // 레코드를 파일 끝에 쓰고, 쓴 뒤의 위치를 돌려준다 (아직 디스크에 내려갔다는 보장은 없음 -> awaitDurable)
+    long append(LedgerRecord record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(LedgerRecord.SIZE);
+        record.writeTo(buffer);
+        buffer.flip();
+
+        synchronized (writeLock) {
+            if (written - segmentStart + LedgerRecord.SIZE > segmentBytes) {
+                roll();
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            written += LedgerRecord.SIZE;
+            return written;
+        }
+    }
+
+    // position 까지 디스크에 내려갈 때까지 기다린다
+    void awaitDurable(long position) throws IOException {
+        while (true) {
+            synchronized (syncLock) {
+                while (durable < position && syncing) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for ledger fsync");
+                    }
+                }
+                if (durable >= position) {
+                    return;
+                }
+                syncing = true; // 이 스레드가 leader
+            }
+
+            long target;
+            FileChannel current;
+            synchronized (writeLock) {
+                target = written;
+                current = channel;
+            }
+
+            boolean synced = false;
+            try {
+                current.force(false);
+                fsyncCount.incrementAndGet();
+                synced = true;
+            } catch (ClosedChannelException e) {
+                // 그 사이 roll 되어 닫힌 segment -> roll 에서 이미 force 했다
+                synced = true;
+            } finally {
+                synchronized (syncLock) {
+                    syncing = false;
+                    if (synced) {
+                        durable = Math.max(durable, target);
+                    }
+                    syncLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    // writeLock 을 잡은 상태에서 호출
+    private void roll() throws IOException {
+        channel.force(false);
+        fsyncCount.incrementAndGet();
+        channel.close();
+        synchronized (syncLock) {
+            durable = Math.max(durable, written);
+            syncLock.notifyAll();
+        }
+        openSegment(written);
+    }
+
+    private void openSegment(long start) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, start, SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentStart = start;
+        written = start;
+        log.info("Ledger segment opened : {}", path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    // 모든 segment 를 순서대로 읽는다
+    // crc 가 맞지 않는 레코드를 만나면(쓰다가 죽은 경우) 해당 segment 의 나머지는 건너뛰고 손상된 byte 수를 돌려준다
+    static long read(Path directory, Consumer<LedgerRecord> consumer) throws IOException {
+        long corruptedBytes = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(LedgerRecord.SIZE * 1024);
+
+        for (Path segment : segments(directory)) {
+            try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+                long size = in.size();
+                long read = 0;
+                boolean corrupted = false;
+                buffer.clear();
+                while (!corrupted && in.read(buffer) > 0) {
+                    buffer.flip();
+                    while (buffer.remaining() >= LedgerRecord.SIZE) {
+                        LedgerRecord record = LedgerRecord.readFrom(buffer);
+                        if (record == null) {
+                            corrupted = true;
+                            break;
+                        }
+                        read += LedgerRecord.SIZE;
+                        consumer.accept(record);
+                    }
+                    buffer.compact();
+                }
+                if (read < size) {
+                    log.warn("Ledger segment {} has {} corrupted bytes at the end", segment, size - read);
+                    corruptedBytes += size - read;
+                }
+            }
+        }
+        return corruptedBytes;
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .toList());
+            segments.sort(null);
+            return segments;
+        }
+    }
+
+    private static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+@Getter
+@AllArgsConstructor
+@Builder
+public class LedgerRecord { // ledger 파일에 기록되는 거래 1건 (고정 크기 64 byte)
+    /*
+        | 0  kind(1) | 1 transactionType(1) | 2 transactionResultType(1) | 3 (reserved) |
+        | 4  transactedAt nano(4) | 8 accountId(8) | 16 amount(8) | 24 balanceSnapshot(8) |
+        | 32 transactionId(16) : 32자리 16진수 아이디를 그대로 16 byte 로 |
+        | 48 transactedAt epoch second(8) | 56 accountSeq(4, 없으면 0) | 60 crc32c(4) |
+        - 크기가 고정이라 중간이 깨져도 다음 레코드 위치를 알 수 있고, crc 로 반쯤 써진 레코드를 걸러낸다
+    */
+
+    static final int SIZE = 64;
+
+    static final byte TRANSACTION = 1;
+    static final byte ABORT = 2;  // 기록했지만 DB 트랜잭션이 롤백된 거래 (복구할 때 제외)
+    static final byte COMMIT = 3; // DB 트랜잭션이 커밋된 거래 (복구할 때는 이 레코드가 있는 거래만 다시 저장)
+
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+    private static final TransactionResultType[] RESULT_TYPES = TransactionResultType.values();
+
+    private final byte kind;
+    private final TransactionType transactionType;
+    private final TransactionResultType transactionResultType;
+    private final long accountId;
+    private final long amount;
+    private final long balanceSnapshot;
+    private final String transactionId;
+    private final LocalDateTime transactedAt;
+    private final long accountSeq; // Transaction.accountSeq (실패 거래는 0)
+
+    public static LedgerRecord of(Transaction transaction) {
+        return LedgerRecord.builder()
+                .kind(TRANSACTION)
+                .transactionType(transaction.getTransactionType())
+                .transactionResultType(transaction.getTransactionResultType())
+                .accountId(transaction.getAccount().getId())
+                .amount(transaction.getAmount())
+                .balanceSnapshot(transaction.getBalanceSnapshot())
+                .transactionId(transaction.getTransactionId())
+                .transactedAt(transaction.getTransactedAt())
+                .accountSeq(transaction.getAccountSeq() == null ? 0L : transaction.getAccountSeq())
+                .build();
+    }
+
+    public LedgerRecord abort() {
+        return withKind(ABORT);
+    }
+
+    public LedgerRecord commit() {
+        return withKind(COMMIT);
+    }
+
+    private LedgerRecord withKind(byte kind) {
+        return LedgerRecord.builder()
+                .kind(kind)
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .accountId(accountId)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .accountSeq(accountSeq)
+                .build();
+    }
+
+    public boolean isAbort() {
+        return kind == ABORT;
+    }
+
+    public boolean isCommit() {
+        return kind == COMMIT;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.put(kind)
+                .put((byte) transactionType.ordinal())
+                .put((byte) transactionResultType.ordinal())
+                .put((byte) 0)
+                .putInt(transactedAt.getNano())
+                .putLong(accountId)
+                .putLong(amount)
+                .putLong(balanceSnapshot)
+                .putLong(Long.parseUnsignedLong(transactionId.substring(0, 16), 16))
+                .putLong(Long.parseUnsignedLong(transactionId.substring(16, 32), 16))
+                .putLong(transactedAt.toEpochSecond(ZoneOffset.UTC))
+                .putInt((int) accountSeq)
+                .putInt(crc(buffer, start));
+    }
+
+    // crc 가 맞지 않으면(반쯤 써진 레코드, 빈 공간) null
+    static LedgerRecord readFrom(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.getInt(start + SIZE - 4) != crc(buffer, start)) {
+            buffer.position(start + SIZE);
+            return null;
+        }
+
+        byte kind = buffer.get();
+        TransactionType transactionType = TRANSACTION_TYPES[buffer.get()];
+        TransactionResultType transactionResultType = RESULT_TYPES[buffer.get()];
+        buffer.get();
+        int nano = buffer.getInt();
+        long accountId = buffer.getLong();
+        long amount = buffer.getLong();
+        long balanceSnapshot = buffer.getLong();
+        String transactionId = hex(buffer.getLong()) + hex(buffer.getLong());
+        LocalDateTime transactedAt = LocalDateTime.ofEpochSecond(buffer.getLong(), nano, ZoneOffset.UTC);
+        long accountSeq = Integer.toUnsignedLong(buffer.getInt());
+        buffer.position(start + SIZE);
+
+        return new LedgerRecord(kind, transactionType, transactionResultType,
+                accountId, amount, balanceSnapshot, transactionId, transactedAt, accountSeq);
+    }
+
+    public Transaction toTransaction() {
+        return Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .accountSeq(accountSeq == 0 ? null : accountSeq)
+                .build();
+    }
+
+    private static int crc(ByteBuffer buffer, int start) {
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(buffer.slice(start, SIZE - 4));
+        return (int) crc32c.getValue();
+    }
+
+    private static String hex(long value) {
+        String hex = Long.toHexString(value);
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+}
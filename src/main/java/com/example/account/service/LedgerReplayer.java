@@ -0,0 +1,244 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.TransactionResultType;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.ledger.enabled", havingValue = "true")
+public class LedgerReplayer implements ApplicationRunner { // ledger 파일로 Transaction 테이블을 검증 / 복구
+    // 서버가 죽으면 ledger 에는 기록됐지만 DB 에는 아직 저장되지 않은 거래가 남을 수 있다
+    // 시작할 때(account.ledger.replay) ledger 를 처음부터 읽어서 Transaction 테이블과 비교한다
+    // - verify : 빠진 거래 / 내용이 다른 거래 수만 보고
+    // - repair : 빠진 거래를 다시 저장 (COMMIT 레코드가 있는 거래만, 계좌가 없는 거래는 제외)
+    // COMMIT 도 ABORT 도 없는 거래는 fsync 뒤 DB 커밋 전에 죽은 것일 수도, 커밋한 뒤 COMMIT 이 fsync 되기 전에 죽은 것일 수도 있다
+    // -> 성공 거래(S)는 계좌의 거래 순번(Account.transactionSeq)으로 커밋 여부를 가린다
+    //    - accountSeq <= transactionSeq 이고 그 순번을 쓰는 다른 거래가 없으면 커밋된 것 -> 빠진 거래로 보고 다시 저장
+    //    - accountSeq > transactionSeq 이면 롤백된 것 -> 제외 (롤백되면 순번이 늘지 않는다)
+    //    - 그 외(순번이 없는 거래, archive 기간이 지나서 순번을 확인할 수 없는 거래)는 in-doubt 로 보고만 한다
+    // - none   : 아무것도 하지 않음
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final String mode;
+
+    // archive 로 옮겨져서 테이블에 없는 거래는 빠진 거래가 아니다
+    @Autowired(required = false)
+    private TransactionArchive transactionArchive;
+
+    public LedgerReplayer(
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${account.ledger.directory:./ledger}") String directory,
+            @Value("${account.ledger.replay:repair}") String mode) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.directory = Path.of(directory);
+        this.mode = mode;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if ("none".equals(mode)) {
+            return;
+        }
+        Result result = replay("repair".equals(mode));
+        log.info("Ledger {} finished : {}", mode, result);
+    }
+
+    public Result replay(boolean repair) throws IOException {
+        // TRANSACTION 레코드는 같은 거래의 COMMIT / ABORT 를 만날 때까지 pending 에 둔다
+        // (끝 레코드는 바로 뒤에 기록되므로 pending 은 작다)
+        Map<String, LedgerRecord> pending = new LinkedHashMap<>();
+        Counts counts = new Counts();
+        List<LedgerRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+        long corruptedBytes = LedgerFile.read(directory, record -> {
+            if (record.isAbort()) {
+                pending.remove(record.getTransactionId());
+                counts.aborted++;
+                return;
+            }
+            if (!record.isCommit()) {
+                pending.put(record.getTransactionId(), record);
+                return;
+            }
+            // COMMIT 레코드에도 거래 내용이 모두 있으므로 그대로 비교 / 저장에 쓴다
+            pending.remove(record.getTransactionId());
+            chunk.add(record);
+            if (chunk.size() == CHUNK_SIZE) {
+                compare(chunk, repair, false, counts);
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            compare(chunk, repair, false, counts);
+            chunk.clear();
+        }
+
+        for (LedgerRecord record : pending.values()) {
+            chunk.add(record);
+            if (chunk.size() == CHUNK_SIZE) {
+                compare(chunk, repair, true, counts);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            compare(chunk, repair, true, counts);
+        }
+
+        return Result.builder()
+                .records(counts.records)
+                .missing(counts.missing)
+                .repaired(counts.repaired)
+                .mismatched(counts.mismatched)
+                .orphaned(counts.orphaned)
+                .archived(counts.archived)
+                .aborted(counts.aborted)
+                .settled(counts.settled)
+                .inDoubt(counts.inDoubt)
+                .corruptedBytes(corruptedBytes)
+                .build();
+    }
+
+    // inDoubt : COMMIT / ABORT 가 없는 거래 -> 테이블에 있으면 커밋된 것이고, 없으면 계좌의 거래 순번으로 가린다
+    // (커밋된 거래를 먼저 모두 비교 / 저장한 뒤에 호출되므로, 순번을 다시 쓴 커밋된 거래는 테이블에 있다)
+    private void compare(List<LedgerRecord> chunk, boolean repair, boolean inDoubt, Counts counts) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, LedgerRecord> records = new LinkedHashMap<>();
+            Set<Long> accountIds = new HashSet<>();
+            for (LedgerRecord record : chunk) {
+                records.put(record.getTransactionId(), record);
+                accountIds.add(record.getAccountId());
+            }
+            counts.records += records.size();
+
+            for (Transaction transaction : transactionRepository.findByTransactionIdIn(records.keySet())) {
+                LedgerRecord record = records.remove(transaction.getTransactionId());
+                if (record != null && !matches(record, transaction)) {
+                    counts.mismatched++;
+                    log.warn("Ledger record differs from transaction table : {}", record.getTransactionId());
+                }
+            }
+            if (transactionArchive != null) {
+                records.values().removeIf(record -> {
+                    boolean archived = transactionArchive.contains(record.getTransactionId());
+                    if (archived) {
+                        counts.archived++;
+                    }
+                    return archived;
+                });
+            }
+            if (records.isEmpty()) {
+                return;
+            }
+
+            Map<Long, Account> accounts = new HashMap<>();
+            for (Account account : accountRepository.findAllById(accountIds)) {
+                accounts.put(account.getId(), account);
+            }
+            if (inDoubt) {
+                records.values().removeIf(record -> !settle(record, accounts.get(record.getAccountId()), counts));
+            }
+            List<Transaction> missing = new ArrayList<>(records.size());
+            for (LedgerRecord record : records.values()) {
+                Account account = accounts.get(record.getAccountId());
+                if (account == null) {
+                    counts.orphaned++;
+                    continue;
+                }
+                counts.missing++;
+                Transaction transaction = record.toTransaction();
+                transaction.setAccount(account);
+                missing.add(transaction);
+            }
+            if (repair && !missing.isEmpty()) {
+                transactionRepository.saveAll(missing);
+                counts.repaired += missing.size();
+            }
+        });
+    }
+
+    // in-doubt 거래가 커밋됐으면 true (계좌가 없는 거래는 아래에서 orphaned 로 센다)
+    private boolean settle(LedgerRecord record, Account account, Counts counts) {
+        if (account == null) {
+            return true;
+        }
+        long accountSeq = record.getAccountSeq();
+        long transactionSeq = account.getTransactionSeq() == null ? 0L : account.getTransactionSeq();
+        boolean checkable = record.getTransactionResultType() == TransactionResultType.S
+                && accountSeq > 0
+                && (transactionArchive == null || !record.getTransactedAt().isBefore(TransactionArchiver.cutoff()));
+        if (checkable && accountSeq > transactionSeq) {
+            counts.aborted++;
+            return false;
+        }
+        if (checkable && !transactionRepository.existsByAccountIdAndAccountSeq(record.getAccountId(), accountSeq)) {
+            counts.settled++;
+            return true;
+        }
+        counts.inDoubt++;
+        log.warn("Ledger record has no commit / abort marker, not repaired : {}", record.getTransactionId());
+        return false;
+    }
+
+    private static boolean matches(LedgerRecord record, Transaction transaction) {
+        return transaction.getTransactionType() == record.getTransactionType()
+                && transaction.getTransactionResultType() == record.getTransactionResultType()
+                && Objects.equals(transaction.getAmount(), record.getAmount())
+                && Objects.equals(transaction.getBalanceSnapshot(), record.getBalanceSnapshot())
+                && Objects.equals(transaction.getAccount().getId(), record.getAccountId());
+    }
+
+    private static final class Counts {
+        private long records;
+        private long missing;
+        private long repaired;
+        private long mismatched;
+        private long orphaned;
+        private long archived;
+        private long aborted;
+        private long settled;
+        private long inDoubt;
+    }
+
+    @Getter
+    @Builder
+    @ToString
+    public static class Result {
+        private final long records;        // ledger 에 있는 (ABORT 되지 않은) 거래 수 (in-doubt 포함)
+        private final long missing;        // Transaction 테이블에 없는 거래 수
+        private final long repaired;       // 다시 저장한 거래 수
+        private final long mismatched;     // 테이블과 내용이 다른 거래 수
+        private final long orphaned;       // 계좌가 없어서 저장할 수 없는 거래 수
+        private final long archived;       // archive 로 옮겨져서 테이블에 없는 거래 수
+        private final long aborted;        // 롤백되어 제외한 거래 수 (계좌 거래 순번으로 롤백을 확인한 in-doubt 거래 포함)
+        private final long settled;        // COMMIT 이 없지만 계좌 거래 순번으로 커밋을 확인한 거래 수 (missing / repaired 에도 포함)
+        private final long inDoubt;        // COMMIT / ABORT 가 없고 커밋 여부도 알 수 없어서 저장하지 않은 거래 수
+        private final long corruptedBytes; // 쓰다가 죽어서 읽을 수 없는 byte 수
+    }
+}
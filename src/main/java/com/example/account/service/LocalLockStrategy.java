@@ -0,0 +1,71 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "account.lock.mode", havingValue = "local")
+public class LocalLockStrategy implements LockStrategy {
+    // 단일 노드 배포에서는 Redis 왕복 없이 JVM 안에서만 락을 건다
+    // 계좌마다 락 객체를 만들지 않고, 고정된 개수의 락 배열에 계좌번호를 해싱해서 나눠 쓴다 (striped lock)
+    // -> 서로 다른 계좌가 같은 stripe 에 걸리면 함께 직렬화되지만, 메모리는 stripe 개수만큼만 쓴다
+
+    private final ReentrantLock[] locks;
+
+    public LocalLockStrategy(
+            @Value("${account.lock.local.stripes:1024}") int stripes,
+            @Value("${account.lock.local.fair:false}") boolean fair) {
+        // 인덱스 계산을 & 연산으로 하기 위해 2의 제곱수로 맞춘다
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            // fair = true 이면 먼저 기다린 스레드가 먼저 락을 가져간다 (FIFO)
+            locks[i] = new ReentrantLock(fair);
+        }
+    }
+
+    @Override
+    public long lock(String accountNumber, LockPolicy policy) {
+        log.debug("Trying local lock for accountNumber : {}", accountNumber);
+
+        // 대기시간만 policy 를 따른다
+        // (JVM 락은 요청 스레드가 죽으면 같이 사라지므로 lease 가 필요없고, fair 여부는 stripe 생성 시 정해진다)
+        if (!tryLock(accountNumber, policy.getWaitMillis(), TimeUnit.MILLISECONDS)) {
+            log.error("=================Local lock acquisition failed=================");
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+        // JVM 락은 만료되지 않으므로 fencing 이 필요없다
+        return NO_FENCING_TOKEN;
+    }
+
+    private boolean tryLock(String accountNumber, long waitTime, TimeUnit unit) {
+        try {
+            return getLock(accountNumber).tryLock(waitTime, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
+    @Override
+    public void unlock(String accountNumber, LockPolicy policy) {
+        log.debug("Local unlock for accountNumber : {}", accountNumber);
+
+        getLock(accountNumber).unlock();
+    }
+
+    private ReentrantLock getLock(String accountNumber) {
+        int h = accountNumber.hashCode();
+        // 상위 비트를 섞어서 비슷한 계좌번호가 한 stripe 로 몰리지 않게 한다
+        return locks[(h ^ (h >>> 16)) & (locks.length - 1)];
+    }
+}
@@ -1,21 +1,40 @@
 package com.example.account.service;
 
 import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.type.TransactionMode;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Aspect // 이 클래스가 AOP 클래스라는것을 나타냄
 // AOP : 공통적인 기능을 여러 코드에 쉽게 적용하기 위한 방법
 @Component // 이 클래스가 Spring Bean으로 등록되도록 해줌
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnExpression("'${account.transaction.mode:lock}' == 'lock' or '${account.transaction.mode:lock}' == 'queue'")
+// lock 모드일 때 계좌 락을 건다 (optimistic 모드에서는 OptimisticRetryAspect 가 대신 동작)
+// queue 모드에서도 @AccountLock(queue = true) 가 아닌 엔드포인트는 계속 락을 건다
 public class LockAopAspect {
 
-    private final LockService lockService;
+    private final LockStrategy lockService;
+    // account.lock.mode 에 따라 LockService(redis) 또는 LocalLockStrategy(local) 가 주입됨
+    private final MeterRegistry meterRegistry;
+
+    @Value("${account.transaction.mode:lock}")
+    private TransactionMode transactionMode = TransactionMode.LOCK;
+
+    // 메서드별 락 정책(@AccountLock 속성)과 대기시간 타이머 캐시
+    private final ConcurrentHashMap<Method, LockedEndpoint> lockedEndpoints = new ConcurrentHashMap<>();
 
     // pjp.proceed()가 어느 포인트지점에서 동작할건지를 집어줌
     // ~.AccountLock 부근(Around)에서 실행할거야!
@@ -25,15 +44,24 @@ public class LockAopAspect {
             ProceedingJoinPoint pjp, // 가로챈 메서드를 실행하기 위해 사용
             AccountLockIdInterface request) throws Throwable {
 
-        // lock 취득 시도
-        lockService.lock(request.getAccountNumber());
+        LockedEndpoint lockedEndpoint = lockedEndpoints.computeIfAbsent(
+                ((MethodSignature) pjp.getSignature()).getMethod(),
+                method -> LockedEndpoint.of(method, meterRegistry));
+
+        if (transactionMode == TransactionMode.QUEUE && lockedEndpoint.isQueued()) {
+            // 계좌별 대기열에서 순서대로 실행되고, 계좌 락은 대기열 워커가 잡는다 (AccountQueueAspect)
+            return pjp.proceed();
+        }
+
+        // lock 취득 시도 (@AccountLock 의 tryLockTime / leaseTime / fair 를 따른다)
+        lockedEndpoint.lock(lockService, request.getAccountNumber());
         try {
             // 실제 동작 before
             return pjp.proceed(); // 실제 메서드가 실행됨
             // 실제 동작 after
         } finally {
             // lock 해제
-            lockService.unlock(request.getAccountNumber());
+            lockedEndpoint.unlock(lockService, request.getAccountNumber());
         }
     }
 }
@@ -1,53 +1,341 @@
 package com.example.account.service;
 
+import com.example.account.aop.LockPolicy;
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.LongCodec;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class LockService { // 실제로 락을 걸고 해제하는 로직을 담당 -> LockAopAspect에서 사용됨
+@ConditionalOnProperty(name = "account.lock.mode", havingValue = "redis", matchIfMissing = true)
+public class LockService implements LockStrategy { // 실제로 락을 걸고 해제하는 로직을 담당 -> LockAopAspect에서 사용됨
     // 그리고 LockAopAspect는 AOP를 통해 특정 메서드에 자동으로 락을 적용하는 역할을 함
 
     private final RedissonClient redissonClient;
     // RedisRepositoryConfig 클래스에 등록된 Bean 이름과 같으면 자동으로 매칭됨
     // redissonClient()
+    private final RedisCircuitBreaker circuitBreaker;
 
-    public void lock(String accountNumber) {
-        
-        RLock lock = redissonClient.getLock(getLockKey(accountNumber));
+    // 락이 비어있으면 잡으면서 fencing token 도 1 증가시켜서 돌려준다 (아니면 0) -> Redis 왕복 1번
+    // Redisson RLock 과 같은 모양(hash field = owner, 값 = 재진입 횟수, pexpire = lease)으로 쓰므로 해제는 RLock.unlock 그대로
+    // fair lock(Redis 대기열) / watchdog(lease 연장 예약)은 RLock.tryLock 으로 잡아야 하므로 쓰지 않는다
+    private static final String LOCK_AND_FENCE_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 0 then " +
+                    "redis.call('hincrby', KEYS[1], ARGV[1], 1); " +
+                    "redis.call('pexpire', KEYS[1], ARGV[2]); " +
+                    "return redis.call('incr', KEYS[2]); " +
+            "end; " +
+            "return 0;";
+
+    // 다른 요청이 락을 잡고 있어서 RLock.tryLock 으로 기다려서 잡은 뒤에 쓴다 (대기시간이 왕복 1번보다 훨씬 길다)
+    // 락 hash 에 내 이름(owner)이 아직 남아있을 때만 fencing token 을 1 증가시켜서 돌려준다 (아니면 0)
+    // 확인과 INCR 이 하나의 스크립트라서, 락을 잃은 뒤에 token 을 받아가는 일이 없다
+    private static final String FENCING_SCRIPT =
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then " +
+                    "return redis.call('incr', KEYS[2]); " +
+            "end; " +
+            "return 0;";
+
+    // 2단계 락 : 같은 노드의 요청 스레드들은 Redis 가 아니라 이 로컬 락에서 먼저 줄을 선다
+    // -> 노드당 한 스레드(로컬 락을 잡은 스레드)만 Redis 락을 시도하므로 Redis 호출이 줄어든다
+    // 로컬 락은 Redis 락을 기다리는 동안과 요청을 처리하는 동안 내내 잡고 있으므로, stripe 를 나눠 쓰지 않고 계좌마다 따로 둔다
+    // (다른 계좌끼리 서로 기다리지 않음, 기다리거나 잡고 있는 스레드가 없어지면 map 에서 제거된다)
+    // fair 락이라서 먼저 온 요청이 먼저 처리된다
+    private final ConcurrentHashMap<String, LocalLock> localLocks = new ConcurrentHashMap<>();
+
+    @Override
+    public long lock(String accountNumber, LockPolicy policy) {
         log.debug("Trying lock for accountNumber : {}", accountNumber);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.getWaitMillis());
+
+        // 1단계 : 노드 내부 락 (메모리에서 대기)
+        if (!tryLocalLock(accountNumber, policy.getWaitMillis())) {
+            log.error("=================Local lock acquisition failed=================");
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+
+        if (!circuitBreaker.allowRequest()) {
+            // Redis 가 불안정한 동안에는 Redis 를 기다리지 않고 바로 DB 락으로 처리한다
+            return useDatabaseLock(accountNumber);
+        }
 
+        // 2단계 : 로컬 락을 잡은 스레드만 Redis 분산 락을 시도 (남은 대기시간만큼만 기다린다)
+        RLock lock = getLock(accountNumber, policy);
         try {
-            boolean isLock = lock.tryLock(1, 15, TimeUnit.SECONDS);
-            // (최대 1주동안 락을 기다려서 획득하기, 획득한 락을 15초동안 갖고있다 풀어주기, 시간 단위)
+            // 락이 비어있으면 락과 fencing token 을 한 번에 받는다
+            if (canLockAndFence(policy)) {
+                long fencingToken = lockAndFence(accountNumber, policy, Thread.currentThread().threadId());
+                if (fencingToken != NO_FENCING_TOKEN) {
+                    AccountLockContext.setFencingToken(accountNumber, fencingToken);
+                    return fencingToken;
+                }
+            }
+
+            long remainingMillis = Math.max(0L,
+                    TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            // leaseTime 이 -1 이면 Redisson watchdog 이 락을 잡은 동안 lease 를 계속 연장해준다
+            long leaseMillis = policy.isWatchdog() ? -1L : policy.getLeaseMillis();
+            boolean isLock = lock.tryLock(remainingMillis, leaseMillis, TimeUnit.MILLISECONDS);
+            // (남은 시간동안 락을 기다려서 획득하기, 획득한 락을 lease 동안 갖고있다 풀어주기, 시간 단위)
+            // 락을 못 잡은 것도 Redis 는 정상적으로 응답한 것 (다른 요청이 사용중)
 
             if(!isLock) {
+                circuitBreaker.onSuccess();
                 log.error("=================Lock acquisition failed=================");
                 throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
             }
+
+            long fencingToken = nextFencingToken(accountNumber);
+            if (fencingToken == NO_FENCING_TOKEN) {
+                // 락을 잡자마자 lease 가 끝나버린 경우
+                log.error("=================Lock lost before fencing=================");
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+            AccountLockContext.setFencingToken(accountNumber, fencingToken);
+            return fencingToken;
         } catch(AccountException e) {
+            unlockLocal(accountNumber);
             throw e;
-        } catch (Exception e) {
-            log.error("Redis lock failed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlockLocal(accountNumber);
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        } catch (RuntimeException e) {
+            // 락 없이 진행하지 않고 DB 락으로 전환한다
+            // (Redis 에 락이 잡혔는데 응답만 못 받은 경우를 대비해 해제를 요청해두고, 실패해도 lease 가 지나면 풀린다)
+            log.error("Redis lock failed, fallback to database lock : {}", e.getMessage());
+            circuitBreaker.onFailure();
+            lock.unlockAsync();
+            return useDatabaseLock(accountNumber);
         }
     }
 
-    public void unlock(String accountNumber) {
+    @Override
+    public void unlock(String accountNumber, LockPolicy policy) {
         log.debug("Unlock for accountNumber : {}", accountNumber);
 
-        redissonClient.getLock(getLockKey(accountNumber)).unlock();
+        try {
+            // DB 락은 트랜잭션이 끝날 때 같이 풀리므로 Redis 에는 해제할 락이 없다
+            if (!AccountLockContext.isDatabaseLock(accountNumber)) {
+                getLock(accountNumber, policy).unlock();
+            }
+        } catch (RedisException e) {
+            // Redis 장애로 해제를 못한 락은 lease 가 지나면 풀린다
+            log.error("Redis unlock failed : {}", e.getMessage());
+            circuitBreaker.onFailure();
+        } finally {
+            AccountLockContext.clear(accountNumber);
+            // Redis 락 해제가 실패해도 노드 내부 대기열은 반드시 풀어준다
+            unlockLocal(accountNumber);
+        }
+    }
+
+    /*
+        비동기 락 : 락을 기다리는 동안 요청 스레드를 붙잡지 않는다 (Redis pub/sub 알림으로 깨어남)
+        - 스레드 대신 lockId 가 락의 주인이 되므로, 해제할 때도 같은 lockId 를 넘겨야 한다
+          (실제 스레드 id 와 겹치지 않는 값을 사용해야 한다)
+        - 노드 내부 대기열(localLock)은 스레드에 묶여있어서 사용하지 않는다
+        - 결과는 fencing token, Redis 가 불안정해서 DB 락으로 전환해야 하면 NO_FENCING_TOKEN
+    */
+    public CompletableFuture<Long> lockAsync(String accountNumber, LockPolicy policy, long lockId) {
+        log.debug("Trying async lock for accountNumber : {}", accountNumber);
+
+        if (!circuitBreaker.allowRequest()) {
+            log.warn("Using database lock for accountNumber : {}", accountNumber);
+            return CompletableFuture.completedFuture(NO_FENCING_TOKEN);
+        }
+
+        RLock lock = getLock(accountNumber, policy);
+        long leaseMillis = policy.isWatchdog() ? -1L : policy.getLeaseMillis();
+        CompletableFuture<Long> lockedAndFenced = canLockAndFence(policy)
+                ? lockAndFenceAsync(accountNumber, policy, lockId)
+                : CompletableFuture.completedFuture(NO_FENCING_TOKEN);
+        return lockedAndFenced
+                .thenCompose(token -> token != NO_FENCING_TOKEN
+                        ? CompletableFuture.completedFuture(token)
+                        : lock.tryLockAsync(policy.getWaitMillis(), leaseMillis, TimeUnit.MILLISECONDS, lockId)
+                        .toCompletableFuture()
+                        .thenCompose(isLock -> {
+                            circuitBreaker.onSuccess();
+                            if (!isLock) {
+                                log.error("=================Lock acquisition failed=================");
+                                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                            }
+                            return nextFencingTokenAsync(accountNumber, lockId);
+                        }))
+                .handle((fencingToken, e) -> {
+                    if (e == null) {
+                        if (fencingToken == NO_FENCING_TOKEN) {
+                            log.error("=================Lock lost before fencing=================");
+                            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                        }
+                        return fencingToken;
+                    }
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null
+                            ? e.getCause() : e;
+                    if (cause instanceof AccountException accountException) {
+                        throw accountException;
+                    }
+                    // 동기 락과 마찬가지로 락 없이 진행하지 않고 DB 락으로 전환한다
+                    log.error("Redis async lock failed, fallback to database lock : {}", cause.getMessage());
+                    circuitBreaker.onFailure();
+                    lock.unlockAsync(lockId);
+                    return NO_FENCING_TOKEN;
+                });
+    }
+
+    public CompletableFuture<Void> unlockAsync(String accountNumber, LockPolicy policy, long lockId) {
+        log.debug("Async unlock for accountNumber : {}", accountNumber);
+
+        return getLock(accountNumber, policy).unlockAsync(lockId)
+                .toCompletableFuture()
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        // 해제를 못한 락은 lease 가 지나면 풀린다
+                        log.error("Redis async unlock failed : {}", e.getMessage());
+                    }
+                });
+    }
+
+    private static boolean canLockAndFence(LockPolicy policy) {
+        return !policy.isFair() && !policy.isWatchdog();
+    }
+
+    private long lockAndFence(String accountNumber, LockPolicy policy, long threadId) {
+        long start = System.nanoTime();
+        Long token = redissonClient.getScript(LongCodec.INSTANCE).eval(
+                RScript.Mode.READ_WRITE,
+                LOCK_AND_FENCE_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                List.of(getLockKey(accountNumber), getFencingKey(accountNumber)),
+                getLockOwner(threadId), policy.getLeaseMillis());
+        circuitBreaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return token == null ? NO_FENCING_TOKEN : token;
+    }
+
+    private CompletableFuture<Long> lockAndFenceAsync(String accountNumber, LockPolicy policy, long lockId) {
+        long start = System.nanoTime();
+        return redissonClient.getScript(LongCodec.INSTANCE).<Long>evalAsync(
+                        RScript.Mode.READ_WRITE,
+                        LOCK_AND_FENCE_SCRIPT,
+                        RScript.ReturnType.INTEGER,
+                        List.of(getLockKey(accountNumber), getFencingKey(accountNumber)),
+                        getLockOwner(lockId), policy.getLeaseMillis())
+                .toCompletableFuture()
+                .thenApply(token -> {
+                    circuitBreaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return token == null ? NO_FENCING_TOKEN : token;
+                });
+    }
+
+    private long nextFencingToken(String accountNumber) {
+        long start = System.nanoTime();
+        Long token = redissonClient.getScript(LongCodec.INSTANCE).eval(
+                RScript.Mode.READ_WRITE,
+                FENCING_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                List.of(getLockKey(accountNumber), getFencingKey(accountNumber)),
+                getLockOwner(Thread.currentThread().threadId()));
+        // 대기시간이 섞이지 않은 순수 왕복 시간으로 Redis 상태를 판단한다
+        circuitBreaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return token == null ? NO_FENCING_TOKEN : token;
+    }
+
+    private CompletableFuture<Long> nextFencingTokenAsync(String accountNumber, long lockId) {
+        long start = System.nanoTime();
+        return redissonClient.getScript(LongCodec.INSTANCE).<Long>evalAsync(
+                        RScript.Mode.READ_WRITE,
+                        FENCING_SCRIPT,
+                        RScript.ReturnType.INTEGER,
+                        List.of(getLockKey(accountNumber), getFencingKey(accountNumber)),
+                        getLockOwner(lockId))
+                .toCompletableFuture()
+                .thenApply(token -> {
+                    circuitBreaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return token == null ? NO_FENCING_TOKEN : token;
+                });
+    }
+
+    private String getLockOwner(long threadId) {
+        // Redisson 락 hash 의 field 이름 = 클라이언트 id + ":" + 스레드 id (비동기 락은 lockId)
+        return redissonClient.getId() + ":" + threadId;
+    }
+
+    private long useDatabaseLock(String accountNumber) {
+        log.warn("Using database lock for accountNumber : {}", accountNumber);
+        AccountLockContext.useDatabaseLock(accountNumber);
+        return NO_FENCING_TOKEN;
+    }
+
+    private RLock getLock(String accountNumber, LockPolicy policy) {
+        // fair lock 은 Redis 에 대기열을 따로 두고 먼저 기다린 요청부터 깨운다
+        return policy.isFair()
+                ? redissonClient.getFairLock(getLockKey(accountNumber))
+                : redissonClient.getLock(getLockKey(accountNumber));
     }
 
     private String getLockKey(String accountNumber) {
         return "ACLK" + accountNumber;
         // accountLock + accountNumber 로 락 넘버링 만들기
     }
+
+    private String getFencingKey(String accountNumber) {
+        // {락 키} 해시태그 : 클러스터에서도 락 키와 같은 슬롯에 저장되어 한 스크립트에서 함께 쓸 수 있다
+        return "{" + getLockKey(accountNumber) + "}:fence";
+    }
+
+    private boolean tryLocalLock(String accountNumber, long waitMillis) {
+        // 기다리기 전에 사용자 수를 늘려둬서, 기다리는 동안 다른 스레드가 map 에서 지우지 못하게 한다
+        LocalLock localLock = localLocks.compute(accountNumber, (key, current) -> {
+            LocalLock lock = current == null ? new LocalLock() : current;
+            lock.users++;
+            return lock;
+        });
+        boolean locked = false;
+        try {
+            locked = localLock.lock.tryLock(waitMillis, TimeUnit.MILLISECONDS);
+            return locked;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (!locked) {
+                releaseLocal(accountNumber);
+            }
+        }
+    }
+
+    private void unlockLocal(String accountNumber) {
+        localLocks.get(accountNumber).lock.unlock();
+        releaseLocal(accountNumber);
+    }
+
+    private void releaseLocal(String accountNumber) {
+        localLocks.computeIfPresent(accountNumber, (key, lock) -> --lock.users == 0 ? null : lock);
+    }
+
+    int localLockCount() {
+        return localLocks.size();
+    }
+
+    private static final class LocalLock {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private int users; // 기다리거나 잡고 있는 횟수 (localLocks.compute 안에서만 바꾼다)
+    }
 }
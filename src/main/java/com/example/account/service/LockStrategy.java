@@ -0,0 +1,29 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+
+/**
+ * 계좌 단위 락을 거는 방식을 추상화한 인터페이스
+ * - redis : Redisson RLock 을 사용하는 분산 락 (LockService)
+ * - local : JVM 내부의 striped ReentrantLock (LocalLockStrategy)
+ * application.yml 의 account.lock.mode 값으로 어떤 구현체를 쓸지 결정한다
+ */
+public interface LockStrategy {
+
+    long NO_FENCING_TOKEN = 0L;
+
+    // 대기시간 / lease / fair 여부는 policy 를 따른다 (@AccountLock 에서 읽어온 값)
+    // 락을 잡을 때마다 증가하는 fencing token 을 돌려준다 (lease 가 없는 락은 NO_FENCING_TOKEN)
+    long lock(String accountNumber, LockPolicy policy);
+
+    // lock 할 때와 같은 policy 로 풀어야 한다 (fair lock 은 해제 방식이 다름)
+    void unlock(String accountNumber, LockPolicy policy);
+
+    default long lock(String accountNumber) {
+        return lock(accountNumber, LockPolicy.DEFAULT);
+    }
+
+    default void unlock(String accountNumber) {
+        unlock(accountNumber, LockPolicy.DEFAULT);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountLock;
+import com.example.account.aop.LockPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+final class LockedEndpoint { // @AccountLock 이 붙은 메서드 하나에 대한 락 정책 + 대기시간 메트릭
+    // 요청마다 리플렉션으로 어노테이션을 읽지 않도록, 메서드별로 한 번만 만들어서 aspect 에 캐싱해둔다
+
+    static final String WAIT_METRIC = "account.lock.wait";
+
+    private final LockPolicy policy;
+    private final boolean queued; // @AccountLock(queue = true) -> queue 모드에서는 락 대신 대기열
+    private final Timer acquiredTimer;
+    private final Timer failedTimer;
+
+    private LockedEndpoint(LockPolicy policy, boolean queued, MeterRegistry meterRegistry) {
+        this.policy = policy;
+        this.queued = queued;
+        this.acquiredTimer = waitTimer(meterRegistry, policy.getName(), "acquired");
+        this.failedTimer = waitTimer(meterRegistry, policy.getName(), "failed");
+    }
+
+    static LockedEndpoint of(Method method, MeterRegistry meterRegistry) {
+        String name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        AccountLock accountLock = method.getAnnotation(AccountLock.class);
+        LockPolicy policy = accountLock == null
+                ? LockPolicy.DEFAULT
+                : LockPolicy.from(name, accountLock);
+        return new LockedEndpoint(policy, accountLock != null && accountLock.queue(), meterRegistry);
+    }
+
+    static LockedEndpoint of(LockPolicy policy, MeterRegistry meterRegistry) {
+        return new LockedEndpoint(policy, false, meterRegistry);
+    }
+
+    // 락을 잡을 때까지 기다린 시간을 성공/실패로 나눠서 기록한다
+    void lock(LockStrategy lockStrategy, String accountNumber) {
+        long start = System.nanoTime();
+        try {
+            lockStrategy.lock(accountNumber, policy);
+        } catch (RuntimeException e) {
+            recordWait(start, false);
+            throw e;
+        }
+        recordWait(start, true);
+    }
+
+    void recordWait(long startNanos, boolean acquired) {
+        (acquired ? acquiredTimer : failedTimer)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void unlock(LockStrategy lockStrategy, String accountNumber) {
+        lockStrategy.unlock(accountNumber, policy);
+    }
+
+    LockPolicy getPolicy() {
+        return policy;
+    }
+
+    boolean isQueued() {
+        return queued;
+    }
+
+    private static Timer waitTimer(MeterRegistry meterRegistry, String endpoint, String result) {
+        return Timer.builder(WAIT_METRIC)
+                .description("계좌 락 대기시간")
+                .tag("endpoint", endpoint)
+                .tag("result", result)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
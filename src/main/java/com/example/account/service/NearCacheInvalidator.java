@@ -0,0 +1,153 @@
+package com.example.account.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.BaseStatusListener;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.near-cache.enabled", havingValue = "true")
+public class NearCacheInvalidator { // 노드마다 있는 캐시(AccountUserCache, AccountNumberCache)를 모든 노드에서 함께 지운다
+    // 한 노드에서 계좌 해지 등으로 캐시를 지우면 Redis pub/sub(RTopic)으로 알리고, 모든 노드가 받아서 자기 캐시에서 지운다
+    // - 커밋된 뒤에 보낸다 (롤백된 변경으로 다른 노드의 캐시를 지우지 않고, 커밋 전 값을 다시 읽어가지 않게)
+    // - pub/sub 은 연결이 끊긴 동안의 메시지를 다시 보내주지 않으므로 다시 구독되면 캐시를 모두 비운다
+    // - 보낸 시각과 받은 시각의 차이를 account.near-cache.lag 로 남긴다 (노드 간 시계 차이가 포함됨)
+
+    static final String TOPIC = "account:near-cache:invalidation";
+    static final String METRIC = "account.near-cache";
+
+    private static final String USER = "U";
+    private static final String ACCOUNT = "A";
+
+    private final RTopic topic;
+    private final AccountUserCache accountUserCache;
+    private final AccountNumberCache accountNumberCache;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Counter publishedCounter;
+    private final Counter publishFailedCounter;
+    private final Counter receivedCounter;
+    private final Counter resubscribedCounter;
+    private final Timer lagTimer;
+
+    public NearCacheInvalidator(
+            RedissonClient redissonClient,
+            AccountUserCache accountUserCache,
+            AccountNumberCache accountNumberCache,
+            MeterRegistry meterRegistry) {
+        this.topic = redissonClient.getTopic(TOPIC, StringCodec.INSTANCE);
+        this.accountUserCache = accountUserCache;
+        this.accountNumberCache = accountNumberCache;
+
+        this.publishedCounter = messageCounter(meterRegistry, "published");
+        this.publishFailedCounter = messageCounter(meterRegistry, "publish-failed");
+        this.receivedCounter = messageCounter(meterRegistry, "received");
+        this.resubscribedCounter = Counter.builder(METRIC + ".resubscribed")
+                .description("다시 구독되어 캐시를 모두 비운 횟수")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder(METRIC + ".lag")
+                .description("다른 노드에서 캐시를 지운 뒤 이 노드의 캐시에서 지워지기까지 걸린 시간")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        try {
+            topic.addListener(String.class, (channel, message) -> onMessage(message));
+            topic.addListener(new BaseStatusListener() {
+                @Override
+                public void onSubscribe(String channel) {
+                    resubscribedCounter.increment();
+                    clearAll();
+                }
+            });
+        } catch (RuntimeException e) {
+            // 구독하지 못해도 서비스는 계속한다 (계좌 캐시에는 바뀌지 않는 값만 있고, 사용자 캐시는 TTL 이 지나면 다시 읽음)
+            log.error("Failed to subscribe near cache invalidation topic", e);
+        }
+    }
+
+    public void invalidateUser(Long userId) {
+        accountUserCache.invalidate(userId);
+        publishAfterCommit(USER, String.valueOf(userId));
+    }
+
+    public void invalidateAccount(String accountNumber) {
+        accountNumberCache.invalidate(accountNumber);
+        publishAfterCommit(ACCOUNT, accountNumber);
+    }
+
+    private void publishAfterCommit(String type, String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(type, key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(type, key);
+            }
+        });
+    }
+
+    // 메시지 : <종류>|<노드 id>|<보낸 시각 epoch millis>|<키>
+    private void publish(String type, String key) {
+        String message = type + "|" + nodeId + "|" + System.currentTimeMillis() + "|" + key;
+        // 요청 스레드가 Redis 응답을 기다리지 않게 비동기로 보낸다
+        topic.publishAsync(message).whenComplete((receivers, e) -> {
+            if (e != null) {
+                publishFailedCounter.increment();
+                log.error("Failed to publish near cache invalidation : {}", message, e);
+                return;
+            }
+            publishedCounter.increment();
+        });
+    }
+
+    void onMessage(String message) {
+        String[] parts = message.split("\\|", 4);
+        if (parts.length != 4) {
+            log.warn("Invalid near cache invalidation message : {}", message);
+            return;
+        }
+        receivedCounter.increment();
+
+        try {
+            if (USER.equals(parts[0])) {
+                accountUserCache.invalidate(Long.valueOf(parts[3]));
+            } else if (ACCOUNT.equals(parts[0])) {
+                accountNumberCache.invalidate(parts[3]);
+            }
+
+            // 보낸 노드는 이미 자기 캐시를 지웠으므로 다른 노드에서 온 메시지만 기록한다
+            if (!nodeId.equals(parts[1])) {
+                long lagMillis = System.currentTimeMillis() - Long.parseLong(parts[2]);
+                lagTimer.record(Math.max(0, lagMillis), TimeUnit.MILLISECONDS);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid near cache invalidation message : {}", message);
+        }
+    }
+
+    private void clearAll() {
+        accountUserCache.clear();
+        accountNumberCache.clear();
+    }
+
+    private static Counter messageCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC + ".messages")
+                .description("캐시 무효화 메시지 처리 결과")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@Aspect
+@Component
+@Slf4j
+@Order(0)
+// @Transactional 보다 바깥에서 실행되어야 충돌난 트랜잭션이 롤백된 뒤 새 트랜잭션으로 재시도할 수 있다
+@ConditionalOnProperty(name = "account.transaction.mode", havingValue = "optimistic")
+public class OptimisticRetryAspect {
+    // 낙관적 락 모드 : Redis 락(@AccountLock) 없이 Account 의 @Version 으로 lost update 를 막고,
+    // 충돌이 나면 짧게 쉬었다가 다시 시도한다 (대부분의 계좌는 경합이 거의 없으므로 보통 한번에 성공)
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticRetryAspect(
+            @Value("${account.transaction.optimistic.max-attempts:5}") int maxAttempts,
+            @Value("${account.transaction.optimistic.backoff-millis:10}") long backoffMillis,
+            @Value("${account.transaction.optimistic.max-backoff-millis:200}") long maxBackoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @Around("@annotation(com.example.account.aop.OptimisticRetry)")
+    public Object aroundMethod(ProceedingJoinPoint pjp) throws Throwable {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return pjp.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Optimistic lock retry exhausted : {}", pjp.getSignature().getName());
+                    throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                }
+                log.debug("Optimistic lock conflict, retry {} : {}", attempt, pjp.getSignature().getName());
+                sleep(attempt);
+            }
+        }
+    }
+
+    // 지수 백오프 + jitter (같이 충돌한 요청들이 동시에 다시 부딪히지 않도록)
+    private void sleep(int attempt) throws InterruptedException {
+        long backoff = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+        if (backoff > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.account.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.lock.mode", havingValue = "redis", matchIfMissing = true)
+public class RedisCircuitBreaker { // Redis 가 느리거나 죽었을 때 LockService 가 Redis 호출을 멈추고 DB 락으로 전환하게 한다
+    // CLOSED    : 정상, 모든 요청이 Redis 락을 사용
+    // OPEN      : 연속 실패(에러 또는 느린 응답)가 임계치를 넘은 상태, openMillis 동안 Redis 를 호출하지 않음
+    // HALF_OPEN : openMillis 가 지나면 한 요청만 Redis 로 보내보고, 성공하면 CLOSED / 실패하면 다시 OPEN
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    public RedisCircuitBreaker(
+            @Value("${account.lock.redis.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${account.lock.redis.circuit-breaker.slow-call-millis:500}") long slowCallMillis,
+            @Value("${account.lock.redis.circuit-breaker.open-millis:10000}") long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+    }
+
+    // Redis 를 호출해도 되는지 (false 이면 DB 락으로 처리)
+    // true 를 받은 호출자는 결과를 반드시 onSuccess / onFailure 로 알려줘야 한다
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        // 여러 요청 중 하나만 HALF_OPEN 으로 바꾸는 데 성공해서 시험 호출을 한다
+        // (시험 호출이 결과를 알려주지 못하고 끝난 경우에도 openMillis 가 지나면 다시 시험한다)
+        if (now - openedAt >= openMillis && state.compareAndSet(current, State.HALF_OPEN)) {
+            openedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("Redis recovered, switch back to redis lock");
+        }
+    }
+
+    // 응답은 왔지만 slowCallMillis 보다 오래 걸렸으면 실패로 본다
+    public void onSuccess(long elapsedMillis) {
+        if (elapsedMillis >= slowCallMillis) {
+            log.warn("Slow redis call : {}ms", elapsedMillis);
+            onFailure();
+            return;
+        }
+        onSuccess();
+    }
+
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN
+                || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open();
+        }
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.OPEN) != State.OPEN) {
+            log.error("Redis circuit opened, fallback to database lock for {}ms", openMillis);
+        }
+    }
+}
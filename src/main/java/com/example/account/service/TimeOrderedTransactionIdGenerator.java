@@ -0,0 +1,55 @@
+package com.example.account.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.transaction.id-generator", havingValue = "time-ordered", matchIfMissing = true)
+public class TimeOrderedTransactionIdGenerator implements TransactionIdGenerator {
+    /*
+        128비트 = 32자리 16진수 (기존 UUID 형식과 같은 길이)
+        | 밀리초 시간 48비트 | 노드 id 16비트 | 랜덤 64비트 |
+        - 앞자리가 시간이라서 새 거래는 transaction_id 인덱스의 끝쪽에 모여서 insert 된다
+        - 노드 id 로 노드끼리 겹치지 않고, 같은 밀리초 안에서는 랜덤 64비트로 구분한다
+          (순번 대신 랜덤을 써서 다른 거래의 아이디를 추측하기 어렵게 한다)
+        - UUID.randomUUID() 의 SecureRandom 대신 ThreadLocalRandom 을 쓰고, 중간 문자열 없이 char[] 에 바로 16진수를 채운다
+    */
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long nodeId;
+    // 시계가 뒤로 가더라도 시간 부분이 줄어들지 않게 한다
+    private final AtomicLong lastMillis = new AtomicLong();
+
+    public TimeOrderedTransactionIdGenerator(
+            @Value("${account.transaction.node-id:-1}") int nodeId) {
+        // 설정하지 않으면 노드마다 임의의 값을 사용한다 (여러 노드를 띄울 때는 겹치지 않게 지정 권장)
+        this.nodeId = (nodeId < 0 ? ThreadLocalRandom.current().nextInt() : nodeId) & 0xFFFF;
+        log.info("Transaction id node : {}", this.nodeId);
+    }
+
+    @Override
+    public String nextId() {
+        long millis = lastMillis.accumulateAndGet(System.currentTimeMillis(), Math::max);
+        long high = (millis << 16) | nodeId;
+        long low = ThreadLocalRandom.current().nextLong();
+
+        char[] chars = new char[32];
+        writeHex(chars, 0, high);
+        writeHex(chars, 16, low);
+        return new String(chars);
+    }
+
+    private static void writeHex(char[] chars, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.dto.ArchivedTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.archive.enabled", havingValue = "true")
+public class TransactionArchive { // Transaction 테이블에서 옮겨진 오래된 거래들 (archive segment 파일 모음)
+    // 시작할 때 디렉토리의 segment 들의 sparse index 만 메모리에 올려두고,
+    // 거래 확인 / 사용 취소에서 테이블에 없는 거래 아이디를 찾을 때 사용한다
+    // directory 는 모든 노드가 같은 곳을 봐야 한다 (NFS 같은 공유 스토리지)
+    // - segment 는 한 노드(TransactionArchiver 의 락을 잡은 노드)만 쓰고, 테이블의 거래는 모든 노드에서 지워진다
+    // - 다른 노드가 쓴 segment 는 찾는 거래가 없을 때 디렉토리를 다시 읽어서(refresh) 올린다
+
+    private static final String PREFIX = "archive-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int blockSize;
+    // 최근에 만든 segment 가 앞에 온다
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+    private long nextSequence;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public TransactionArchive(
+            MeterRegistry meterRegistry,
+            @Value("${account.archive.directory:./archive}") String directory,
+            @Value("${account.archive.block-size:512}") int blockSize) throws IOException {
+        this.directory = Path.of(directory);
+        this.blockSize = Math.max(1, blockSize);
+        Files.createDirectories(this.directory);
+
+        refresh();
+        log.info("Transaction archive opened : {} segments in {}", segments.size(), this.directory);
+
+        Gauge.builder("account.archive.segments", segments, List::size)
+                .description("archive segment 파일 수")
+                .register(meterRegistry);
+        this.hitCounter = lookupCounter(meterRegistry, "hit");
+        this.missCounter = lookupCounter(meterRegistry, "miss");
+    }
+
+    // 테이블에 없는 거래를 archive 에서 찾는다 (저장되지 않은 Transaction 엔티티로 돌려줌)
+    public Optional<Transaction> find(String transactionId) {
+        Optional<ArchivedTransaction> archived = findArchived(transactionId);
+        (archived.isPresent() ? hitCounter : missCounter).increment();
+        return archived.map(ArchivedTransaction::toTransaction);
+    }
+
+    public boolean contains(String transactionId) {
+        return findArchived(transactionId).isPresent();
+    }
+
+    private Optional<ArchivedTransaction> findArchived(String transactionId) {
+        try {
+            Optional<ArchivedTransaction> archived = search(transactionId);
+            // 없으면 그 사이 다른 노드가 옮긴 거래일 수 있으므로 새 segment 를 읽어와서 한 번 더 찾는다
+            if (archived.isEmpty() && refresh() > 0) {
+                archived = search(transactionId);
+            }
+            return archived;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read transaction archive", e);
+        }
+    }
+
+    private Optional<ArchivedTransaction> search(String transactionId) throws IOException {
+        for (ArchiveSegment segment : segments) {
+            ArchivedTransaction archived = segment.find(transactionId);
+            if (archived != null) {
+                return Optional.of(archived);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // 디렉토리에서 아직 올리지 않은 segment 를 올리고 그 수를 돌려준다
+    // segment 는 번호 순서대로 만들어지고 다 쓴 뒤에 이름이 바뀌므로(.tmp -> .seg) 다음 번호부터만 보면 된다
+    synchronized int refresh() throws IOException {
+        int opened = 0;
+        for (Path path : list()) {
+            if (path.getFileName().toString().endsWith(".tmp") || sequence(path) < nextSequence) {
+                continue;
+            }
+            segments.add(0, ArchiveSegment.open(path));
+            nextSequence = sequence(path) + 1;
+            opened++;
+        }
+        return opened;
+    }
+
+    // 새 segment 파일 하나로 쓴다 (디스크에 내려간 뒤에 돌아오므로 그 다음에 테이블에서 지워도 된다)
+    // TransactionArchiver 의 락을 잡은 노드만 호출한다
+    synchronized void append(List<ArchivedTransaction> transactions) throws IOException {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        // 다른 노드가 마지막으로 쓴 segment 다음 번호로 쓴다
+        refresh();
+        for (Path path : list()) {
+            if (path.getFileName().toString().endsWith(".tmp")) {
+                // 쓰다가 죽은 segment (쓰는 노드는 하나뿐이므로) -> 테이블에서 지우기 전이므로 버려도 된다
+                Files.delete(path);
+            }
+        }
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, nextSequence, SUFFIX));
+        segments.add(0, ArchiveSegment.write(path, transactions, blockSize));
+        nextSequence++;
+        log.info("Archived {} transactions into {}", transactions.size(), path);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        for (ArchiveSegment segment : segments) {
+            segment.close();
+        }
+    }
+
+    private List<Path> list() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> paths = new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().startsWith(PREFIX))
+                    .toList());
+            paths.sort(null);
+            return paths;
+        }
+    }
+
+    private static long sequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("account.archive.lookups")
+                .description("archive 에서 거래를 찾은 결과")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.account.service;
+
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.archive.enabled", havingValue = "true")
+public class TransactionArchiver { // 사용 취소 기간(1년)이 지난 거래를 Transaction 테이블에서 archive 로 옮긴다
+    // 1년이 지난 거래는 취소할 수 없으니(TOO_OLD_ORDER_TO_CANCEL) 조회만 되면 된다
+    // interval-millis 마다 batch-size 건씩 :
+    // 1. 테이블에서 읽어서 segment 파일로 쓰고 fsync (TransactionArchive)
+    // 2. 테이블에서 지운다
+    // 2 전에 죽으면 다음 실행 때 같은 거래가 다시 옮겨질 뿐 사라지지는 않는다 (테이블을 먼저 찾으므로 중복은 문제 없음)
+    // 테이블은 모든 노드가 같이 쓰므로 Redisson 락(account:archive:lock)을 잡은 노드 하나만 옮긴다
+    // 락을 못 잡으면(다른 노드가 옮기는 중, Redis 장애) 이번 주기는 건너뛴다 (account.lock.mode=local 인 단일 노드는 락 없이)
+
+    static final String LOCK_KEY = "account:archive:lock";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter archivedCounter;
+    private final Counter skippedCounter;
+    private final ScheduledExecutorService scheduler;
+    private final RLock archiveLock; // 단일 노드면 null
+
+    public TransactionArchiver(
+            TransactionRepository transactionRepository,
+            TransactionArchive transactionArchive,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            RedissonClient redissonClient,
+            @Value("${account.lock.mode:redis}") String lockMode,
+            @Value("${account.archive.batch-size:10000}") int batchSize,
+            @Value("${account.archive.interval-millis:3600000}") long intervalMillis) {
+        this.transactionRepository = transactionRepository;
+        this.transactionArchive = transactionArchive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.archivedCounter = Counter.builder("account.archive.archived")
+                .description("archive 로 옮긴 거래 수")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("account.archive.skipped")
+                .description("다른 노드가 옮기는 중이라 건너뛴 횟수")
+                .register(meterRegistry);
+        this.archiveLock = "local".equals(lockMode) ? null : redissonClient.getLock(LOCK_KEY);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("transaction-archiver").daemon(true).factory());
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(
+                    this::archiveExpired, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // 이 시각보다 오래된 거래는 테이블에 없고 archive 에 있을 수 있다 (BalanceCheckpointService 도 사용)
+    static LocalDateTime cutoff() {
+        return LocalDateTime.now().minusYears(1);
+    }
+
+    // 1년이 지난 거래를 모두 옮기고 옮긴 거래 수를 돌려준다
+    public long archiveExpired() {
+        try {
+            if (archiveLock == null) {
+                return archive(cutoff());
+            }
+            // 락을 잡고 있는 동안은 watchdog 이 lease 를 늘려준다 (오래 걸려도 다른 노드가 끼어들지 않음)
+            if (!archiveLock.tryLock()) {
+                skippedCounter.increment();
+                return 0;
+            }
+            try {
+                return archive(cutoff());
+            } finally {
+                archiveLock.unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to archive transactions", e);
+            return 0;
+        }
+    }
+
+    long archive(LocalDateTime cutoff) throws IOException {
+        long archived = 0;
+        long afterId = 0;
+        while (true) {
+            long lastId = afterId;
+            List<ArchivedTransaction> chunk = transactionTemplate.execute(status ->
+                    transactionRepository.findArchivable(cutoff, lastId, Limit.of(batchSize)));
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+
+            transactionArchive.append(chunk);
+            List<Long> ids = chunk.stream().map(ArchivedTransaction::getId).toList();
+            transactionTemplate.executeWithoutResult(status ->
+                    transactionRepository.deleteAllByIdInBatch(ids));
+
+            archived += chunk.size();
+            archivedCounter.increment(chunk.size());
+            afterId = ids.get(ids.size() - 1);
+            if (chunk.size() < batchSize) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} transactions older than {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
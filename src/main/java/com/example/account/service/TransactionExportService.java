@@ -0,0 +1,98 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService { // 계좌의 전체(또는 하루치) 거래 내역을 NDJSON / CSV 로 내보내기
+    // 정산팀이 계좌별 / 일자별로 전체 거래 내역을 받아가는 용도
+    // - List<TransactionDto> 로 모으지 않고 DB 커서(Stream)로 읽은 만큼 바로 응답 스트림에 쓴다
+    // - EXPORT_FETCH_SIZE 건마다 영속성 컨텍스트를 비워서 거래가 몇 건이든 메모리 사용량이 일정하다
+
+    private static final String CSV_HEADER =
+            "accountNumber,transactionType,transactionResultType,transactionId,amount,balanceSnapshot,transactedAt\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    // 계좌가 없으면 아무것도 쓰기 전에 ACCOUNT_NOT_FOUND (응답이 아직 커밋되지 않아서 에러 응답을 줄 수 있다)
+    // date 가 null 이면 전체 기간, 아니면 그날 하루치
+    // 내보낸 거래 수를 돌려준다
+    @Transactional
+    public long export(String accountNumber, LocalDate date, ExportFormat format,
+                       OutputStream outputStream) throws IOException {
+
+        Long accountId = accountRepository.findIdByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        LocalDateTime from = date == null ? null : date.atStartOfDay();
+        LocalDateTime to = date == null ? null : date.plusDays(1).atStartOfDay();
+
+        // 응답 스트림은 컨트롤러(서블릿)가 닫으므로 여기서는 flush 만 한다
+        BufferedOutputStream out = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        if (format == ExportFormat.CSV) {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+
+        long count = 0;
+        try (Stream<Transaction> transactions =
+                     transactionRepository.streamForExport(accountId, from, to)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                write(TransactionDto.fromEntity(iterator.next()), format, out);
+
+                if (++count % TransactionRepository.EXPORT_FETCH_SIZE == 0) {
+                    // 이미 쓴 거래 엔티티를 영속성 컨텍스트에서 내보낸다
+                    entityManager.clear();
+                }
+            }
+        }
+        out.flush();
+
+        log.info("Exported {} transactions of {} ({}, {})", count, accountNumber, date, format);
+        return count;
+    }
+
+    private void write(TransactionDto transaction, ExportFormat format, OutputStream out) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            out.write(objectMapper.writeValueAsBytes(transaction));
+            out.write('\n');
+            return;
+        }
+
+        // 모든 값이 숫자 / enum / 16진수 아이디 / 날짜라서 따옴표 처리가 필요 없다
+        String line = transaction.getAccountNumber() + ',' +
+                transaction.getTransactionType() + ',' +
+                transaction.getTransactionResultType() + ',' +
+                transaction.getTransactionId() + ',' +
+                transaction.getAmount() + ',' +
+                transaction.getBalanceSnapshot() + ',' +
+                transaction.getTransactedAt() + '\n';
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.account.service;
+
+/**
+ * 거래 아이디(transactionId) 생성기
+ * - time-ordered : 시간순으로 정렬되는 아이디 (TimeOrderedTransactionIdGenerator, 기본값)
+ * - uuid         : 기존 방식의 랜덤 UUID (UuidTransactionIdGenerator)
+ * 어떤 구현이든 기존과 같은 32자리 16진수 문자열을 만든다
+ * application.yml 의 account.transaction.id-generator 값으로 어떤 구현체를 쓸지 결정한다
+ */
+public interface TransactionIdGenerator {
+
+    String nextId();
+}
@@ -0,0 +1,292 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "account.ledger.enabled", havingValue = "true")
+public class TransactionLedger { // 거래 내역을 ledger 파일에 먼저 기록하고, DB(Transaction 테이블)에는 뒤에서 저장
+    // 1. 잔액을 바꾼 DB 트랜잭션이 커밋되기 직전(beforeCommit)에 ledger 에 기록하고 fsync 될 때까지 기다린다
+    //    -> 커밋되어 응답한 거래는 항상 ledger 에 남아있다
+    // 2. 커밋된 뒤에 대기열에 넣고, writer 스레드가 모아서 Transaction 테이블에 batch insert 한다
+    // 3. 커밋되면 COMMIT 레코드를, 롤백되면 ABORT 레코드를 남긴다
+    // 서버가 죽어서 DB 에 저장되지 못한 거래는 다음 시작 때 LedgerReplayer 가 ledger 에서 다시 채운다
+    // (COMMIT 이 남은 거래는 다시 저장하고, 둘 다 없는 거래는 계좌의 거래 순번으로 커밋 여부를 가려서 저장한다)
+
+    // batch 저장에 실패하면 한 건씩 이 횟수만큼 다시 저장해본다
+    private static final int PERSIST_ATTEMPTS = 3;
+    private static final long PERSIST_RETRY_BACKOFF_MILLIS = 100L;
+
+    private final LedgerFile ledgerFile;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final BlockingQueue<LedgerRecord> persistQueue;
+    // 아직 DB 에 저장되지 않은 거래 (사용 취소 / 거래 확인이 저장될 때까지 기다릴 수 있도록)
+    // 끝내 저장하지 못한 거래는 실패한 future 를 남겨둬서, 없는 거래(TRANSACTION_NOT_FOUND)로 응답하지 않게 한다
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> unpersisted = new ConcurrentHashMap<>();
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public TransactionLedger(
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${account.ledger.directory:./ledger}") String directory,
+            @Value("${account.ledger.segment-bytes:67108864}") long segmentBytes,
+            @Value("${account.ledger.persist-capacity:10000}") int persistCapacity,
+            @Value("${account.ledger.persist-batch-size:100}") int batchSize) throws IOException {
+        this.ledgerFile = new LedgerFile(Path.of(directory), segmentBytes);
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.persistQueue = new LinkedBlockingQueue<>(persistCapacity);
+
+        FunctionCounter.builder("account.ledger.appended", appendedCount, AtomicLong::get)
+                .description("ledger 에 기록한 레코드 수")
+                .register(meterRegistry);
+        FunctionCounter.builder("account.ledger.fsync", ledgerFile.getFsyncCount(), AtomicLong::get)
+                .description("ledger fsync 횟수 (appended 대비 적을수록 group fsync 가 잘 되는 것)")
+                .register(meterRegistry);
+        Gauge.builder("account.ledger.unpersisted", persistQueue, BlockingQueue::size)
+                .description("ledger 에만 있고 아직 DB 에 저장되지 않은 거래 수")
+                .register(meterRegistry);
+
+        this.writer = Thread.ofPlatform()
+                .name("ledger-persist-writer")
+                .daemon(true)
+                .start(this::persistLoop);
+    }
+
+    // 진행 중인 DB 트랜잭션이 커밋될 때 ledger 에 기록되도록 등록하고, 저장 전 엔티티를 그대로 돌려준다
+    public Transaction append(Transaction transaction) {
+        LedgerRecord record = LedgerRecord.of(transaction);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 트랜잭션 밖에서 호출된 경우 바로 기록 (커밋할 DB 트랜잭션이 없으므로 COMMIT 까지 함께)
+            long position = appendAll(List.of(record, record.commit()));
+            awaitDurable(position);
+            enqueue(record);
+            return transaction;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<LedgerRecord> records = (List<LedgerRecord>) TransactionSynchronizationManager.getResource(this);
+        if (records == null) {
+            records = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, records);
+            TransactionSynchronizationManager.registerSynchronization(new LedgerSynchronization(records));
+        }
+        records.add(record);
+        return transaction;
+    }
+
+    // 방금 응답한 거래를 사용 취소 / 조회하는 경우 DB 에 저장될 때까지 기다린다
+    public void awaitPersisted(String transactionId) {
+        CompletableFuture<Void> future = unpersisted.get(transactionId);
+        if (future == null) {
+            return;
+        }
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.INTERNAL_SERVER_ERROR);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("Ledger transaction is not persisted yet : {}", transactionId);
+            throw new AccountException(ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private long appendAll(List<LedgerRecord> records) {
+        try {
+            long position = 0;
+            for (LedgerRecord record : records) {
+                position = ledgerFile.append(record);
+            }
+            appendedCount.addAndGet(records.size());
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to ledger", e);
+        }
+    }
+
+    private void awaitDurable(long position) {
+        try {
+            ledgerFile.awaitDurable(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to fsync ledger", e);
+        }
+    }
+
+    private void enqueue(LedgerRecord record) {
+        unpersisted.put(record.getTransactionId(), new CompletableFuture<>());
+        try {
+            // 대기열이 가득 차면 writer 가 따라올 때까지 기다린다 (backpressure)
+            persistQueue.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // ledger 에는 남아있으므로 다음 시작 때 LedgerReplayer 가 저장한다
+            log.error("Interrupted before persisting ledger transaction : {}", record.getTransactionId());
+            unpersisted.get(record.getTransactionId())
+                    .completeExceptionally(new IllegalStateException("Interrupted before persisting ledger transaction"));
+        }
+    }
+
+    private void persistLoop() {
+        List<LedgerRecord> batch = new ArrayList<>(batchSize);
+        while (running || !persistQueue.isEmpty()) {
+            try {
+                LedgerRecord first = persistQueue.poll(100L, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                persistQueue.drainTo(batch, batchSize - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<LedgerRecord> batch) throws InterruptedException {
+        try {
+            save(batch);
+        } catch (RuntimeException e) {
+            // 한 건 때문에 batch 전체가 롤백됐을 수 있으므로 한 건씩 나눠서 다시 저장한다
+            log.warn("Failed to persist {} ledger transactions, retry one by one", batch.size(), e);
+            for (LedgerRecord record : batch) {
+                persistOne(record);
+            }
+            return;
+        }
+        batch.forEach(this::persisted);
+    }
+
+    private void persistOne(LedgerRecord record) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                save(List.of(record));
+                persisted(record);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == PERSIST_ATTEMPTS) {
+                    // ledger 에는 남아있으므로 다음 시작 때 LedgerReplayer 가 다시 저장한다
+                    // 그 전까지 이 거래를 기다리는 요청은 없는 거래가 아니라 에러로 응답한다
+                    log.error("Failed to persist ledger transaction : {}", record.getTransactionId(), e);
+                    CompletableFuture<Void> future = unpersisted.get(record.getTransactionId());
+                    if (future != null) {
+                        future.completeExceptionally(e);
+                    }
+                    return;
+                }
+                Thread.sleep(PERSIST_RETRY_BACKOFF_MILLIS * attempt);
+            }
+        }
+    }
+
+    private void save(List<LedgerRecord> records) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> transactions = new ArrayList<>(records.size());
+            for (LedgerRecord record : records) {
+                Transaction transaction = record.toTransaction();
+                transaction.setAccount(accountRepository.getReferenceById(record.getAccountId()));
+                transactions.add(transaction);
+            }
+            transactionRepository.saveAll(transactions);
+        });
+    }
+
+    private void persisted(LedgerRecord record) {
+        CompletableFuture<Void> future = unpersisted.remove(record.getTransactionId());
+        if (future != null) {
+            future.complete(null);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        ledgerFile.close();
+    }
+
+    private final class LedgerSynchronization implements TransactionSynchronization {
+        private final List<LedgerRecord> records;
+        private boolean appended;
+
+        private LedgerSynchronization(List<LedgerRecord> records) {
+            this.records = records;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // 여기서 예외가 나면 DB 트랜잭션도 롤백된다 (ledger 에 남지 않은 거래는 커밋되지 않음)
+            appended = true;
+            awaitDurable(appendAll(records));
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TransactionLedger.this);
+            if (status == STATUS_COMMITTED) {
+                try {
+                    // fsync 는 기다리지 않고 다음 group fsync 에 함께 내려간다
+                    // 그 전에 죽으면 DB 에 저장되지 못한 거래는 복구할 때 계좌의 거래 순번으로 커밋 여부를 가린다
+                    appendAll(records.stream().map(LedgerRecord::commit).toList());
+                } catch (RuntimeException e) {
+                    log.error("Failed to append ledger commit records", e);
+                }
+                records.forEach(TransactionLedger.this::enqueue);
+                return;
+            }
+            if (appended) {
+                // 기록한 뒤 커밋에 실패 -> 복구할 때 제외하도록 ABORT 를 남긴다
+                try {
+                    awaitDurable(appendAll(records.stream().map(LedgerRecord::abort).toList()));
+                } catch (RuntimeException e) {
+                    log.error("Failed to append ledger abort records", e);
+                }
+            }
+        }
+    }
+}
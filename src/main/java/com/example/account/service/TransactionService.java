@@ -1,35 +1,66 @@
 package com.example.account.service;
 
+import com.example.account.aop.OptimisticRetry;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.FailedTransaction;
+import com.example.account.dto.TransactionHistory;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceResult;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
-import com.example.account.repository.AccountUserRepository;
 import com.example.account.repository.TransactionRepository;
 import com.example.account.type.AccountStatus;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionMode;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
     private final TransactionRepository transactionRepository;
-    private final AccountUserRepository accountUserRepository;
+    private final AccountUserCache accountUserCache;
     private final AccountRepository accountRepository;
+    private final AccountNumberCache accountNumberCache; // 계좌번호 -> id 는 캐시, 계좌는 id 로 읽는다
+    private final TransactionIdGenerator transactionIdGenerator;
+
+    @Value("${account.transaction.mode:lock}")
+    private TransactionMode transactionMode = TransactionMode.LOCK;
+
+    // account.ledger.enabled=true 일 때만 주입 -> 거래 내역을 ledger 파일에 기록하고 DB 에는 비동기로 저장
+    @Autowired(required = false)
+    private TransactionLedger transactionLedger;
+
+    // account.archive.enabled=true 일 때만 주입 -> 1년이 지난 거래는 테이블 대신 archive 파일에 있다
+    @Autowired(required = false)
+    private TransactionArchive transactionArchive;
+
+    // account.balance-checkpoint.enabled=true 일 때만 주입 -> 잔액을 바꾼 거래 수를 세서 체크포인트를 남긴다
+    @Autowired(required = false)
+    private BalanceCheckpointService balanceCheckpointService;
 
     /*- 정책 : 1. 사용자 없는 경우
              2. 사용자 아이디 != 계좌 소유주
@@ -38,14 +69,21 @@ public class TransactionService {
              5. 거래금액이 너무 작거나 큰 경우
             ➡️실패 응답
 				*/
+    @OptimisticRetry
     @Transactional // 동시에 일어나거나 동시에 일어나지 않거나
     // 밑의 코드 상에서는 useBlanace (update) 와 save() (insert) 가 동시에 일어나거나 동시에 실패하거나
     public TransactionDto useBalance(
             Long userId, String accountNumber, Long amount){
 
-        AccountUser user = accountUserRepository.findById(userId)
+        if (transactionMode == TransactionMode.ATOMIC) {
+            return useBalanceAtomically(userId, accountNumber, amount);
+        }
+
+        guardAccountWrite(accountNumber);
+
+        AccountUser user = accountUserCache.findById(userId)
                 .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
-        Account account = accountRepository.findByAccountNumber(accountNumber)
+        Account account = accountNumberCache.findAccount(accountNumber)
                 .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
 
         // 실패 응답 정책
@@ -57,6 +95,74 @@ public class TransactionService {
         return TransactionDto.fromEntity(saveAndGetTransaction(TransactionResultType.S, TransactionType.USE, amount, account));
     }
 
+    // atomic 모드 : 조건부 UPDATE 의 변경 건수로 성공 여부를 판단한다 (외부 락 불필요)
+    // 실패했을 때만 계좌를 다시 읽어서 기존과 같은 에러코드를 돌려준다
+    private TransactionDto useBalanceAtomically(
+            Long userId, String accountNumber, Long amount) {
+
+        if (accountRepository.useBalanceIfAvailable(userId, accountNumber, amount) == 0) {
+            throw diagnoseFailedUseBalance(userId, accountNumber, amount);
+        }
+
+        // 같은 트랜잭션 안에서 변경된 잔액을 다시 읽어 거래 내역(balanceSnapshot)에 남긴다
+        Account account = accountNumberCache.findAccount(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        return TransactionDto.fromEntity(saveAndGetTransaction(TransactionResultType.S, TransactionType.USE, amount, account));
+    }
+
+    private AccountException diagnoseFailedUseBalance(
+            Long userId, String accountNumber, Long amount) {
+
+        AccountUser user = accountUserCache.findById(userId)
+                .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+        Account account = accountNumberCache.findAccount(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        validateUseBalance(user, account, amount);
+
+        // 다시 읽어보니 조건을 만족한다 -> 그 사이 다른 거래가 잔액/상태를 바꾼 경우
+        log.error("Atomic use balance failed but validation passed : {}", accountNumber);
+        return new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+    }
+
+    // 계좌를 읽기 전에 호출해서, 이 트랜잭션이 끝날 때까지 다른 쓰기가 끼어들지 못하게 한다
+    // - Redis 락을 못 잡고 DB 락으로 전환된 경우 : 계좌 row 에 PESSIMISTIC_WRITE 락
+    // - Redis 락을 잡은 경우 : fencing token 확인
+    private void guardAccountWrite(String accountNumber) {
+        if (AccountLockContext.isDatabaseLock(accountNumber)) {
+            lockAccountRow(accountNumber);
+            return;
+        }
+        checkFencingToken(accountNumber);
+    }
+
+    private void lockAccountRow(String accountNumber) {
+        try {
+            // 여기서 읽은 엔티티는 영속성 컨텍스트에 남아서 이후 조회에서도 그대로 사용된다
+            accountRepository.findByAccountNumberForUpdate(accountNumber);
+        } catch (PessimisticLockingFailureException e) {
+            log.error("Database lock timeout for accountNumber : {}", accountNumber);
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
+    // 분산 락의 lease 가 만료된 뒤에도 계속 실행 중이던 요청이 잔액을 덮어쓰지 못하게 막는다
+    // 통과한 경우 더 큰 token 의 쓰기가 이 트랜잭션이 끝날 때까지 기다린다
+    private void checkFencingToken(String accountNumber) {
+        Long fencingToken = AccountLockContext.getFencingToken(accountNumber);
+        if (fencingToken == null) {
+            return;
+        }
+
+        if (accountRepository.fence(accountNumber, fencingToken) == 0
+                && accountNumberCache.findAccount(accountNumber).isPresent()) {
+            // (계좌가 없는 경우는 뒤에서 ACCOUNT_NOT_FOUND 로 처리된다)
+            log.error("Stale fencing token {} for accountNumber : {}", fencingToken, accountNumber);
+            throw new AccountException(ErrorCode.ACCOUNT_LOCK_EXPIRED);
+        }
+    }
+
     private void validateUseBalance(AccountUser user, Account account, Long amount) {
         // 2. 사용자 아이디 != 계좌 소유주
         if (!Objects.equals(user.getId(), account.getAccountUser().getId())) {
@@ -73,13 +179,104 @@ public class TransactionService {
 
     }
 
+    /*
+        같은 계좌에 대한 여러 건의 잔액 사용을 하나의 트랜잭션에서 들어온 순서대로 처리
+        - 호출하는 쪽에서 해당 계좌의 락을 한 번만 잡고 호출해야 한다
+        - 한 건이 실패해도 나머지는 계속 처리하고, 건별 결과(성공/에러코드)를 돌려준다
+          (실패 건은 검증 단계에서 걸러지므로 잔액을 바꾸지 않고, 트랜잭션도 롤백시키지 않는다)
+    */
     @Transactional
-    public void saveFailedUseTransaction(String accountNumber, Long amount) {
-        Account account =
-                accountRepository.findByAccountNumber(accountNumber)
-                        .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+    public List<UseBalanceResult> useBalances(
+            String accountNumber, List<UseBalance.Request> requests) {
 
-        saveAndGetTransaction(TransactionResultType.F, TransactionType.USE, amount, account);
+        return useBalances(accountNumber, requests, false);
+    }
+
+    // saveFailures : 실패한 건의 거래 내역(F)도 같은 트랜잭션에서 함께 저장한다 (배치 엔드포인트)
+    // 실패 건은 롤백을 일으키지 않으므로 단건 엔드포인트처럼 FailedTransactionJournal 로 따로 저장할 필요가 없다
+    @Transactional
+    public List<UseBalanceResult> useBalances(
+            String accountNumber, List<UseBalance.Request> requests, boolean saveFailures) {
+
+        if (transactionMode == TransactionMode.ATOMIC || transactionMode == TransactionMode.OPTIMISTIC) {
+            // 이 모드의 단건 요청은 계좌 락을 잡지 않으므로 여러 건을 처리하는 동안 계좌 row 를 잠가둔다
+            lockAccountRow(accountNumber);
+        } else {
+            guardAccountWrite(accountNumber);
+        }
+
+        Account account = accountNumberCache.findAccount(accountNumber)
+                .orElse(null);
+        Map<Long, AccountUser> users = new HashMap<>();
+        List<UseBalanceResult> results = new ArrayList<>(requests.size());
+
+        for (UseBalance.Request request : requests) {
+            try {
+                AccountUser user = users.get(request.getUserId());
+                if (user == null) {
+                    user = accountUserCache.findById(request.getUserId())
+                            .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+                    users.put(request.getUserId(), user);
+                }
+                if (account == null) {
+                    throw new AccountException(ErrorCode.ACCOUNT_NOT_FOUND);
+                }
+
+                validateUseBalance(user, account, request.getAmount());
+
+                account.useBalance(request.getAmount());
+
+                results.add(UseBalanceResult.success(TransactionDto.fromEntity(
+                        saveAndGetTransaction(TransactionResultType.S, TransactionType.USE, request.getAmount(), account))));
+            } catch (AccountException e) {
+                results.add(UseBalanceResult.failure(e.getErrorCode()));
+                if (saveFailures && account != null) {
+                    saveAndGetTransaction(TransactionResultType.F, TransactionType.USE, request.getAmount(), account);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /*
+        FailedTransactionJournal 에 쌓인 실패 거래 내역을 한 번에 저장 (계좌 조회 1번 + batch insert)
+        - balanceSnapshot 은 저장하는 시점의 잔액 (실패한 거래는 잔액을 바꾸지 않으므로 보통 같은 값)
+        - 계좌가 없는 건은 남길 계좌가 없으므로 저장하지 않는다
+    */
+    @Transactional
+    public int saveFailedTransactions(List<FailedTransaction> failedTransactions) {
+        Set<String> accountNumbers = new HashSet<>();
+        for (FailedTransaction failedTransaction : failedTransactions) {
+            accountNumbers.add(failedTransaction.getAccountNumber());
+        }
+        Map<String, Account> accounts = new HashMap<>();
+        for (Account account : accountRepository.findByAccountNumberIn(accountNumbers)) {
+            accounts.put(account.getAccountNumber(), account);
+        }
+
+        List<Transaction> transactions = new ArrayList<>(failedTransactions.size());
+        for (FailedTransaction failedTransaction : failedTransactions) {
+            Account account = accounts.get(failedTransaction.getAccountNumber());
+            if (account == null) {
+                continue;
+            }
+            transactions.add(Transaction.builder()
+                    .transactionType(failedTransaction.getTransactionType())
+                    .transactionResultType(TransactionResultType.F)
+                    .account(account)
+                    .amount(failedTransaction.getAmount())
+                    .balanceSnapshot(account.getBalance())
+                    .transactionId(transactionIdGenerator.nextId())
+                    .transactedAt(failedTransaction.getTransactedAt())
+                    .build());
+        }
+        if (transactionLedger != null) {
+            transactions.forEach(transactionLedger::append);
+        } else {
+            transactionRepository.saveAll(transactions);
+        }
+        return transactions.size();
     }
 
     private Transaction saveAndGetTransaction(
@@ -87,16 +284,40 @@ public class TransactionService {
             TransactionType transactionType,
             Long amount, Account account) {
 
-        return transactionRepository.save(
-                Transaction.builder()
-                        .transactionType(transactionType)
-                        .transactionResultType(transactionResultType)
-                        .account(account)
-                        .amount(amount)
-                        .balanceSnapshot(account.getBalance())
-                        .transactionId(UUID.randomUUID().toString().replace("-", ""))
-                        .transactedAt(LocalDateTime.now())
-                        .build());
+        Transaction transaction = Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .account(account)
+                .amount(amount)
+                .balanceSnapshot(account.getBalance())
+                .transactionId(transactionIdGenerator.nextId())
+                .transactedAt(LocalDateTime.now())
+                // 잔액을 바꾼 거래만 계좌별 순번을 가진다 (잔액을 바꾸면서 Account.transactionSeq 도 올라가 있음)
+                .accountSeq(transactionResultType == TransactionResultType.S ? account.getTransactionSeq() : null)
+                .build();
+
+        if (balanceCheckpointService != null && transactionResultType == TransactionResultType.S) {
+            balanceCheckpointService.recordTransaction(account.getId());
+        }
+
+        if (transactionLedger != null) {
+            // 커밋 직전에 ledger 에 기록(fsync)하고, Transaction 테이블에는 커밋 뒤에 비동기로 저장된다
+            return transactionLedger.append(transaction);
+        }
+        return transactionRepository.save(transaction);
+    }
+
+    // ledger 모드에서 방금 응답한 거래는 아직 DB 에 없을 수 있으므로 저장될 때까지 기다린다
+    // 테이블에 없으면 archive 로 옮겨진 오래된 거래인지 확인한다
+    private Optional<Transaction> findTransaction(String transactionId) {
+        if (transactionLedger != null) {
+            transactionLedger.awaitPersisted(transactionId);
+        }
+        Optional<Transaction> transaction = transactionRepository.findByTransactionId(transactionId);
+        if (transaction.isEmpty() && transactionArchive != null) {
+            return transactionArchive.find(transactionId);
+        }
+        return transaction;
     }
 
 
@@ -109,21 +330,31 @@ public class TransactionService {
         - 해당 계좌에서 거래(사용, 사용 취소)가 진행 중일 때
         다른 거래 요청이 오는 경우 해당 거래가 동시에 잘못 처리되는 것을 방지해야 한다.
     */
+    @OptimisticRetry
     @Transactional
     public TransactionDto cancelBalance(
             String transactionId, String accountNumber, Long amount) {
 
+        guardAccountWrite(accountNumber);
+
         Transaction transaction =
-                transactionRepository.findByTransactionId(transactionId)
+                findTransaction(transactionId)
                         .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
 
         Account account =
-                accountRepository.findByAccountNumber(accountNumber)
+                accountNumberCache.findAccount(accountNumber)
                         .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
 
         validateCancleBalance(transaction, account, amount);
 
-        account.cancelBalance(amount);
+        if (transactionMode == TransactionMode.ATOMIC) {
+            // 엔티티 수정 대신 UPDATE balance = balance + amount 로 반영한 뒤 변경된 잔액을 다시 읽는다
+            accountRepository.cancelBalance(account.getId(), amount);
+            account = accountRepository.findById(account.getId())
+                    .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        } else {
+            account.cancelBalance(amount);
+        }
 
         return TransactionDto.fromEntity(saveAndGetTransaction(TransactionResultType.S, TransactionType.CANCLE, amount, account));
     }
@@ -146,29 +377,57 @@ public class TransactionService {
         }
     }
 
+
+/*
+    해당 거래 아이디의 거래가 없는 경우
+	➡️ 실패 응답
+*/
     @Transactional
-    public void saveFailedCancelTransaction(
-            String accountNumber, Long amount) {
+    public TransactionDto queryTransaction(String transactionId) {
+        if (transactionLedger != null) {
+            transactionLedger.awaitPersisted(transactionId);
+        }
 
-        Account account =
-                accountRepository.findByAccountNumber(accountNumber)
-                                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        // 테이블에 있으면 쿼리 1번으로 DTO 를 바로 받고, 없을 때만 archive 에서 찾는다
+        Optional<TransactionDto> transactionDto = transactionRepository.findDtoByTransactionId(transactionId);
+        if (transactionDto.isEmpty() && transactionArchive != null) {
+            transactionDto = transactionArchive.find(transactionId).map(TransactionDto::fromEntity);
+        }
 
-        saveAndGetTransaction(TransactionResultType.F, TransactionType.CANCLE, amount, account);
+        return transactionDto.orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
     }
 
-
 /*
-    해당 거래 아이디의 거래가 없는 경우
-	➡️ 실패 응답
+    계좌별 거래 내역 (최신순)
+    - 계좌가 없는 경우 ➡️ 실패 응답
+    - size + 1 건을 읽어서 다음 페이지가 있는지 확인하고, 있으면 마지막 건으로 커서를 만든다
 */
     @Transactional
-    public TransactionDto queryTransaction(String transactionId) {
+    public TransactionHistory.Response getTransactions(
+            String accountNumber, TransactionType transactionType,
+            TransactionResultType transactionResultType, String cursor, int size) {
 
-        Transaction transaction =
-                transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
+        Long accountId = accountRepository.findIdByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        TransactionHistory.Cursor after = cursor == null ? null : TransactionHistory.Cursor.decode(cursor);
+        List<TransactionHistory.Item> items = after == null
+                ? transactionRepository.findHistory(
+                accountId, transactionType, transactionResultType, Limit.of(size + 1))
+                : transactionRepository.findHistoryBefore(
+                accountId, transactionType, transactionResultType,
+                after.getTransactedAt(), after.getId(), Limit.of(size + 1));
+
+        String nextCursor = null;
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            nextCursor = TransactionHistory.Cursor.of(items.get(size - 1)).encode();
+        }
 
-        return TransactionDto.fromEntity(transaction);
+        return TransactionHistory.Response.builder()
+                .accountNumber(accountNumber)
+                .transactions(items)
+                .nextCursor(nextCursor)
+                .build();
     }
 }
@@ -0,0 +1,132 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceResult;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class UseBalanceBatchService { // 여러 건의 잔액 사용 요청을 한 번에 처리 (/transaction/use/batch)
+    // 요청을 계좌번호별로 묶어서, 계좌마다 락 1번 + DB 트랜잭션 1번(useBalances)으로 들어온 순서대로 처리한다
+    // 계좌 락은 transaction mode 에 맞춰서 잡는다
+    // - lock / group : LockStrategy 로 계좌 락
+    // - queue : 계좌별 대기열에서 한 번에 실행
+    // - optimistic / atomic : 외부 락 없이 useBalances 안에서 계좌 row 락
+
+    static final LockPolicy BATCH_LOCK = LockPolicy.of("TransactionController.useBalanceBatch");
+
+    private final TransactionService transactionService;
+    private final LockStrategy lockStrategy;
+    private final AccountCommandQueue accountCommandQueue;
+    private final TransactionMode transactionMode;
+    private final LockedEndpoint lockedEndpoint;
+
+    public UseBalanceBatchService(
+            TransactionService transactionService,
+            LockStrategy lockStrategy,
+            AccountCommandQueue accountCommandQueue,
+            MeterRegistry meterRegistry,
+            @Value("${account.transaction.mode:lock}") TransactionMode transactionMode) {
+        this.transactionService = transactionService;
+        this.lockStrategy = lockStrategy;
+        this.accountCommandQueue = accountCommandQueue;
+        this.transactionMode = transactionMode;
+        this.lockedEndpoint = LockedEndpoint.of(BATCH_LOCK, meterRegistry);
+    }
+
+    // 요청과 같은 순서로 건별 결과를 돌려준다
+    // 실패한 건의 거래 내역(F)은 단건 엔드포인트(FailedTransactionJournal)와 같이 남긴다 (여기서는 같은 트랜잭션에서 바로 저장)
+    // (락을 잡지 못한 경우는 단건과 마찬가지로 내역 없이 ACCOUNT_TRANSACTION_LOCK)
+    public List<UseBalanceResult> useBalances(List<UseBalance.Request> requests) {
+        Map<String, List<Integer>> indexesByAccount = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            indexesByAccount.computeIfAbsent(requests.get(i).getAccountNumber(), key -> new ArrayList<>())
+                    .add(i);
+        }
+
+        UseBalanceResult[] results = new UseBalanceResult[requests.size()];
+        for (Map.Entry<String, List<Integer>> entry : indexesByAccount.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            List<UseBalance.Request> accountRequests = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                accountRequests.add(requests.get(index));
+            }
+
+            List<UseBalanceResult> accountResults = useBalances(entry.getKey(), accountRequests);
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = accountResults.get(i);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<UseBalanceResult> useBalances(String accountNumber, List<UseBalance.Request> requests) {
+        log.debug("Batch use balance {} requests for accountNumber : {}", requests.size(), accountNumber);
+
+        try {
+            return switch (transactionMode) {
+                case LOCK, GROUP -> useBalancesWithLock(accountNumber, requests);
+                case QUEUE -> useBalancesInQueue(accountNumber, requests);
+                case OPTIMISTIC, ATOMIC -> transactionService.useBalances(accountNumber, requests, true);
+            };
+        } catch (AccountException e) {
+            // 락 획득 실패, 대기열 초과 등 계좌 단위 실패 -> 해당 계좌의 모든 건에 같은 에러코드
+            log.error("Batch use balance failed for accountNumber : {}", accountNumber);
+            return failures(requests.size(), e.getErrorCode());
+        } catch (RuntimeException e) {
+            // 한 계좌의 DB 오류 등으로 이미 처리된 다른 계좌의 결과까지 잃지 않도록 건별 결과로 돌려준다
+            // (OutOfMemoryError 같은 Error 는 건별 결과로 삼키지 않고 그대로 던진다)
+            log.error("Batch use balance failed for accountNumber : {}", accountNumber, e);
+            return failures(requests.size(), ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private List<UseBalanceResult> useBalancesInQueue(
+            String accountNumber, List<UseBalance.Request> requests) {
+
+        try {
+            return accountCommandQueue.execute(accountNumber, lockedEndpoint.getPolicy().getWaitMillis(),
+                    () -> transactionService.useBalances(accountNumber, requests, true));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (Throwable t) {
+            // useBalances 는 checked 예외를 던지지 않으므로 여기로 오지 않는다
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private List<UseBalanceResult> useBalancesWithLock(
+            String accountNumber, List<UseBalance.Request> requests) {
+
+        lockedEndpoint.lock(lockStrategy, accountNumber);
+        try {
+            return transactionService.useBalances(accountNumber, requests, true);
+        } finally {
+            lockedEndpoint.unlock(lockStrategy, accountNumber);
+        }
+    }
+
+    private static List<UseBalanceResult> failures(int size, ErrorCode errorCode) {
+        List<UseBalanceResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(UseBalanceResult.failure(errorCode));
+        }
+        return results;
+    }
+}
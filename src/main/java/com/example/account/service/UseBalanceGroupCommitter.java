@@ -0,0 +1,177 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceResult;
+import com.example.account.exception.AccountException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "account.transaction.mode", havingValue = "group")
+public class UseBalanceGroupCommitter { // 같은 계좌의 잔액 사용 요청을 모아서 한번에 커밋 (group commit)
+    // 한 묶음(batch)을 커밋하는 동안 들어온 요청들은 대기열에 쌓이고,
+    // 커밋이 끝나면 쌓인 요청들을 다음 묶음으로 만들어 락 1번 + DB 트랜잭션 1번으로 처리한다
+    // 별도의 스레드 없이 먼저 도착한 요청 스레드(leader)가 커밋한다
+    // leader 는 자기 요청이 들어간 묶음까지만 커밋하고, 대기열이 남아 있으면 맨 앞의 요청 스레드에게 leader 를 넘긴다
+    // -> 요청이 계속 들어와도 한 요청 스레드가 끝없이 커밋만 하지 않는다 (응답 시간 = 대기 + 묶음 1번)
+
+    private final TransactionService transactionService;
+    private final LockStrategy lockStrategy;
+    private final int maxBatchSize;
+
+    private final ConcurrentHashMap<String, Group> groups = new ConcurrentHashMap<>();
+
+    public UseBalanceGroupCommitter(
+            TransactionService transactionService,
+            LockStrategy lockStrategy,
+            @Value("${account.group-commit.max-batch-size:100}") int maxBatchSize) {
+        this.transactionService = transactionService;
+        this.lockStrategy = lockStrategy;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    public TransactionDto useBalance(Long userId, String accountNumber, Long amount) {
+        Pending pending = new Pending(new UseBalance.Request(userId, accountNumber, amount));
+
+        while (true) {
+            Group group = groups.computeIfAbsent(accountNumber, key -> new Group());
+            Boolean leader = group.enqueue(pending);
+            if (leader == null) {
+                // 방금 정리된 group -> 새 group 으로 다시 시도
+                continue;
+            }
+            if (leader) {
+                commitAll(accountNumber, group, pending);
+            } else {
+                // 다른 leader 가 처리해 주거나, leader 를 넘겨받을 때까지 기다린다
+                CompletableFuture.anyOf(pending.future, pending.turn).join();
+                if (!pending.future.isDone()) {
+                    commitAll(accountNumber, group, pending);
+                }
+            }
+            break;
+        }
+
+        UseBalanceResult result;
+        try {
+            result = pending.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+
+        if (!result.isSuccess()) {
+            throw new AccountException(result.getErrorCode());
+        }
+        return result.getTransactionDto();
+    }
+
+    // 자기 요청(self)이 처리될 때까지만 커밋하고 leader 를 넘긴다
+    private void commitAll(String accountNumber, Group group, Pending self) {
+        try {
+            while (!self.future.isDone()) {
+                List<Pending> batch = group.drain();
+                if (batch.isEmpty()) {
+                    return;
+                }
+                commit(accountNumber, batch);
+            }
+        } finally {
+            group.handOff(accountNumber);
+        }
+    }
+
+    private void commit(String accountNumber, List<Pending> batch) {
+        List<UseBalance.Request> requests = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            requests.add(pending.request);
+        }
+        log.debug("Group commit {} requests for accountNumber : {}", requests.size(), accountNumber);
+
+        try {
+            List<UseBalanceResult> results;
+            lockStrategy.lock(accountNumber);
+            try {
+                results = transactionService.useBalances(accountNumber, requests);
+            } finally {
+                lockStrategy.unlock(accountNumber);
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            // 락 획득 실패, DB 오류 등 묶음 전체가 실패한 경우 -> 모든 요청에 같은 예외를 전달
+            log.error("Group commit failed for accountNumber : {}", accountNumber);
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Pending {
+        private final UseBalance.Request request;
+        private final CompletableFuture<UseBalanceResult> future = new CompletableFuture<>();
+        private final CompletableFuture<Void> turn = new CompletableFuture<>(); // leader 를 넘겨받으면 완료
+
+        private Pending(UseBalance.Request request) {
+            this.request = request;
+        }
+    }
+
+    private final class Group {
+        // 아래 값들은 this 로 동기화
+        private final Queue<Pending> pendings = new ArrayDeque<>();
+        private boolean committing;
+        private boolean retired;
+
+        // 대기열에 넣고, 현재 커밋 중인 leader 가 없으면 호출한 스레드가 leader 가 된다 (true)
+        // 이미 정리된 group 이면 null
+        private synchronized Boolean enqueue(Pending pending) {
+            if (retired) {
+                return null;
+            }
+            pendings.add(pending);
+            if (committing) {
+                return false;
+            }
+            committing = true;
+            return true;
+        }
+
+        private synchronized List<Pending> drain() {
+            List<Pending> batch = new ArrayList<>(Math.min(pendings.size(), maxBatchSize));
+            while (!pendings.isEmpty() && batch.size() < maxBatchSize) {
+                batch.add(pendings.poll());
+            }
+            return batch;
+        }
+
+        // leader 가 끝날 때 호출 : 남은 요청이 있으면 맨 앞의 요청 스레드가 다음 leader (committing 은 그대로 유지)
+        private synchronized void handOff(String accountNumber) {
+            Pending next = pendings.peek();
+            if (next != null) {
+                next.turn.complete(null);
+                return;
+            }
+            // 더 이상 처리할 요청이 없으면 leader 역할을 끝내고 map 에서도 제거
+            committing = false;
+            retired = true;
+            groups.remove(accountNumber, this);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.account.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+@Component
+@ConditionalOnProperty(name = "account.transaction.id-generator", havingValue = "uuid")
+public class UuidTransactionIdGenerator implements TransactionIdGenerator {
+    // 기존 방식 : SecureRandom 으로 만든 UUID 에서 '-' 를 뺀 32자리 문자열
+    // 순서가 없어서 transaction_id 인덱스의 아무 위치에나 insert 된다
+
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+}
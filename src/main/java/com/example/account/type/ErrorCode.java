@@ -20,7 +20,14 @@ public enum ErrorCode {
     TOO_OLD_ORDER_TO_CANCEL("1년이 지난 거래는 취소가 불가능합니다."),
     INVALID_REQUEST("잘못된 요청입니다."),
     INTERNAL_SERVER_ERROR("내부 서버 오류가 발생했습니다."),
-    ACCOUNT_TRANSACTION_LOCK("해당 계좌는 사용중입니다.");
+    ACCOUNT_TRANSACTION_LOCK("해당 계좌는 사용중입니다."),
+    ACCOUNT_QUEUE_FULL("해당 계좌에 대기중인 거래가 너무 많습니다."),
+    ACCOUNT_LOCK_EXPIRED("계좌 락이 만료되어 거래를 처리할 수 없습니다."),
+    IDEMPOTENCY_KEY_REUSED("같은 Idempotency-Key 로 다른 요청을 보낼 수 없습니다."),
+    IDEMPOTENT_REQUEST_IN_PROGRESS("같은 Idempotency-Key 의 요청이 처리중입니다."),
+    IDEMPOTENCY_UNAVAILABLE("Idempotency-Key 를 확인할 수 없습니다. 잠시 후 다시 시도해주세요."),
+    BALANCE_HISTORY_INCOMPLETE("아직 저장되지 않은 거래가 있어 잔액을 계산할 수 없습니다."),
+    BALANCE_HISTORY_ARCHIVED("archive 로 옮겨진 기간의 잔액은 계산할 수 없습니다.");
     private final String description;
 
 }
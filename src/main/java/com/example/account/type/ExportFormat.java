@@ -0,0 +1,15 @@
+package com.example.account.type;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// 거래 내역 내보내기 형식 (GET /account/{accountNumber}/transactions/export?format=)
+@Getter
+@AllArgsConstructor
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"), // 한 줄에 거래 1건(JSON)
+    CSV("text/csv", "csv");                   // 첫 줄은 헤더
+
+    private final String contentType;
+    private final String extension;
+}
@@ -0,0 +1,10 @@
+package com.example.account.type;
+
+// 잔액 변경(사용/취소) 시 동시성을 제어하는 방식 (application.yml : account.transaction.mode)
+public enum TransactionMode {
+    LOCK,       // @AccountLock 으로 계좌 락을 잡고 엔티티를 수정
+    OPTIMISTIC, // 락 없이 @Version 충돌 시 재시도
+    ATOMIC,     // 락 없이 조건부 UPDATE 한 번으로 잔액 변경
+    QUEUE,      // @AccountLock(queue = true) 인 엔드포인트는 계좌별 대기열(mailbox)에 넣고 계좌마다 하나의 워커가 순서대로 처리 (나머지는 LOCK 과 같음)
+    GROUP,      // 같은 계좌의 잔액 사용 요청을 모아서 한 번의 락 / 한 번의 DB 트랜잭션으로 처리
+}
@@ -1,8 +1,13 @@
 package com.example.account.controller;
 
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistory;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceResult;
+import com.example.account.service.FailedTransactionJournal;
 import com.example.account.service.TransactionService;
+import com.example.account.service.UseBalanceBatchService;
+import com.example.account.type.ErrorCode;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -15,10 +20,15 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -29,6 +39,12 @@ public class TransactionControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private FailedTransactionJournal failedTransactionJournal;
+
+    @MockBean
+    private UseBalanceBatchService useBalanceBatchService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -64,4 +80,59 @@ public class TransactionControllerTest {
         // 📍 왜 build에서 모든 필드를 빌드하지 않는지?
         // 📍 또 Expect에서는 빌드 한 모든 필드를 테스트하지 않는지?
     }
+
+    @Test
+    void useBalanceBatch() throws Exception {
+        //given (두번째 건은 금액이 너무 작아 검증 실패 -> 서비스에는 나머지 두 건만 전달됨)
+        given(useBalanceBatchService.useBalances(anyList()))
+                .willReturn(List.of(
+                        UseBalanceResult.success(TransactionDto.builder()
+                                .accountNumber("1000000000")
+                                .transactionResultType(TransactionResultType.S)
+                                .amount(1000L)
+                                .transactionId("transactionId")
+                                .transactedAt(LocalDateTime.now())
+                                .build()),
+                        UseBalanceResult.failure(ErrorCode.AMOUNT_EXCEED_BALANCE)));
+
+        //when
+        //then (요청 순서대로 건별 응답)
+        mockMvc.perform(post("/transaction/use/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(
+                        new UseBalance.Request(1L, "1000000000", 1000L),
+                        new UseBalance.Request(1L, "1000000000", 1L),
+                        new UseBalance.Request(1L, "1000000001", 2000L)
+                )))
+        ).andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(3))
+        .andExpect(jsonPath("$[0].transactionId").value("transactionId"))
+        .andExpect(jsonPath("$[1].errorCode").value("INVALID_REQUEST"))
+        .andExpect(jsonPath("$[2].errorCode").value("AMOUNT_EXCEED_BALANCE"));
+    }
+
+    @Test
+    void getTransactions() throws Exception {
+        //given
+        given(transactionService.getTransactions(
+                eq("1000000000"), eq(TransactionType.USE), isNull(), isNull(), eq(2)))
+                .willReturn(TransactionHistory.Response.builder()
+                        .accountNumber("1000000000")
+                        .transactions(List.of(new TransactionHistory.Item(
+                                10L, TransactionType.USE, TransactionResultType.S,
+                                "transactionId", 1000L, 9000L, LocalDateTime.now())))
+                        .nextCursor("nextCursor")
+                        .build());
+
+        //when
+        //then (내부 id 는 응답에 포함되지 않음)
+        mockMvc.perform(get("/account/1000000000/transactions?transactionType=USE&size=2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.transactions[0].balanceSnapshot").value(9000L))
+                .andExpect(jsonPath("$.transactions[0].id").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("nextCursor"));
+    }
 }
@@ -0,0 +1,68 @@
+package com.example.account.controller;
+
+import com.example.account.exception.AccountException;
+import com.example.account.service.TransactionExportService;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.ExportFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TransactionExportController.class)
+class TransactionExportControllerTest {
+    @MockBean
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void exportCsv() throws Exception {
+        //given
+        given(transactionExportService.export(
+                eq("1000000000"), eq(LocalDate.of(2022, 6, 1)), eq(ExportFormat.CSV), any()))
+                .willAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(3);
+                    out.write("accountNumber\n1000000000\n".getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        //when
+        //then (서비스가 쓴 내용이 그대로 첨부파일로 내려감)
+        mockMvc.perform(get("/account/1000000000/transactions/export?format=CSV&date=2022-06-01"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"transactions-1000000000-2022-06-01.csv\""))
+                .andExpect(content().string("accountNumber\n1000000000\n"));
+    }
+
+    @Test
+    void exportFailed_accountNotFound() throws Exception {
+        //given
+        given(transactionExportService.export(anyString(), any(), any(), any()))
+                .willThrow(new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        //when
+        //then (NDJSON 대신 에러 응답)
+        mockMvc.perform(get("/account/1000000000/transactions/export"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode").value("ACCOUNT_NOT_FOUND"));
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AccountCommandQueueTest {
+
+    private final LockStrategy lockStrategy = mock(LockStrategy.class);
+
+    @Test
+    void executeInArrivalOrder() {
+        //given
+        AccountCommandQueue accountCommandQueue = accountCommandQueue(100, 1000L);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 50; i++) {
+            int order = i;
+            futures.add(accountCommandQueue.submit("1000000000", () -> {
+                executed.add(order);
+                return order;
+            }));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        //then
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, executed.get(i));
+        }
+    }
+
+    @Test
+    void singleWriterPerAccount() throws Throwable {
+        //given
+        AccountCommandQueue accountCommandQueue = accountCommandQueue(1000, 1000L);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Object>> futures = new ArrayList<>();
+
+        //when (여러 스레드가 같은 계좌로 동시에 요청)
+        for (int i = 0; i < 200; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return accountCommandQueue.execute("1000000000", 5000L, () -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        running.decrementAndGet();
+                        return null;
+                    });
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            }));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        //then (동시에 실행된 명령은 항상 하나)
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void propagateException() {
+        //given
+        AccountCommandQueue accountCommandQueue = accountCommandQueue(10, 1000L);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class, () ->
+                accountCommandQueue.execute("1000000000", 5000L, () -> {
+                    throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+                }));
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+    }
+
+    @Test
+    void rejectWhenMailboxFull() throws InterruptedException {
+        //given (워커가 첫번째 명령에서 막혀있는 상태)
+        AccountCommandQueue accountCommandQueue = accountCommandQueue(2, 1000L);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        accountCommandQueue.submit("1000000000", () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        started.await();
+        accountCommandQueue.submit("1000000000", () -> null);
+        accountCommandQueue.submit("1000000000", () -> null);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountCommandQueue.submit("1000000000", () -> null));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_QUEUE_FULL, exception.getErrorCode());
+        release.countDown();
+    }
+
+    @Test
+    void timeoutWhileWaiting_doNotExecute() throws Throwable {
+        //given (워커가 첫번째 명령에서 막혀있는 상태)
+        AccountCommandQueue accountCommandQueue = accountCommandQueue(10, 1000L);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        accountCommandQueue.submit("1000000000", () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        started.await();
+        AtomicInteger executed = new AtomicInteger();
+
+        //when
+        AccountException exception = assertThrows(AccountException.class, () ->
+                accountCommandQueue.execute("1000000000", 100L, executed::incrementAndGet));
+        release.countDown();
+
+        //then (락 대기시간이 지난 것과 같은 에러, 포기한 명령은 차례가 와도 실행되지 않는다)
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals("ok", accountCommandQueue.execute("1000000000", 5000L, () -> "ok"));
+        assertEquals(0, executed.get());
+    }
+
+    @Test
+    void evictIdleMailbox() throws Throwable {
+        //given
+        AccountCommandQueue accountCommandQueue = accountCommandQueue(10, 50L);
+        accountCommandQueue.execute("1000000000", 5000L, () -> null);
+        assertEquals(1, accountCommandQueue.activeMailboxCount());
+
+        //when
+        Thread.sleep(300L);
+
+        //then (idle 상태가 지나면 mailbox 가 제거되고, 다시 요청하면 새로 만들어짐)
+        assertEquals(0, accountCommandQueue.activeMailboxCount());
+        assertEquals("ok", accountCommandQueue.execute("1000000000", 5000L, () -> "ok"));
+    }
+
+    @Test
+    void lockOncePerDrainedCommands() throws Throwable {
+        //given (첫번째 명령이 실행되는 동안 같은 계좌의 요청이 쌓인 상태)
+        AccountCommandQueue accountCommandQueue = accountCommandQueue(100, 1000L);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        futures.add(accountCommandQueue.submit("1000000000", () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        started.await();
+        for (int i = 0; i < 10; i++) {
+            futures.add(accountCommandQueue.submit("1000000000", () -> true));
+        }
+
+        //when
+        release.countDown();
+        futures.forEach(CompletableFuture::join);
+
+        //then (쌓여있던 요청은 워커가 잡은 계좌 락 하나로 함께 처리된다)
+        verify(lockStrategy, times(1)).lock("1000000000", AccountCommandQueue.LOCK);
+        // (future 가 완료된 뒤에 워커가 락을 푼다)
+        verify(lockStrategy, timeout(1000L).times(1)).unlock("1000000000", AccountCommandQueue.LOCK);
+    }
+
+    @Test
+    void lockFailed_doNotExecute() {
+        //given (다른 노드가 계좌 락을 잡고 있는 상태)
+        AccountCommandQueue accountCommandQueue = accountCommandQueue(10, 1000L);
+        willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .given(lockStrategy).lock(anyString(), any(LockPolicy.class));
+        AtomicInteger executed = new AtomicInteger();
+
+        //when
+        AccountException exception = assertThrows(AccountException.class, () ->
+                accountCommandQueue.execute("1000000000", 5000L, executed::incrementAndGet));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals(0, executed.get());
+        verify(lockStrategy, never()).unlock(anyString(), any(LockPolicy.class));
+    }
+
+    private AccountCommandQueue accountCommandQueue(int capacity, long idleMillis) {
+        return new AccountCommandQueue(lockStrategy, capacity, idleMillis, 100);
+    }
+}
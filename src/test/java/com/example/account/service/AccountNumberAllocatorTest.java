@@ -0,0 +1,147 @@
+package com.example.account.service;
+
+import com.example.account.domain.AccountNumberSequence;
+import com.example.account.repository.AccountNumberSequenceRepository;
+import com.example.account.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountNumberAllocatorTest {
+
+    @Mock
+    private AccountNumberSequenceRepository accountNumberSequenceRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void firstLease_startAfterExistingAccounts() {
+        //given (sequence row 가 아직 없고, 기존 계좌가 있는 상태)
+        AccountNumberAllocator allocator = allocator(100);
+        given(accountNumberSequenceRepository.findByNameForUpdate(anyString()))
+                .willReturn(Optional.empty());
+        given(accountRepository.findMaxAccountNumber())
+                .willReturn(Optional.of("1000000012"));
+        given(accountNumberSequenceRepository.saveAndFlush(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        //when
+        String accountNumber = allocator.nextAccountNumber();
+
+        //then
+        assertEquals("1000000013", accountNumber);
+    }
+
+    @Test
+    void firstLease_noAccount() {
+        //given
+        AccountNumberAllocator allocator = allocator(100);
+        given(accountNumberSequenceRepository.findByNameForUpdate(anyString()))
+                .willReturn(Optional.empty());
+        given(accountRepository.findMaxAccountNumber())
+                .willReturn(Optional.empty());
+        given(accountNumberSequenceRepository.saveAndFlush(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        //when
+        String accountNumber = allocator.nextAccountNumber();
+
+        //then
+        assertEquals("1000000000", accountNumber);
+    }
+
+    @Test
+    void leaseBlockOnlyWhenExhausted() {
+        //given (구간 크기 3)
+        AccountNumberAllocator allocator = allocator(3);
+        AccountNumberSequence sequence = new AccountNumberSequence(
+                AccountNumberAllocator.SEQUENCE_NAME, 2000000000L);
+        given(accountNumberSequenceRepository.findByNameForUpdate(anyString()))
+                .willReturn(Optional.of(sequence));
+
+        //when
+        List<String> accountNumbers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            accountNumbers.add(allocator.nextAccountNumber());
+        }
+
+        //then (4개를 발급하는 동안 DB 에서는 구간을 2번만 빌려옴)
+        assertEquals(List.of("2000000000", "2000000001", "2000000002", "2000000003"), accountNumbers);
+        verify(accountNumberSequenceRepository, times(2)).findByNameForUpdate(anyString());
+        assertEquals(2000000006L, sequence.getNextValue());
+    }
+
+    @Test
+    void concurrentAllocation_noDuplicate() {
+        //given
+        AccountNumberAllocator allocator = allocator(10);
+        AccountNumberSequence sequence = new AccountNumberSequence(
+                AccountNumberAllocator.SEQUENCE_NAME, 1000000000L);
+        given(accountNumberSequenceRepository.findByNameForUpdate(anyString()))
+                .willReturn(Optional.of(sequence));
+
+        //when (여러 스레드가 동시에 발급)
+        List<CompletableFuture<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                List<String> accountNumbers = new ArrayList<>();
+                for (int j = 0; j < 100; j++) {
+                    accountNumbers.add(allocator.nextAccountNumber());
+                }
+                return accountNumbers;
+            }));
+        }
+
+        //then
+        Set<String> unique = new HashSet<>();
+        futures.forEach(future -> unique.addAll(future.join()));
+        assertEquals(800, unique.size());
+    }
+
+    @Test
+    void sequenceCreatedByOtherNode_retryLease() {
+        //given (동시에 sequence row 를 만들다 다른 노드에 밀린 경우)
+        AccountNumberAllocator allocator = allocator(100);
+        given(accountNumberSequenceRepository.findByNameForUpdate(anyString()))
+                .willReturn(Optional.empty())
+                .willReturn(Optional.of(new AccountNumberSequence(
+                        AccountNumberAllocator.SEQUENCE_NAME, 1000000100L)));
+        given(accountRepository.findMaxAccountNumber())
+                .willReturn(Optional.empty());
+        given(accountNumberSequenceRepository.saveAndFlush(any()))
+                .willThrow(new DataIntegrityViolationException("duplicate"));
+
+        //when
+        String accountNumber = allocator.nextAccountNumber();
+
+        //then
+        assertEquals("1000000100", accountNumber);
+    }
+
+    private AccountNumberAllocator allocator(int blockSize) {
+        return new AccountNumberAllocator(
+                accountNumberSequenceRepository, accountRepository, transactionManager, blockSize);
+    }
+}
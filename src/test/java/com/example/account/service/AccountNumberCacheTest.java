@@ -0,0 +1,91 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.dto.AccountRef;
+import com.example.account.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountNumberCacheTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void findAccountByPrimaryKey() {
+        //given
+        given(accountRepository.findRefByAccountNumber("1000000012"))
+                .willReturn(Optional.of(new AccountRef(7L, "1000000012", 12L, LocalDateTime.now())));
+        given(accountRepository.findById(7L))
+                .willReturn(Optional.of(Account.builder().id(7L).accountNumber("1000000012").build()));
+        AccountNumberCache cache = new AccountNumberCache(accountRepository, meterRegistry, 100);
+
+        //when
+        Optional<Account> first = cache.findAccount("1000000012");
+        Optional<Account> second = cache.findAccount("1000000012");
+
+        //then (계좌번호 조회는 한 번, 이후로는 id 로만 읽음)
+        assertEquals(7L, first.get().getId());
+        assertEquals(7L, second.get().getId());
+        verify(accountRepository, times(1)).findRefByAccountNumber("1000000012");
+        verify(accountRepository, times(2)).findById(7L);
+        assertEquals(1.0, requests("hit"));
+        assertEquals(1.0, requests("miss"));
+    }
+
+    @Test
+    void missingAccountIsNotCached() {
+        //given
+        given(accountRepository.findRefByAccountNumber("1000000099")).willReturn(Optional.empty());
+        AccountNumberCache cache = new AccountNumberCache(accountRepository, meterRegistry, 100);
+
+        //when
+        assertTrue(cache.findAccount("1000000099").isEmpty());
+        assertTrue(cache.findAccount("1000000099").isEmpty());
+
+        //then (없는 계좌는 곧 만들어질 수 있으므로 매번 조회)
+        verify(accountRepository, times(2)).findRefByAccountNumber("1000000099");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateAndEvict() {
+        //given
+        for (long i = 1; i <= 3; i++) {
+            String accountNumber = "100000000" + i;
+            given(accountRepository.findRefByAccountNumber(accountNumber))
+                    .willReturn(Optional.of(new AccountRef(i, accountNumber, 12L, LocalDateTime.now())));
+        }
+        AccountNumberCache cache = new AccountNumberCache(accountRepository, meterRegistry, 2);
+
+        //when
+        cache.find("1000000001");
+        cache.find("1000000002");
+        cache.find("1000000003"); // 가장 오래된 1000000001 이 밀려남
+        cache.invalidate("1000000002");
+        cache.find("1000000001");
+
+        //then
+        verify(accountRepository, times(2)).findRefByAccountNumber("1000000001");
+        assertEquals(2, cache.size());
+        assertEquals(1.0, meterRegistry.counter(AccountNumberCache.METRIC + ".evictions").count());
+    }
+
+    private double requests(String result) {
+        return meterRegistry.counter(AccountNumberCache.METRIC + ".requests", "result", result).count();
+    }
+}
@@ -4,18 +4,22 @@ import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountDto;
 import com.example.account.exception.AccountException;
-import com.example.account.repository.AccountUserRepository;
 import com.example.account.type.AccountStatus;
 import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
 import com.example.account.type.ErrorCode;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Arrays;
 import java.util.List;
@@ -25,6 +29,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -36,9 +42,22 @@ class AccountServiceTest {
     @Mock
     private AccountRepository accountRepository;
 
+    @Mock
+    private AccountUserCache accountUserCache;
+
     @Mock
     private AccountUserRepository accountUserRepository;
 
+    @Mock
+    private AccountNumberCache accountNumberCache;
+
+    @Mock
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Spy
+    private TransactionTemplate transactionTemplate =
+            new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private AccountService accountService;
     // 위의 두개의 @Mock 을 AccountService에 담아주면서 AccountService mock 완성
@@ -51,12 +70,12 @@ class AccountServiceTest {
                 .id(12L)
                 .name("Pobi").build();
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.findFirstByOrderByIdDesc())
-                .willReturn(Optional.of(Account.builder()
-                                .accountUser(user)
-                                .accountNumber("1000000012").build()));
+        given(accountUserRepository.increaseAccountCount(12L, 10))
+                .willReturn(1);
+        given(accountNumberAllocator.nextAccountNumber())
+                .willReturn("1000000013");
         given(accountRepository.save(any()))
                 .willReturn(Account.builder()
                         .accountUser(user)
@@ -76,6 +95,32 @@ class AccountServiceTest {
         assertEquals("1000000013", captor.getValue().getAccountNumber());
     }
 
+    @Test
+    void createAccount_takeAccountNumberBeforeTransaction() {
+        //given
+        AccountUser user
+                = AccountUser.builder()
+                .id(12L)
+                .name("Pobi").build();
+        given(accountUserCache.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountUserRepository.increaseAccountCount(12L, 10))
+                .willReturn(1);
+        given(accountNumberAllocator.nextAccountNumber())
+                .willReturn("1000000013");
+        given(accountRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        //when
+        accountService.createAccount(1L, 1000L);
+
+        //then (번호 구간을 빌리는 동안 요청 스레드가 커넥션을 쥐고 있지 않도록, 트랜잭션보다 먼저 번호를 받는다)
+        InOrder inOrder = inOrder(accountNumberAllocator, transactionTemplate, accountUserRepository);
+        inOrder.verify(accountNumberAllocator).nextAccountNumber();
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(accountUserRepository).increaseAccountCount(12L, 10);
+    }
+
     @Test
     void createFirstAccountSuccess () {
         //given
@@ -84,10 +129,12 @@ class AccountServiceTest {
                 .id(15L)
                 .name("Pobi").build();
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.findFirstByOrderByIdDesc())
-                .willReturn(Optional.empty());
+        given(accountUserRepository.increaseAccountCount(15L, 10))
+                .willReturn(1);
+        given(accountNumberAllocator.nextAccountNumber())
+                .willReturn("1000000000");
         given(accountRepository.save(any()))
                 .willReturn(Account.builder()
                         .accountUser(user)
@@ -107,7 +154,8 @@ class AccountServiceTest {
         // accountNumber를 "1000000013"으로 설정했는데도 테스트가 통과하는 이유
         // -> captor이 실행되는 시점이 accountRespository.save()이기 때문임
         // accountRespository.save() 전에
-        // .willReturn(Optional.empty()) 로 설정했기 때문에 **기존 계좌가 없는 상태**로 간주되고, 따라서 새로운 계좌 번호는 10000000로 설정됨
+        // 발급기가 "1000000000" 을 돌려주도록 설정했기 때문에 새로운 계좌 번호는 1000000000으로 설정됨
+        // (기존 계좌가 없을 때 첫 번호를 정하는 로직은 AccountNumberAllocatorTest 에서 확인)
         // 반환값으로 "1000000013"설정한 것은 save() 메서드가 호출된 후 반환되는 값일 뿐,
         // 저장하기 전의 Account 객체에는 여전히 "1000000000"이라는 계좌번호가 설정되어 있음
     }
@@ -121,7 +169,7 @@ class AccountServiceTest {
                 .id(12L)
                 .name("Pobi").build();
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.empty()); // 유저 없음 -> AccountException 발생
 
         //when
@@ -141,10 +189,10 @@ class AccountServiceTest {
                 = AccountUser.builder()
                 .id(15L)
                 .name("Pobi").build();
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.countByAccountUser(user))
-                .willReturn(10);
+        given(accountUserRepository.increaseAccountCount(anyLong(), anyInt()))
+                .willReturn(0); // 이미 계좌가 10개 -> 조건부 UPDATE 가 0건
 
         //when
         AccountException exception
@@ -164,9 +212,9 @@ class AccountServiceTest {
                 .id(12L)
                 .name("Pobi").build();
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.findByAccountNumber(anyString()))
+        given(accountNumberCache.findAccount(anyString()))
                 .willReturn(Optional.of(Account.builder()
                         .accountUser(user)
                                 .balance(0L)
@@ -185,13 +233,43 @@ class AccountServiceTest {
         assertEquals(12L, accountDto.getUserId());
         assertEquals("1000000012", captor.getValue().getAccountNumber());
         assertEquals(AccountStatus.UNREGISTERED, captor.getValue().getAccountStatus());
+        verify(accountNumberCache).invalidate("1234567890");
+        verify(accountUserRepository).decreaseAccountCount(12L);
+    }
+
+    @Test
+    @DisplayName("계좌 해지 - 캐시에서 받은 사용자와 계좌 소유주가 다른 객체인 경우")
+    void deleteAccountSuccess_cachedUser() {
+        //given (128 이상의 Long 은 값이 같아도 다른 객체)
+        AccountUser cachedUser = AccountUser.builder()
+                .id(Long.valueOf(1000L))
+                .name("Pobi").build();
+        AccountUser owner = AccountUser.builder()
+                .id(Long.valueOf(1000L))
+                .name("Pobi").build();
+
+        given(accountUserCache.findById(anyLong()))
+                .willReturn(Optional.of(cachedUser));
+        given(accountNumberCache.findAccount(anyString()))
+                .willReturn(Optional.of(Account.builder()
+                        .accountUser(owner)
+                        .balance(0L)
+                        .accountStatus(AccountStatus.IN_USE)
+                        .accountNumber("1000000012").build()));
+
+        //when
+        AccountDto accountDto = accountService.deleteAccount(1000L, "1000000012");
+
+        //then
+        assertEquals(1000L, accountDto.getUserId());
+        verify(accountUserRepository).decreaseAccountCount(1000L);
     }
 
     @Test
     @DisplayName("해당 유저 없음 - 계좌 해지 실패")
     void deleteAccount_UserNotFound() {
         //given
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.empty());
 
         //when
@@ -211,10 +289,10 @@ class AccountServiceTest {
                 .id(12L)
                 .name("Pobi").build();
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(user));
 
-        given(accountRepository.findByAccountNumber(anyString()))
+        given(accountNumberCache.findAccount(anyString()))
                 .willReturn(Optional.empty());
 
         //when
@@ -238,10 +316,10 @@ class AccountServiceTest {
                 .id(12L)
                 .name("Haerin").build();
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(pobi));
 
-        given(accountRepository.findByAccountNumber(anyString()))
+        given(accountNumberCache.findAccount(anyString()))
                 .willReturn(Optional.of(
                         Account.builder()
                                 .accountUser(haerin)
@@ -265,10 +343,10 @@ class AccountServiceTest {
                 .id(13L)
                 .name("Pobi").build();
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(user));
 
-        given(accountRepository.findByAccountNumber(anyString()))
+        given(accountNumberCache.findAccount(anyString()))
                 .willReturn(Optional.of(
                         Account.builder()
                                 .accountUser(user)
@@ -292,10 +370,10 @@ class AccountServiceTest {
                 .id(13L)
                 .name("Pobi").build();
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(user));
 
-        given(accountRepository.findByAccountNumber(anyString()))
+        given(accountNumberCache.findAccount(anyString()))
                 .willReturn(Optional.of(
                         Account.builder()
                                 .accountUser(user)
@@ -318,28 +396,28 @@ class AccountServiceTest {
                 = AccountUser.builder()
                 .id(13L)
                 .name("Pobi").build();
-        List<Account> accounts = Arrays.asList(
-                Account.builder()
-                        .accountUser(user)
+        List<AccountDto> accounts = Arrays.asList(
+                AccountDto.builder()
+                        .userId(13L)
                         .accountNumber("1111111111")
                         .balance(1000L)
                         .build(),
-                Account.builder()
-                        .accountUser(user)
+                AccountDto.builder()
+                        .userId(13L)
                         .accountNumber("2222222222")
                         .balance(1000L)
                         .build(),
-                Account.builder()
-                        .accountUser(user)
+                AccountDto.builder()
+                        .userId(13L)
                         .accountNumber("3333333333")
                         .balance(1000L)
                         .build()
         );
 
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.findByAccountUser(any()))
+        given(accountRepository.findDtosByAccountUserId(13L))
                 .willReturn(accounts);
 
         //when
@@ -358,7 +436,7 @@ class AccountServiceTest {
     @Test
     void FailedToGetAccounts() {
         //given
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.empty());
         //when
         AccountException exception = assertThrows(AccountException.class,
@@ -0,0 +1,109 @@
+package com.example.account.service;
+
+import com.example.account.domain.AccountUser;
+import com.example.account.repository.AccountUserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountUserCacheTest {
+
+    @Mock
+    private AccountUserRepository accountUserRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void readThrough() {
+        //given
+        given(accountUserRepository.findById(12L))
+                .willReturn(Optional.of(AccountUser.builder().id(12L).name("Pobi").build()));
+        AccountUserCache cache = new AccountUserCache(accountUserRepository, meterRegistry, 100, 300, 10);
+
+        //when
+        Optional<AccountUser> first = cache.findById(12L);
+        Optional<AccountUser> second = cache.findById(12L);
+
+        //then (두번째부터는 DB 를 조회하지 않음)
+        assertEquals("Pobi", first.get().getName());
+        assertEquals("Pobi", second.get().getName());
+        verify(accountUserRepository, times(1)).findById(12L);
+        assertEquals(1.0, requests("hit"));
+        assertEquals(1.0, requests("miss"));
+    }
+
+    @Test
+    void negativeCaching() {
+        //given
+        given(accountUserRepository.findById(99L)).willReturn(Optional.empty());
+        AccountUserCache cache = new AccountUserCache(accountUserRepository, meterRegistry, 100, 300, 10);
+
+        //when
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.findById(99L).isEmpty());
+        }
+
+        //then (없는 사용자도 한 번만 조회)
+        verify(accountUserRepository, times(1)).findById(99L);
+        assertEquals(4.0, requests("negative-hit"));
+    }
+
+    @Test
+    void returnsCopyOnMissAndHit() {
+        //given
+        AccountUser managed = AccountUser.builder().id(12L).name("Pobi").accountCount(3).build();
+        given(accountUserRepository.findById(12L)).willReturn(Optional.of(managed));
+        AccountUserCache cache = new AccountUserCache(accountUserRepository, meterRegistry, 100, 300, 10);
+
+        //when
+        AccountUser first = cache.findById(12L).get();
+        AccountUser second = cache.findById(12L).get();
+
+        //then (처음 읽은 경우에도 조회한 엔티티 대신 같은 내용의 복사본)
+        assertNotSame(managed, first);
+        assertNotSame(first, second);
+        assertEquals(3, first.getAccountCount());
+        assertEquals(3, second.getAccountCount());
+    }
+
+    @Test
+    void evictBySizeAndTime() {
+        //given (최대 2명, ttl 0 초 -> 매번 만료)
+        given(accountUserRepository.findById(1L))
+                .willReturn(Optional.of(AccountUser.builder().id(1L).build()));
+        given(accountUserRepository.findById(2L))
+                .willReturn(Optional.of(AccountUser.builder().id(2L).build()));
+        given(accountUserRepository.findById(3L))
+                .willReturn(Optional.of(AccountUser.builder().id(3L).build()));
+        AccountUserCache sizeBounded = new AccountUserCache(accountUserRepository, meterRegistry, 2, 300, 10);
+        AccountUserCache expiring = new AccountUserCache(accountUserRepository, new SimpleMeterRegistry(), 2, 0, 0);
+
+        //when
+        sizeBounded.findById(1L);
+        sizeBounded.findById(2L);
+        sizeBounded.findById(1L); // 1 을 최근에 사용 -> 3 이 들어오면 2 가 나감
+        sizeBounded.findById(3L);
+        sizeBounded.findById(1L);
+        expiring.findById(1L);
+        expiring.findById(1L);
+
+        //then
+        assertEquals(2, sizeBounded.size());
+        assertEquals(1.0, meterRegistry.counter(AccountUserCache.METRIC + ".evictions", "cause", "size").count());
+        verify(accountUserRepository, times(3)).findById(1L); // sizeBounded 1번 + expiring 2번
+    }
+
+    private double requests(String result) {
+        return meterRegistry.counter(AccountUserCache.METRIC + ".requests", "result", result).count();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.account.service;
+
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndFind() throws IOException {
+        //given (정렬되지 않은 1000건, block 당 64건)
+        List<ArchivedTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            transactions.add(archived(i));
+        }
+        Collections.shuffle(transactions);
+        Path path = directory.resolve("archive-1.seg");
+
+        //when
+        try (ArchiveSegment segment = ArchiveSegment.write(path, transactions, 64)) {
+            //then (모든 거래를 찾을 수 있고, 임시 파일은 남지 않음)
+            assertEquals(1000, segment.getRowCount());
+            for (int i = 0; i < 1000; i++) {
+                ArchivedTransaction found = segment.find(transactionId(i));
+                assertNotNull(found);
+                assertEquals(12L + i % 3, found.getAccountId());
+                assertEquals("100000001" + i % 3, found.getAccountNumber());
+                assertEquals(i % 2 == 0 ? TransactionType.USE : TransactionType.CANCLE,
+                        found.getTransactionType());
+                assertEquals(1000L + i, found.getAmount());
+                assertEquals(50000L - i, found.getBalanceSnapshot());
+                assertEquals(transactedAt(i), found.getTransactedAt());
+            }
+            assertFalse(Files.exists(directory.resolve("archive-1.seg.tmp")));
+        }
+
+        // 다시 열어도 sparse index 로 찾을 수 있음
+        try (ArchiveSegment segment = ArchiveSegment.open(path)) {
+            assertEquals(1000L + 777, segment.find(transactionId(777)).getAmount());
+        }
+    }
+
+    @Test
+    void findMissing() throws IOException {
+        //given (짝수 번호 거래만 저장)
+        List<ArchivedTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 200; i += 2) {
+            transactions.add(archived(i));
+        }
+
+        //when
+        try (ArchiveSegment segment = ArchiveSegment.write(
+                directory.resolve("archive-1.seg"), transactions, 16)) {
+            //then (범위 안 / 범위 밖 모두 null)
+            assertNull(segment.find(transactionId(101)));
+            assertNull(segment.find(transactionId(500)));
+            assertNull(segment.find("0"));
+        }
+    }
+
+    @Test
+    void corruptedBlock() throws IOException {
+        //given (첫번째 block 의 압축된 내용 1 byte 를 바꿈)
+        Path path = directory.resolve("archive-1.seg");
+        ArchiveSegment.write(path, List.of(archived(1), archived(2)), 16).close();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), 5 + 16);
+        }
+
+        //when
+        //then
+        try (ArchiveSegment segment = ArchiveSegment.open(path)) {
+            assertThrows(IOException.class, () -> segment.find(transactionId(1)));
+        }
+    }
+
+    private static ArchivedTransaction archived(int i) {
+        return ArchivedTransaction.builder()
+                .id((long) i)
+                .transactionId(transactionId(i))
+                .accountId(12L + i % 3)
+                .accountNumber("100000001" + i % 3)
+                .transactionType(i % 2 == 0 ? TransactionType.USE : TransactionType.CANCLE)
+                .transactionResultType(TransactionResultType.S)
+                .amount(1000L + i)
+                .balanceSnapshot(50000L - i)
+                .transactedAt(transactedAt(i))
+                .build();
+    }
+
+    private static String transactionId(int i) {
+        return String.format("%032x", i * 7919L);
+    }
+
+    private static LocalDateTime transactedAt(int i) {
+        return LocalDateTime.of(2020, 1, 1, 0, 0).plusSeconds(i).plusNanos(i * 1000L);
+    }
+}
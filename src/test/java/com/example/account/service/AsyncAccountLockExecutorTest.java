@@ -0,0 +1,111 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncAccountLockExecutorTest {
+
+    private static final LockPolicy POLICY = LockPolicy.of("test");
+
+    @Mock
+    private LockService lockService;
+
+    private AsyncAccountLockExecutor asyncAccountLockExecutor;
+
+    @BeforeEach
+    void setUp() {
+        asyncAccountLockExecutor = new AsyncAccountLockExecutor(lockService, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncAccountLockExecutor.shutdown();
+    }
+
+    @Test
+    void runWithFencingTokenAndUnlock() {
+        //given
+        given(lockService.lockAsync(anyString(), any(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(7L));
+
+        //when (작업 스레드에서 fencing token 을 읽을 수 있어야 함)
+        Long fencingToken = asyncAccountLockExecutor.execute("1000000000", POLICY,
+                () -> AccountLockContext.getFencingToken("1000000000")).join();
+
+        //then (락을 잡을 때와 같은 lockId 로 해제하고, 실제 스레드 id 와 겹치지 않는 음수를 사용)
+        assertEquals(7L, fencingToken);
+        verify(lockService, timeout(1000)).unlockAsync(eq("1000000000"), eq(POLICY), longThat(id -> id < 0));
+    }
+
+    @Test
+    void databaseLockFallback() {
+        //given (Redis 장애로 DB 락으로 전환)
+        given(lockService.lockAsync(anyString(), any(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(LockStrategy.NO_FENCING_TOKEN));
+
+        //when
+        Boolean databaseLock = asyncAccountLockExecutor.execute("1000000000", POLICY,
+                () -> AccountLockContext.isDatabaseLock("1000000000")).join();
+
+        //then (해제할 Redis 락이 없음)
+        assertTrue(databaseLock);
+        verify(lockService, never()).unlockAsync(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void lockFailed_doNotRunWork() {
+        //given
+        given(lockService.lockAsync(anyString(), any(), anyLong()))
+                .willReturn(CompletableFuture.failedFuture(
+                        new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK)));
+
+        //when
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> asyncAccountLockExecutor.execute("1000000000", POLICY, () -> {
+                    fail("락을 못 잡으면 실행되면 안됨");
+                    return null;
+                }).get());
+
+        //then (감싸지 않은 원래 예외가 전달됨)
+        AccountException cause = assertInstanceOf(AccountException.class, exception.getCause());
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, cause.getErrorCode());
+        verify(lockService, never()).unlockAsync(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void unlockEvenIfWorkThrows() {
+        //given
+        given(lockService.lockAsync(anyString(), any(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(3L));
+
+        //when
+        CompletableFuture<Object> future = asyncAccountLockExecutor.execute("1000000000", POLICY, () -> {
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        });
+
+        //then
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE,
+                ((AccountException) exception.getCause()).getErrorCode());
+        verify(lockService, timeout(1000)).unlockAsync(eq("1000000000"), eq(POLICY), anyLong());
+    }
+}
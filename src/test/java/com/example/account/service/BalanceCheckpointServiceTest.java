@@ -0,0 +1,224 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.BalanceCheckpoint;
+import com.example.account.dto.BalanceRebuild;
+import com.example.account.dto.BalanceTail;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.BalanceCheckpointRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceCheckpointServiceTest {
+
+    @Mock
+    private BalanceCheckpointRepository balanceCheckpointRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    private BalanceCheckpointService balanceCheckpointService;
+
+    private final LocalDateTime registeredAt = LocalDateTime.of(2022, 6, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        balanceCheckpointService = new BalanceCheckpointService(balanceCheckpointRepository,
+                transactionRepository, accountRepository, transactionManager, new SimpleMeterRegistry(), 3);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        balanceCheckpointService.shutdown();
+    }
+
+    @Test
+    void rebuildCurrentBalance() {
+        //given (체크포인트 10000 + 그 뒤 거래 2건(순번 6, 7)의 합 -1500, 계좌 row 의 순번은 7)
+        given(accountRepository.findIdByAccountNumber(anyString())).willReturn(Optional.of(12L));
+        given(balanceCheckpointRepository.findFirstByAccountIdOrderByLastAccountSeqDesc(12L))
+                .willReturn(Optional.of(checkpoint(10000L, 5L, registeredAt)));
+        given(accountRepository.findById(12L))
+                .willReturn(Optional.of(Account.builder().id(12L).balance(8500L).transactionSeq(7L).build()));
+        given(transactionRepository.sumBalanceTail(12L, 5L, 7L))
+                .willReturn(new BalanceTail(2L, -1500L, 7L, registeredAt.plusDays(1)));
+
+        //when
+        BalanceRebuild rebuild = balanceCheckpointService.rebuild("1000000012", null);
+
+        //then (체크포인트 + 뒤의 거래만으로 계산, 계좌 row 잔액과 일치)
+        assertEquals(8500L, rebuild.getBalance());
+        assertEquals(2L, rebuild.getTailCount());
+        assertEquals(8500L, rebuild.getCurrentBalance());
+        assertTrue(rebuild.getConsistent());
+    }
+
+    @Test
+    void rebuildCurrentBalance_transactionNotPersistedYet() {
+        //given (계좌 row 의 순번은 8 인데 체크포인트 뒤의 거래는 2건만 테이블에 있음)
+        given(accountRepository.findIdByAccountNumber(anyString())).willReturn(Optional.of(12L));
+        given(balanceCheckpointRepository.findFirstByAccountIdOrderByLastAccountSeqDesc(12L))
+                .willReturn(Optional.of(checkpoint(10000L, 5L, LocalDateTime.now())));
+        given(accountRepository.findById(12L))
+                .willReturn(Optional.of(Account.builder().id(12L).balance(8000L).transactionSeq(8L).build()));
+        given(transactionRepository.sumBalanceTail(12L, 5L, 8L))
+                .willReturn(new BalanceTail(2L, -1500L, 8L, LocalDateTime.now()));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceCheckpointService.rebuild("1000000012", null));
+
+        //then (빠진 거래가 있으면 틀린 잔액 대신 실패 응답)
+        assertEquals(ErrorCode.BALANCE_HISTORY_INCOMPLETE, exception.getErrorCode());
+    }
+
+    @Test
+    void rebuildBalanceAtPointInTime() {
+        //given (그 시점 이전의 가장 최근 체크포인트 + 그 시점까지의 거래)
+        LocalDateTime at = registeredAt.plusDays(3);
+        given(accountRepository.findIdByAccountNumber(anyString())).willReturn(Optional.of(12L));
+        given(balanceCheckpointRepository.findFirstByAccountIdOrderByLastAccountSeqDesc(12L))
+                .willReturn(Optional.of(checkpoint(7000L, 20L, registeredAt.plusDays(5))));
+        given(balanceCheckpointRepository
+                .findFirstByAccountIdAndCheckpointAtLessThanEqualOrderByLastAccountSeqDesc(12L, at))
+                .willReturn(Optional.of(checkpoint(10000L, 5L, registeredAt.plusDays(2))));
+        given(transactionRepository.sumBalanceTailUntil(12L, 5L, at))
+                .willReturn(new BalanceTail(1L, 500L, 6L, registeredAt.plusDays(2).plusHours(1)));
+
+        //when
+        BalanceRebuild rebuild = balanceCheckpointService.rebuild("1000000012", at);
+
+        //then (시점 잔액은 계좌 row 와 비교하지 않음)
+        assertEquals(10500L, rebuild.getBalance());
+        assertEquals(registeredAt.plusDays(2), rebuild.getCheckpointAt());
+        assertNull(rebuild.getConsistent());
+        verify(accountRepository, never()).findById(any());
+    }
+
+    @Test
+    void rebuildBalanceAtPointInTime_archivedPeriod() {
+        //given (archive 를 쓰고 있고, 체크포인트가 1년보다 오래됨 -> 그 뒤의 거래가 테이블에 없을 수 있다)
+        ReflectionTestUtils.setField(balanceCheckpointService, "transactionArchive", transactionArchive);
+        LocalDateTime at = registeredAt.plusDays(3);
+        given(accountRepository.findIdByAccountNumber(anyString())).willReturn(Optional.of(12L));
+        given(balanceCheckpointRepository.findFirstByAccountIdOrderByLastAccountSeqDesc(12L))
+                .willReturn(Optional.of(checkpoint(7000L, 20L, LocalDateTime.now())));
+        given(balanceCheckpointRepository
+                .findFirstByAccountIdAndCheckpointAtLessThanEqualOrderByLastAccountSeqDesc(12L, at))
+                .willReturn(Optional.of(checkpoint(10000L, 5L, registeredAt.plusDays(2))));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceCheckpointService.rebuild("1000000012", at));
+
+        //then
+        assertEquals(ErrorCode.BALANCE_HISTORY_ARCHIVED, exception.getErrorCode());
+        verify(transactionRepository, never()).sumBalanceTailUntil(any(), any(), any());
+    }
+
+    @Test
+    void checkpointAfterInterval() {
+        //given (interval 3 -> 세번째 거래에서 뒤에서 체크포인트 추가)
+        given(balanceCheckpointRepository.findFirstByAccountIdOrderByLastAccountSeqDesc(12L))
+                .willReturn(Optional.of(checkpoint(10000L, 5L, registeredAt)));
+        given(accountRepository.findTransactionSeqById(12L)).willReturn(Optional.of(8L));
+        given(transactionRepository.sumBalanceTail(12L, 5L, 8L))
+                .willReturn(new BalanceTail(3L, -3000L, 8L, registeredAt.plusHours(3)));
+        given(balanceCheckpointRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        ArgumentCaptor<BalanceCheckpoint> captor = ArgumentCaptor.forClass(BalanceCheckpoint.class);
+
+        //when
+        balanceCheckpointService.recordTransaction(12L);
+        balanceCheckpointService.recordTransaction(12L);
+        balanceCheckpointService.recordTransaction(12L);
+
+        //then (이전 체크포인트 + 거래 3건으로 새 체크포인트, Account.balance 는 읽지 않음)
+        verify(balanceCheckpointRepository, timeout(3000)).save(captor.capture());
+        assertEquals(7000L, captor.getValue().getBalance());
+        assertEquals(8L, captor.getValue().getLastAccountSeq());
+        assertEquals(registeredAt.plusHours(3), captor.getValue().getCheckpointAt());
+        verify(accountRepository, never()).findById(any());
+    }
+
+    @Test
+    void checkpointSkippedWhileEarlierTransactionNotInTable() {
+        //given (순번 6 ~ 8 이 커밋됐지만 테이블에는 2건만 있음 : 아직 저장 중인 거래)
+        given(balanceCheckpointRepository.findFirstByAccountIdOrderByLastAccountSeqDesc(12L))
+                .willReturn(Optional.of(checkpoint(10000L, 5L, LocalDateTime.now())));
+        given(accountRepository.findTransactionSeqById(12L)).willReturn(Optional.of(8L));
+        given(transactionRepository.sumBalanceTail(12L, 5L, 8L))
+                .willReturn(new BalanceTail(2L, -2000L, 8L, LocalDateTime.now()));
+
+        //when
+        BalanceCheckpoint checkpoint = balanceCheckpointService.checkpoint(12L);
+
+        //then (빠진 거래를 건너뛴 체크포인트를 남기지 않는다)
+        assertEquals(5L, checkpoint.getLastAccountSeq());
+        verify(balanceCheckpointRepository, never()).save(any());
+    }
+
+    @Test
+    void bootstrapAccountWithoutCheckpoint() {
+        //given (기능을 켜기 전에 만든 계좌 : 현재 잔액 8000, 순번 4)
+        given(balanceCheckpointRepository.findFirstByAccountIdOrderByLastAccountSeqDesc(12L))
+                .willReturn(Optional.empty());
+        given(accountRepository.findById(12L))
+                .willReturn(Optional.of(Account.builder().id(12L).accountNumber("1000000012")
+                        .balance(8000L).transactionSeq(4L).registeredAt(registeredAt).build()));
+        given(accountRepository.findTransactionSeqById(12L)).willReturn(Optional.of(4L));
+        given(balanceCheckpointRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        ArgumentCaptor<BalanceCheckpoint> captor = ArgumentCaptor.forClass(BalanceCheckpoint.class);
+
+        //when
+        balanceCheckpointService.checkpoint(12L);
+
+        //then (계좌 row 의 잔액과 순번으로 체크포인트를 잡고, 그 뒤 거래가 없으니 더 추가하지 않음)
+        verify(balanceCheckpointRepository, times(1)).save(captor.capture());
+        assertEquals(8000L, captor.getValue().getBalance());
+        assertEquals(4L, captor.getValue().getLastAccountSeq());
+        verify(transactionRepository, never()).sumBalanceTail(any(), any(), any());
+    }
+
+    private static BalanceCheckpoint checkpoint(Long balance, Long lastAccountSeq, LocalDateTime checkpointAt) {
+        return BalanceCheckpoint.builder()
+                .accountId(12L)
+                .balance(balance)
+                .lastAccountSeq(lastAccountSeq)
+                .checkpointAt(checkpointAt)
+                .build();
+    }
+}
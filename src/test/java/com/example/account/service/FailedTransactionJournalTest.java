@@ -0,0 +1,106 @@
+package com.example.account.service;
+
+import com.example.account.dto.FailedTransaction;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class FailedTransactionJournalTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Test
+    void writeInBatches_andDrainOnShutdown() throws InterruptedException {
+        //given
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        List<FailedTransaction> written = Collections.synchronizedList(new ArrayList<>());
+        given(transactionService.saveFailedTransactions(anyList()))
+                .willAnswer(invocation -> {
+                    List<FailedTransaction> batch = invocation.getArgument(0);
+                    batchSizes.add(batch.size());
+                    written.addAll(batch);
+                    return batch.size();
+                });
+        FailedTransactionJournal journal =
+                new FailedTransactionJournal(transactionService, new SimpleMeterRegistry(), 1000, 10);
+
+        //when
+        for (int i = 0; i < 95; i++) {
+            journal.recordFailedUse("1000000000", 1000L);
+        }
+        journal.recordFailedCancel("1000000000", 2000L);
+        journal.shutdown();
+
+        //then (종료할 때 남은 내역까지 모두 저장, 한 번에 최대 10건씩)
+        assertEquals(96, written.size());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+        assertEquals(TransactionType.CANCLE, written.get(95).getTransactionType());
+        assertEquals(0, journal.pendingCount());
+    }
+
+    @Test
+    void bufferFull_writeSynchronously() throws InterruptedException {
+        //given (writer 가 첫번째 저장에서 막혀있는 상태)
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> writerThreads = Collections.synchronizedList(new ArrayList<>());
+        given(transactionService.saveFailedTransactions(anyList()))
+                .willAnswer(invocation -> {
+                    writerThreads.add(Thread.currentThread().getName());
+                    if (writerThreads.size() == 1) {
+                        writerBlocked.countDown();
+                        release.await(5, TimeUnit.SECONDS);
+                    }
+                    return 1;
+                });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FailedTransactionJournal journal =
+                new FailedTransactionJournal(transactionService, meterRegistry, 1, 10);
+        journal.recordFailedUse("1000000000", 1000L);
+        writerBlocked.await();
+        journal.recordFailedUse("1000000000", 1000L);
+
+        //when (대기열 1칸이 이미 차있음)
+        journal.recordFailedUse("1000000000", 1000L);
+
+        //then (요청 스레드에서 바로 저장하고 overflow 로 기록)
+        assertEquals(Thread.currentThread().getName(), writerThreads.get(1));
+        assertEquals(1.0, meterRegistry.get(FailedTransactionJournal.METRIC + ".records")
+                .tag("result", "overflow").counter().count());
+        release.countDown();
+        journal.shutdown();
+    }
+
+    @Test
+    void writeFailed_notPropagated() throws InterruptedException {
+        //given
+        given(transactionService.saveFailedTransactions(anyList()))
+                .willThrow(new IllegalStateException("db down"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FailedTransactionJournal journal =
+                new FailedTransactionJournal(transactionService, meterRegistry, 10, 10);
+
+        //when
+        journal.recordFailedUse("1000000000", 1000L);
+        journal.shutdown();
+
+        //then (거래 처리에는 영향 없이 dropped 로 기록)
+        assertEquals(1.0, meterRegistry.get(FailedTransactionJournal.METRIC + ".records")
+                .tag("result", "dropped").counter().count());
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.account.service;
+
+import com.example.account.controller.TransactionController;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisConnectionException;
+import org.redisson.client.codec.Codec;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyAspectTest {
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RBucket<Object> bucket;
+
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    @Mock
+    private MethodSignature methodSignature;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private IdempotencyAspect idempotencyAspect;
+
+    private final UseBalance.Request request = new UseBalance.Request(1L, "1000000000", 1000L);
+
+    @BeforeEach
+    void setUp() throws NoSuchMethodException {
+        IdempotencyStore idempotencyStore =
+                new IdempotencyStore(redissonClient, objectMapper, 60L, 100);
+        idempotencyAspect = new IdempotencyAspect(
+                idempotencyStore, objectMapper, new SimpleMeterRegistry(), 5000L, 10L, 30000L);
+
+        lenient().when(redissonClient.getBucket(anyString(), any(Codec.class))).thenReturn(bucket);
+        lenient().when(bucket.trySet(any(), anyLong(), any())).thenReturn(true);
+        lenient().when(proceedingJoinPoint.getSignature()).thenReturn(methodSignature);
+        lenient().when(methodSignature.getMethod()).thenReturn(TransactionController.class
+                .getMethod("useBalance", UseBalance.Request.class));
+        withIdempotencyKey("key-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void replayCompletedResponse() throws Throwable {
+        //given
+        UseBalance.Response response = response("transactionId");
+        given(proceedingJoinPoint.proceed()).willReturn(response);
+
+        //when (타임아웃 후 같은 키로 재시도)
+        Object first = idempotencyAspect.aroundMethod(proceedingJoinPoint, request);
+        Object retried = idempotencyAspect.aroundMethod(proceedingJoinPoint, request);
+
+        //then (한 번만 실행되고, 재시도는 로컬 캐시에서 같은 응답)
+        assertSame(response, first);
+        assertSame(response, retried);
+        verify(proceedingJoinPoint, times(1)).proceed();
+        verify(bucket, times(1)).set(anyString(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void sameKeyWithDifferentRequest() throws Throwable {
+        //given
+        given(proceedingJoinPoint.proceed()).willReturn(response("transactionId"));
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, request);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint,
+                        new UseBalance.Request(1L, "1000000000", 2000L)));
+
+        //then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    void concurrentDuplicate_waitsForFirstExecution() throws Throwable {
+        //given (첫번째 요청이 실행 중인 상태)
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UseBalance.Response response = response("transactionId");
+        given(proceedingJoinPoint.proceed()).willAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return response;
+        });
+
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> aroundMethodWithKey("key-1"));
+        started.await();
+        CompletableFuture<Object> duplicate = CompletableFuture.supplyAsync(() -> aroundMethodWithKey("key-1"));
+        Thread.sleep(100L);
+
+        //when
+        release.countDown();
+
+        //then (중복 요청은 다시 실행되지 않고 첫번째 결과를 같이 받음)
+        assertSame(response, first.join());
+        assertSame(response, duplicate.join());
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+
+    @Test
+    void completedOnOtherNode() throws Throwable {
+        //given (다른 노드가 이미 처리해서 Redis 에 응답이 저장된 상태)
+        given(bucket.get()).willReturn(objectMapper.writeValueAsString(new IdempotencyStore.StoredResponse(
+                objectMapper.writeValueAsString(request),
+                objectMapper.writeValueAsString(response("transactionId")))));
+
+        //when
+        UseBalance.Response replayed =
+                (UseBalance.Response) idempotencyAspect.aroundMethod(proceedingJoinPoint, request);
+
+        //then
+        assertEquals("transactionId", replayed.getTransactionId());
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    @Test
+    void failedRequest_canRetry() throws Throwable {
+        //given (첫번째 실행은 락 획득 실패)
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .willReturn(response("transactionId"));
+
+        //when
+        assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, request));
+        Object retried = idempotencyAspect.aroundMethod(proceedingJoinPoint, request);
+
+        //then (실행 중 표시를 지우고, 재시도는 다시 실행됨)
+        verify(bucket, times(1)).compareAndSet(anyString(), isNull());
+        assertEquals("transactionId", ((UseBalance.Response) retried).getTransactionId());
+        verify(proceedingJoinPoint, times(2)).proceed();
+    }
+
+    @Test
+    void redisUnavailable_doNotExecute() throws Throwable {
+        //given (Redis 에 실행 중 표시를 남길 수 없음)
+        given(bucket.trySet(any(), anyLong(), any()))
+                .willThrow(new RedisConnectionException("redis down"));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, request));
+
+        //then (다른 노드가 같은 키를 실행 중일 수 있으므로 실행하지 않고 재시도를 요청)
+        assertEquals(ErrorCode.IDEMPOTENCY_UNAVAILABLE, exception.getErrorCode());
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    @Test
+    void inFlightTtlFollowsLockPolicy() throws Throwable {
+        //given (useBalance : tryLockTime 5초 + leaseTime 15초 = 20초 < 기본 30초)
+        given(proceedingJoinPoint.proceed()).willReturn(response("transactionId"));
+        IdempotencyAspect longLockAspect = new IdempotencyAspect(
+                new IdempotencyStore(redissonClient, objectMapper, 60L, 100),
+                objectMapper, new SimpleMeterRegistry(), 5000L, 10L, 1000L);
+
+        //when
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, request);
+        withIdempotencyKey("key-2");
+        longLockAspect.aroundMethod(proceedingJoinPoint, request);
+
+        //then (락 대기시간 + lease 보다 먼저 실행 중 표시가 만료되지 않는다)
+        verify(bucket).trySet(anyString(), eq(30000L), eq(TimeUnit.MILLISECONDS));
+        verify(bucket).trySet(anyString(), eq(20000L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    private Object aroundMethodWithKey(String idempotencyKey) {
+        withIdempotencyKey(idempotencyKey);
+        try {
+            return idempotencyAspect.aroundMethod(proceedingJoinPoint, request);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static void withIdempotencyKey(String idempotencyKey) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+        servletRequest.addHeader(IdempotencyAspect.HEADER, idempotencyKey);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(servletRequest));
+    }
+
+    private static UseBalance.Response response(String transactionId) {
+        return UseBalance.Response.builder()
+                .accountNumber("1000000000")
+                .transactionResultType(TransactionResultType.S)
+                .transactionId(transactionId)
+                .amount(1000L)
+                .build();
+    }
+}
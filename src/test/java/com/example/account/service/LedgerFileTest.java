@@ -0,0 +1,142 @@
+package com.example.account.service;
+
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendAndRead() throws IOException {
+        //given
+        LedgerRecord record = record("0123456789abcdef0123456789abcdef", 1000L);
+        try (LedgerFile ledgerFile = new LedgerFile(directory, 1024 * 1024)) {
+            ledgerFile.awaitDurable(ledgerFile.append(record));
+            ledgerFile.awaitDurable(ledgerFile.append(record.abort()));
+        }
+
+        //when
+        List<LedgerRecord> records = new ArrayList<>();
+        long corruptedBytes = LedgerFile.read(directory, records::add);
+
+        //then (모든 필드가 그대로 복원됨)
+        assertEquals(0, corruptedBytes);
+        assertEquals(2, records.size());
+        LedgerRecord read = records.get(0);
+        assertEquals(record.getTransactionId(), read.getTransactionId());
+        assertEquals(TransactionType.USE, read.getTransactionType());
+        assertEquals(TransactionResultType.S, read.getTransactionResultType());
+        assertEquals(12L, read.getAccountId());
+        assertEquals(1000L, read.getAmount());
+        assertEquals(9000L, read.getBalanceSnapshot());
+        assertEquals(record.getTransactedAt(), read.getTransactedAt());
+        assertEquals(7L, read.getAccountSeq());
+        assertEquals(7L, read.toTransaction().getAccountSeq());
+        assertTrue(records.get(1).isAbort());
+    }
+
+    @Test
+    void skipTornRecord() throws IOException {
+        //given (마지막 레코드를 쓰다가 죽은 상태)
+        try (LedgerFile ledgerFile = new LedgerFile(directory, 1024 * 1024)) {
+            ledgerFile.awaitDurable(ledgerFile.append(record("00000000000000000000000000000001", 100L)));
+            ledgerFile.awaitDurable(ledgerFile.append(record("00000000000000000000000000000002", 200L)));
+        }
+        Path segment = LedgerFile.segments(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(LedgerRecord.SIZE + 20);
+        }
+
+        //when
+        List<LedgerRecord> records = new ArrayList<>();
+        long corruptedBytes = LedgerFile.read(directory, records::add);
+
+        //then (온전한 첫번째 레코드만 읽고, 재시작하면 새 segment 에 이어서 기록)
+        assertEquals(1, records.size());
+        assertEquals(20, corruptedBytes);
+        try (LedgerFile reopened = new LedgerFile(directory, 1024 * 1024)) {
+            reopened.awaitDurable(reopened.append(record("00000000000000000000000000000003", 300L)));
+        }
+        records.clear();
+        LedgerFile.read(directory, records::add);
+        assertEquals(List.of(100L, 300L), records.stream().map(LedgerRecord::getAmount).toList());
+    }
+
+    @Test
+    void rollSegment() throws IOException {
+        //given (segment 하나에 레코드 2개)
+        try (LedgerFile ledgerFile = new LedgerFile(directory, LedgerRecord.SIZE * 2)) {
+            for (int i = 0; i < 5; i++) {
+                ledgerFile.awaitDurable(ledgerFile.append(record("0000000000000000000000000000000" + i, i)));
+            }
+        }
+
+        //when
+        List<LedgerRecord> records = new ArrayList<>();
+        LedgerFile.read(directory, records::add);
+
+        //then
+        assertEquals(3, LedgerFile.segments(directory).size());
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), records.stream().map(LedgerRecord::getAmount).toList());
+    }
+
+    @Test
+    void groupFsync() throws IOException {
+        //given
+        int appends = 2000;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+
+        try (LedgerFile ledgerFile = new LedgerFile(directory, 1024 * 1024)) {
+            //when (여러 스레드가 동시에 기록하고 fsync 를 기다림)
+            for (int i = 0; i < appends; i++) {
+                String transactionId = String.format("%032x", i);
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        ledgerFile.awaitDurable(ledgerFile.append(record(transactionId, 10L)));
+                    } catch (IOException e) {
+                        errors.add(e);
+                    }
+                }));
+            }
+            futures.forEach(CompletableFuture::join);
+
+            //then (fsync 는 기록 횟수보다 적게 일어남)
+            assertTrue(errors.isEmpty());
+            assertTrue(ledgerFile.getFsyncCount().get() < appends);
+        }
+        List<LedgerRecord> records = new ArrayList<>();
+        LedgerFile.read(directory, records::add);
+        assertEquals(appends, records.size());
+    }
+
+    private static LedgerRecord record(String transactionId, long amount) {
+        return LedgerRecord.builder()
+                .kind(LedgerRecord.TRANSACTION)
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .accountId(12L)
+                .amount(amount)
+                .balanceSnapshot(9000L)
+                .transactionId(transactionId)
+                .transactedAt(LocalDateTime.now())
+                .accountSeq(7L)
+                .build();
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerReplayerTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private final Account account = Account.builder()
+            .id(12L)
+            .accountNumber("1000000012")
+            .balance(9000L)
+            .build();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+
+        // 저장된 거래 1건, 저장되지 못한 거래 1건, 롤백된 거래 1건, 계좌가 없는 거래 1건
+        // + fsync 된 뒤 커밋 / 롤백 전에 죽어서 끝 레코드가 없는 거래 1건
+        try (LedgerFile ledgerFile = new LedgerFile(directory, 1024 * 1024)) {
+            committed(ledgerFile, record("00000000000000000000000000000001", 12L));
+            committed(ledgerFile, record("00000000000000000000000000000002", 12L));
+            LedgerRecord rolledBack = record("00000000000000000000000000000003", 12L);
+            ledgerFile.append(rolledBack);
+            ledgerFile.append(rolledBack.abort());
+            committed(ledgerFile, record("00000000000000000000000000000004", 99L));
+            ledgerFile.awaitDurable(ledgerFile.append(record("00000000000000000000000000000005", 12L)));
+        }
+
+        given(accountRepository.findAllById(any()))
+                .willReturn(List.of(account));
+    }
+
+    @Test
+    void repairMissingTransactions() throws IOException {
+        //given
+        LedgerReplayer ledgerReplayer = ledgerReplayer();
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        stored("00000000000000000000000000000001");
+
+        //when
+        LedgerReplayer.Result result = ledgerReplayer.replay(true);
+
+        //then (커밋된 빠진 거래만 다시 저장, 롤백된 거래 / 계좌가 없는 거래 / in-doubt 거래는 제외)
+        assertEquals(4, result.getRecords());
+        assertEquals(1, result.getMissing());
+        assertEquals(1, result.getRepaired());
+        assertEquals(1, result.getOrphaned());
+        assertEquals(1, result.getAborted());
+        assertEquals(1, result.getInDoubt());
+        assertEquals(0, result.getMismatched());
+        verify(transactionRepository).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("00000000000000000000000000000002", captor.getValue().get(0).getTransactionId());
+        assertEquals(account, captor.getValue().get(0).getAccount());
+    }
+
+    @Test
+    void verifyOnly() throws IOException {
+        //given
+        LedgerReplayer ledgerReplayer = ledgerReplayer();
+        stored("00000000000000000000000000000001");
+
+        //when
+        LedgerReplayer.Result result = ledgerReplayer.replay(false);
+
+        //then
+        assertEquals(1, result.getMissing());
+        assertEquals(0, result.getRepaired());
+        verify(transactionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void settleInDoubtByAccountSeq() throws IOException {
+        //given (COMMIT 이 fsync 되기 전에 죽은 거래 : 계좌 거래 순번은 이미 늘어남 / 롤백되어 순번이 늘지 않은 거래)
+        Path inDoubtDirectory = directory.resolve("in-doubt");
+        try (LedgerFile ledgerFile = new LedgerFile(inDoubtDirectory, 1024 * 1024)) {
+            ledgerFile.append(record("00000000000000000000000000000011", 12L, 3L));
+            ledgerFile.awaitDurable(ledgerFile.append(record("00000000000000000000000000000012", 12L, 4L)));
+        }
+        Account settledAccount = Account.builder()
+                .id(12L)
+                .accountNumber("1000000012")
+                .balance(9000L)
+                .transactionSeq(3L)
+                .build();
+        given(accountRepository.findAllById(any()))
+                .willReturn(List.of(settledAccount));
+        given(transactionRepository.existsByAccountIdAndAccountSeq(12L, 3L))
+                .willReturn(false);
+        LedgerReplayer ledgerReplayer = new LedgerReplayer(transactionRepository, accountRepository,
+                transactionManager, inDoubtDirectory.toString(), "repair");
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        //when
+        LedgerReplayer.Result result = ledgerReplayer.replay(true);
+
+        //then (순번이 반영된 거래는 커밋된 것으로 다시 저장, 순번을 넘는 거래는 롤백된 것으로 제외)
+        assertEquals(1, result.getSettled());
+        assertEquals(1, result.getRepaired());
+        assertEquals(1, result.getAborted());
+        assertEquals(0, result.getInDoubt());
+        verify(transactionRepository).saveAll(captor.capture());
+        assertEquals("00000000000000000000000000000011", captor.getValue().get(0).getTransactionId());
+    }
+
+    @Test
+    void inDoubtSeqReused_notRepaired() throws IOException {
+        //given (롤백된 거래의 순번을 다음에 커밋된 거래가 쓰고 있음)
+        Path inDoubtDirectory = directory.resolve("in-doubt");
+        try (LedgerFile ledgerFile = new LedgerFile(inDoubtDirectory, 1024 * 1024)) {
+            ledgerFile.awaitDurable(ledgerFile.append(record("00000000000000000000000000000011", 12L, 3L)));
+        }
+        given(accountRepository.findAllById(any()))
+                .willReturn(List.of(Account.builder().id(12L).transactionSeq(3L).build()));
+        given(transactionRepository.existsByAccountIdAndAccountSeq(12L, 3L))
+                .willReturn(true);
+        LedgerReplayer ledgerReplayer = new LedgerReplayer(transactionRepository, accountRepository,
+                transactionManager, inDoubtDirectory.toString(), "repair");
+
+        //when
+        LedgerReplayer.Result result = ledgerReplayer.replay(true);
+
+        //then
+        assertEquals(1, result.getInDoubt());
+        assertEquals(0, result.getRepaired());
+    }
+
+    private LedgerReplayer ledgerReplayer() {
+        return new LedgerReplayer(transactionRepository, accountRepository, transactionManager,
+                directory.toString(), "repair");
+    }
+
+    private static void committed(LedgerFile ledgerFile, LedgerRecord record) throws IOException {
+        ledgerFile.append(record);
+        ledgerFile.append(record.commit());
+    }
+
+    private void stored(String transactionId) {
+        Transaction transaction = record(transactionId, 12L).toTransaction();
+        transaction.setAccount(account);
+        given(transactionRepository.findByTransactionIdIn(anyCollection()))
+                .willReturn(List.of(transaction));
+    }
+
+    private static LedgerRecord record(String transactionId, long accountId) {
+        return record(transactionId, accountId, 0L);
+    }
+
+    private static LedgerRecord record(String transactionId, long accountId, long accountSeq) {
+        return LedgerRecord.builder()
+                .kind(LedgerRecord.TRANSACTION)
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .accountId(accountId)
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .transactionId(transactionId)
+                .transactedAt(LocalDateTime.now())
+                .accountSeq(accountSeq)
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalLockStrategyTest {
+
+    private final LocalLockStrategy localLockStrategy = new LocalLockStrategy(16, false);
+
+    @Test
+    void successGetLock() {
+        //given
+        //when
+        //then
+        assertDoesNotThrow(() -> localLockStrategy.lock("1000000000"));
+        localLockStrategy.unlock("1000000000");
+    }
+
+    @Test
+    void failedGetLock_heldByOtherThread() {
+        //given (다른 스레드가 같은 계좌의 락을 잡고 있는 상태)
+        localLockStrategy.lock("1000000000");
+
+        //when
+        AccountException exception = CompletableFuture.supplyAsync(() ->
+                assertThrows(AccountException.class,
+                        () -> localLockStrategy.lock("1000000000"))).join();
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        localLockStrategy.unlock("1000000000");
+    }
+
+    @Test
+    void unlockWithoutLock() {
+        //given
+        //when
+        //then
+        assertThrows(IllegalMonitorStateException.class,
+                () -> localLockStrategy.unlock("1000000000"));
+    }
+}
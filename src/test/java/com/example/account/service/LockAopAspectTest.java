@@ -1,18 +1,31 @@
 package com.example.account.service;
 
+import com.example.account.aop.LockPolicy;
+import com.example.account.controller.TransactionController;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -25,9 +38,23 @@ class LockAopAspectTest {
     @Mock
     private ProceedingJoinPoint proceedingJoinPoint;
 
+    @Mock
+    private MethodSignature methodSignature;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private LockAopAspect lockAopAspect;
 
+    @BeforeEach
+    void setUp() throws NoSuchMethodException {
+        // @AccountLock 이 붙은 실제 컨트롤러 메서드
+        given(proceedingJoinPoint.getSignature()).willReturn(methodSignature);
+        given(methodSignature.getMethod()).willReturn(TransactionController.class
+                .getMethod("useBalance", UseBalance.Request.class));
+    }
+
     @Test
     void lockAndUnlock_evenIfThrow() throws Throwable {
         //given (lock과 unlock에 들어갈 계좌번호)
@@ -49,13 +76,74 @@ class LockAopAspectTest {
 
         //then
         verify(lockService, times(1))
-                .lock(lockArgumentCaptor.capture());
+                .lock(lockArgumentCaptor.capture(), any());
         verify(lockService, times(1))
-                .unlock(unLockArgumentCaptor.capture());
+                .unlock(unLockArgumentCaptor.capture(), any());
 
         assertEquals("1234", lockArgumentCaptor.getValue());
         assertEquals("1234", unLockArgumentCaptor.getValue());
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void lockWithAnnotationPolicy() throws Throwable {
+        //given
+        ArgumentCaptor<LockPolicy> policyCaptor =
+                ArgumentCaptor.forClass(LockPolicy.class);
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+
+        //when (같은 메서드로 두번 호출)
+        lockAopAspect.aroundMethod(proceedingJoinPoint, request);
+        lockAopAspect.aroundMethod(proceedingJoinPoint, request);
+
+        //then (@AccountLock 기본값을 따르고, 정책 객체는 메서드당 한번만 만들어짐)
+        verify(lockService, times(2)).lock(anyString(), policyCaptor.capture());
+        LockPolicy policy = policyCaptor.getAllValues().get(0);
+        assertSame(policy, policyCaptor.getAllValues().get(1));
+        assertEquals("TransactionController.useBalance", policy.getName());
+        assertEquals(5000L, policy.getWaitMillis());
+        assertEquals(15000L, policy.getLeaseMillis());
+        assertEquals(2L, meterRegistry.get(LockedEndpoint.WAIT_METRIC)
+                .tag("endpoint", "TransactionController.useBalance")
+                .tag("result", "acquired")
+                .timer().count());
+    }
+
+    @Test
+    void lockFailed_recordWaitAndDoNotProceed() throws Throwable {
+        //given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+        willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .given(lockService).lock(anyString(), any());
+
+        //when
+        AccountException exception = assertThrows(AccountException.class, () ->
+                lockAopAspect.aroundMethod(proceedingJoinPoint, request));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(proceedingJoinPoint, never()).proceed();
+        verify(lockService, never()).unlock(anyString(), any());
+        assertEquals(1L, meterRegistry.get(LockedEndpoint.WAIT_METRIC)
+                .tag("result", "failed")
+                .timer().count());
+    }
+
+    @Test
+    void queueMode_skipLockForQueuedEndpoint() throws Throwable {
+        //given (useBalance 는 @AccountLock(queue = true))
+        ReflectionTestUtils.setField(lockAopAspect, "transactionMode", TransactionMode.QUEUE);
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+
+        //when
+        lockAopAspect.aroundMethod(proceedingJoinPoint, request);
+
+        //then (계좌별 대기열에서 실행되므로 락을 걸지 않는다)
+        verify(proceedingJoinPoint, times(1)).proceed();
+        verify(lockService, never()).lock(anyString(), any());
+        verify(lockService, never()).unlock(anyString(), any());
+    }
+}
@@ -1,18 +1,30 @@
 package com.example.account.service;
 
+import com.example.account.aop.LockPolicy;
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.redisson.api.RLock;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisTimeoutException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class LockServiceTest {
@@ -23,21 +35,51 @@ class LockServiceTest {
     @Mock
     private RLock rLock;
 
+    @Mock
+    private RScript rScript;
+
+    @Spy
+    private RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(2, 500L, 60000L);
+
     @InjectMocks
     private LockService lockService;
 
+    @AfterEach
+    void tearDown() {
+        AccountLockContext.clear("123");
+    }
+
     @Test
     void successGetLock () throws InterruptedException {
         //given
         given(redissonClient.getLock(anyString()))
                 .willReturn(rLock);
+        givenLockAndFence(1L);
+
+        //when
+
+        //then (비어있는 락은 fencing token 과 함께 스크립트 한 번으로 잡고 RLock.tryLock 은 부르지 않음)
+        assertDoesNotThrow(() -> lockService.lock("123"));
+        verify(rLock, never()).tryLock(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void contendedLock_waitThenFence () throws InterruptedException {
+        //given (다른 노드가 락을 잡고 있어서 스크립트로는 못 잡음)
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        givenLockAndFence(0L);
         given(rLock.tryLock(anyLong(), anyLong(), any()))
                 .willReturn(true);
+        givenFencingToken(5L);
 
         //when
+        long fencingToken = lockService.lock("123");
 
-        //then
-        assertDoesNotThrow(() -> lockService.lock("123"));
+        //then (RLock.tryLock 으로 기다려서 잡은 뒤 token 을 받음)
+        assertEquals(5L, fencingToken);
+        verify(rLock, times(1)).tryLock(anyLong(), anyLong(), any());
+        lockService.unlock("123");
     }
 
     @Test
@@ -46,6 +88,7 @@ class LockServiceTest {
         //given
         given(redissonClient.getLock(anyString()))
                 .willReturn(rLock);
+        givenLockAndFence(0L);
         given(rLock.tryLock(anyLong(), anyLong(), any()))
                 .willReturn(false);
 
@@ -56,4 +99,184 @@ class LockServiceTest {
         //then
         assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void sameNodeWaiter_doesNotCallRedis () throws InterruptedException {
+        //given (같은 노드의 다른 스레드가 락을 잡고 있음)
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        givenLockAndFence(1L);
+        lockService.lock("123");
+
+        //when
+        AccountException exception = CompletableFuture.supplyAsync(() ->
+                assertThrows(AccountException.class, () -> lockService.lock("123"))).join();
+
+        //then (두번째 요청은 로컬 락에서 기다리다 실패하고, Redis 는 한번만 호출됨)
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(rScript, times(1)).eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class),
+                anyList(), any(), any());
+        lockService.unlock("123");
+    }
+
+    @Test
+    void unlock_releasesLocalLockEvenIfRedisFails () throws InterruptedException {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        givenLockAndFence(1L, 2L);
+        willThrow(new IllegalMonitorStateException())
+                .given(rLock).unlock();
+        lockService.lock("123");
+
+        //when
+        assertThrows(IllegalMonitorStateException.class, () -> lockService.unlock("123"));
+
+        //then (다른 스레드가 다시 락을 잡을 수 있어야 함)
+        assertDoesNotThrow(() -> CompletableFuture.runAsync(() -> lockService.lock("123")).join());
+    }
+
+    @Test
+    void fairLockWithWatchdog () throws InterruptedException {
+        //given (@AccountLock(fair = true, watchdog = true) 인 엔드포인트)
+        LockPolicy policy = LockPolicy.builder()
+                .name("test")
+                .waitMillis(3000L)
+                .leaseMillis(15000L)
+                .fair(true)
+                .watchdog(true)
+                .build();
+        given(redissonClient.getFairLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLock(anyLong(), anyLong(), any()))
+                .willReturn(true);
+        givenFencingToken(1L);
+
+        //when
+        lockService.lock("123", policy);
+        lockService.unlock("123", policy);
+
+        //then (fair lock 을 쓰고, leaseTime 대신 -1 을 넘겨 watchdog 이 lease 를 연장하게 함)
+        verify(rLock, times(1)).tryLock(longThat(wait -> wait <= 3000L), eq(-1L), eq(TimeUnit.MILLISECONDS));
+        verify(rLock, times(1)).unlock();
+        verify(redissonClient, never()).getLock(anyString());
+    }
+
+    @Test
+    void lockReturnsIncreasingFencingToken () throws InterruptedException {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(redissonClient.getId()).willReturn("client");
+        givenLockAndFence(7L, 8L);
+
+        //when
+        long first = lockService.lock("123");
+        lockService.unlock("123");
+        long second = lockService.lock("123");
+
+        //then (락을 잡는 동안에는 token 이 현재 스레드에 남아있고, 해제하면 지워짐)
+        assertEquals(7L, first);
+        assertEquals(8L, second);
+        assertEquals(8L, AccountLockContext.getFencingToken("123"));
+        lockService.unlock("123");
+        assertNull(AccountLockContext.getFencingToken("123"));
+    }
+
+    @Test
+    void lockLostBeforeFencing () throws InterruptedException {
+        //given (tryLock 직후 lease 가 만료되어 owner 확인에 실패)
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        givenLockAndFence(0L);
+        given(rLock.tryLock(anyLong(), anyLong(), any()))
+                .willReturn(true);
+        givenFencingToken(0L);
+
+        //when
+        AccountException exception =
+                assertThrows(AccountException.class, () -> lockService.lock("123"));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertNull(AccountLockContext.getFencingToken("123"));
+    }
+
+    @Test
+    void redisFailure_fallbackToDatabaseLock () throws InterruptedException {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(redissonClient.getScript(any())).willReturn(rScript);
+        given(rScript.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(), any()))
+                .willThrow(new RedisTimeoutException("timeout"));
+
+        //when
+        long fencingToken = lockService.lock("123");
+
+        //then (락 없이 진행하지 않고 DB 락을 사용하도록 표시, 해제할 Redis 락도 없음)
+        assertEquals(LockStrategy.NO_FENCING_TOKEN, fencingToken);
+        assertTrue(AccountLockContext.isDatabaseLock("123"));
+        lockService.unlock("123");
+        verify(rLock, never()).unlock();
+        assertFalse(AccountLockContext.isDatabaseLock("123"));
+    }
+
+    @Test
+    void circuitOpen_skipRedis () throws InterruptedException {
+        //given (연속 2번 실패해서 circuit 이 열림)
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(redissonClient.getScript(any())).willReturn(rScript);
+        given(rScript.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(), any()))
+                .willThrow(new RedisTimeoutException("timeout"));
+        lockService.lock("123");
+        lockService.unlock("123");
+        lockService.lock("123");
+        lockService.unlock("123");
+
+        //when
+        lockService.lock("123");
+
+        //then (세번째 요청은 Redis 를 기다리지 않고 바로 DB 락으로 처리됨)
+        assertTrue(AccountLockContext.isDatabaseLock("123"));
+        verify(rScript, times(2)).eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class),
+                anyList(), any(), any());
+        lockService.unlock("123");
+    }
+
+    @Test
+    void otherAccount_doesNotWaitLocalLock () throws InterruptedException {
+        //given (같은 노드의 다른 스레드가 다른 계좌의 락을 잡고 있음)
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        givenLockAndFence(1L, 2L);
+        lockService.lock("123");
+
+        //when
+        long fencingToken = CompletableFuture.supplyAsync(() -> {
+            long token = lockService.lock("456");
+            lockService.unlock("456");
+            return token;
+        }).join();
+        lockService.unlock("123");
+
+        //then (계좌마다 로컬 락이 따로 있어서 기다리지 않고, 다 풀리면 로컬 락도 정리된다)
+        assertEquals(2L, fencingToken);
+        assertEquals(0, lockService.localLockCount());
+    }
+
+    // 비어있는 락을 잡으면서 token 을 받는 스크립트 (owner, lease 두 인자)
+    private void givenLockAndFence(Long token, Long... tokens) {
+        given(redissonClient.getScript(any())).willReturn(rScript);
+        given(rScript.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(), any()))
+                .willReturn(token, tokens);
+    }
+
+    // RLock.tryLock 으로 잡은 뒤 token 만 받는 스크립트 (owner 한 인자)
+    private void givenFencingToken(Long token) {
+        given(redissonClient.getScript(any())).willReturn(rScript);
+        given(rScript.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any()))
+                .willReturn(token);
+    }
+}
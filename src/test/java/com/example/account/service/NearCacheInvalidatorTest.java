@@ -0,0 +1,101 @@
+package com.example.account.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RFuture;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.Codec;
+import org.redisson.misc.RedissonPromise;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class NearCacheInvalidatorTest {
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RTopic topic;
+
+    @Mock
+    private AccountUserCache accountUserCache;
+
+    @Mock
+    private AccountNumberCache accountNumberCache;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private NearCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        given(redissonClient.getTopic(eq(NearCacheInvalidator.TOPIC), any(Codec.class))).willReturn(topic);
+        invalidator = new NearCacheInvalidator(redissonClient, accountUserCache, accountNumberCache, meterRegistry);
+    }
+
+    @Test
+    void invalidateAccount_publishToOtherNodes() {
+        //given
+        RFuture<Long> published = RedissonPromise.newSucceededFuture(2L);
+        given(topic.publishAsync(anyString())).willReturn(published);
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+
+        //when
+        invalidator.invalidateAccount("1000000012");
+
+        //then (자기 캐시는 바로 지우고 다른 노드에 알림)
+        verify(accountNumberCache).invalidate("1000000012");
+        verify(topic).publishAsync(captor.capture());
+        assertTrue(captor.getValue().startsWith("A|"));
+        assertTrue(captor.getValue().endsWith("|1000000012"));
+        assertEquals(1.0, messages("published"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void receiveFromOtherNode_evictAndRecordLag() {
+        //given
+        ArgumentCaptor<MessageListener<String>> captor = ArgumentCaptor.forClass(MessageListener.class);
+        verify(topic).addListener(eq(String.class), captor.capture());
+        long publishedAt = System.currentTimeMillis() - 5;
+
+        //when
+        captor.getValue().onMessage(NearCacheInvalidator.TOPIC, "U|other-node|" + publishedAt + "|12");
+        captor.getValue().onMessage(NearCacheInvalidator.TOPIC, "A|other-node|" + publishedAt + "|1000000012");
+
+        //then
+        verify(accountUserCache).invalidate(12L);
+        verify(accountNumberCache).invalidate("1000000012");
+        assertEquals(2.0, messages("received"));
+        assertEquals(2, meterRegistry.timer(NearCacheInvalidator.METRIC + ".lag").count());
+    }
+
+    @Test
+    void invalidMessage_ignored() {
+        //when
+        invalidator.onMessage("U|other-node|0|not-a-number");
+        invalidator.onMessage("garbage");
+
+        //then
+        verify(accountUserCache, never()).invalidate(any());
+        assertEquals(0, meterRegistry.timer(NearCacheInvalidator.METRIC + ".lag").count());
+    }
+
+    private double messages(String result) {
+        return meterRegistry.counter(NearCacheInvalidator.METRIC + ".messages", "result", result).count();
+    }
+}
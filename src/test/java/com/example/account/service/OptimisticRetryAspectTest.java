@@ -0,0 +1,77 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class OptimisticRetryAspectTest {
+
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    @Mock
+    private Signature signature;
+
+    private final OptimisticRetryAspect optimisticRetryAspect =
+            new OptimisticRetryAspect(3, 0L, 0L);
+
+    @Test
+    void retryUntilSuccess() throws Throwable {
+        //given (두번 충돌한 뒤 세번째에 성공)
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new ObjectOptimisticLockingFailureException("Account", 1L))
+                .willThrow(new ObjectOptimisticLockingFailureException("Account", 1L))
+                .willReturn("success");
+
+        //when
+        Object result = optimisticRetryAspect.aroundMethod(proceedingJoinPoint);
+
+        //then
+        assertEquals("success", result);
+        verify(proceedingJoinPoint, times(3)).proceed();
+    }
+
+    @Test
+    void retryExhausted() throws Throwable {
+        //given
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new ObjectOptimisticLockingFailureException("Account", 1L));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> optimisticRetryAspect.aroundMethod(proceedingJoinPoint));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(3)).proceed();
+    }
+
+    @Test
+    void doNotRetryAccountException() throws Throwable {
+        //given (잔액 부족 같은 비즈니스 예외는 재시도하지 않음)
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> optimisticRetryAspect.aroundMethod(proceedingJoinPoint));
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        verify(proceedingJoinPoint, times(1)).proceed();
+    }
+}
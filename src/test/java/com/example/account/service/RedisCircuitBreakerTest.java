@@ -0,0 +1,60 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisCircuitBreakerTest {
+
+    @Test
+    void openAfterConsecutiveFailures() {
+        //given
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(3, 500L, 60000L);
+
+        //when (중간에 성공하면 실패 횟수는 초기화됨)
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        boolean allowedBeforeOpen = circuitBreaker.allowRequest();
+        circuitBreaker.onFailure();
+
+        //then
+        assertTrue(allowedBeforeOpen);
+        assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void slowCallCountsAsFailure() {
+        //given
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(2, 500L, 60000L);
+
+        //when
+        circuitBreaker.onSuccess(10L);
+        circuitBreaker.onSuccess(800L);
+        circuitBreaker.onSuccess(900L);
+
+        //then
+        assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpenProbe() {
+        //given (open 시간이 바로 지나는 설정)
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(1, 500L, 0L);
+        circuitBreaker.onFailure();
+
+        //when & then (한 요청만 시험 호출, 실패하면 다시 OPEN)
+        assertTrue(circuitBreaker.allowRequest());
+        assertEquals(RedisCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        circuitBreaker.onFailure();
+        assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        //when & then (시험 호출이 성공하면 다시 CLOSED)
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onSuccess(10L);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+}
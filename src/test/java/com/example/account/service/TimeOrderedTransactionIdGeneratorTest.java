@@ -0,0 +1,69 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedTransactionIdGeneratorTest {
+
+    @Test
+    void sameFormatAsUuid() {
+        //given
+        TimeOrderedTransactionIdGenerator generator = new TimeOrderedTransactionIdGenerator(1);
+
+        //when
+        String transactionId = generator.nextId();
+
+        //then (기존 UUID 방식과 같은 32자리 16진수)
+        assertEquals(32, transactionId.length());
+        assertTrue(transactionId.matches("[0-9a-f]{32}"));
+        assertEquals(32, new UuidTransactionIdGenerator().nextId().length());
+    }
+
+    @Test
+    void timeAndNodeInPrefix() {
+        //given
+        TimeOrderedTransactionIdGenerator generator = new TimeOrderedTransactionIdGenerator(0xABCD);
+        long before = System.currentTimeMillis();
+
+        //when
+        String transactionId = generator.nextId();
+
+        //then (앞 12자리 = 밀리초 시간, 다음 4자리 = 노드 id)
+        long millis = Long.parseLong(transactionId.substring(0, 12), 16);
+        assertTrue(millis >= before && millis <= System.currentTimeMillis());
+        assertEquals("abcd", transactionId.substring(12, 16));
+    }
+
+    @Test
+    void orderedByTime() throws InterruptedException {
+        //given
+        TimeOrderedTransactionIdGenerator generator = new TimeOrderedTransactionIdGenerator(1);
+
+        //when
+        String first = generator.nextId();
+        Thread.sleep(2L);
+        String second = generator.nextId();
+
+        //then (나중에 만든 아이디가 문자열 순서로도 뒤에 온다)
+        assertTrue(first.compareTo(second) < 0);
+    }
+
+    @Test
+    void unique() {
+        //given
+        TimeOrderedTransactionIdGenerator generator = new TimeOrderedTransactionIdGenerator(1);
+        Set<String> transactionIds = new HashSet<>();
+
+        //when
+        for (int i = 0; i < 100_000; i++) {
+            transactionIds.add(generator.nextId());
+        }
+
+        //then
+        assertEquals(100_000, transactionIds.size());
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.account.service;
+
+import com.example.account.domain.Transaction;
+import com.example.account.dto.ArchivedTransaction;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionArchiverTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RLock lockA;
+
+    @Mock
+    private RLock lockB;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void archiveInChunks_thenFindFromArchive() throws IOException {
+        //given (batch-size 2 -> 2건, 1건 두 번에 나눠서 옮김)
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        LocalDateTime cutoff = LocalDateTime.now().minusYears(1);
+        given(transactionRepository.findArchivable(cutoff, 0L, Limit.of(2)))
+                .willReturn(List.of(archived(1L), archived(2L)));
+        given(transactionRepository.findArchivable(cutoff, 2L, Limit.of(2)))
+                .willReturn(List.of(archived(3L)));
+        TransactionArchive archive = new TransactionArchive(
+                new SimpleMeterRegistry(), directory.toString(), 512);
+        TransactionArchiver archiver = new TransactionArchiver(transactionRepository, archive,
+                transactionManager, new SimpleMeterRegistry(), redissonClient, "local", 2, 0);
+
+        //when
+        long archived = archiver.archive(cutoff);
+
+        //then (segment 파일에 쓴 뒤 테이블에서 지우고, archive 에서 찾을 수 있음)
+        assertEquals(3, archived);
+        verify(transactionRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(transactionRepository).deleteAllByIdInBatch(List.of(3L));
+
+        Optional<Transaction> found = archive.find(transactionId(3L));
+        assertTrue(found.isPresent());
+        assertEquals("1000000012", found.get().getAccount().getAccountNumber());
+        assertEquals(12L, found.get().getAccount().getId());
+        assertFalse(archive.find(transactionId(4L)).isPresent());
+
+        // 다시 시작해도 segment 들을 읽어옴
+        archive.close();
+        TransactionArchive reopened = new TransactionArchive(
+                new SimpleMeterRegistry(), directory.toString(), 512);
+        assertTrue(reopened.contains(transactionId(1L)));
+        reopened.close();
+        archiver.shutdown();
+    }
+
+    @Test
+    void onlyLockHolderArchives_otherNodesReadSharedSegments() throws IOException {
+        //given (같은 디렉토리를 보는 두 노드 A, B : 처음에는 A 만 락을 잡고, 다음 주기에는 B 가 잡음)
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        given(redissonClient.getLock(TransactionArchiver.LOCK_KEY)).willReturn(lockA, lockB);
+        given(lockA.tryLock()).willReturn(true, false);
+        given(lockB.tryLock()).willReturn(false, true);
+        given(transactionRepository.findArchivable(any(), eq(0L), eq(Limit.of(2))))
+                .willReturn(List.of(archived(1L)), List.of(archived(2L)));
+        TransactionArchive archiveA = new TransactionArchive(new SimpleMeterRegistry(), directory.toString(), 512);
+        TransactionArchive archiveB = new TransactionArchive(new SimpleMeterRegistry(), directory.toString(), 512);
+        TransactionArchiver archiverA = new TransactionArchiver(transactionRepository, archiveA,
+                transactionManager, new SimpleMeterRegistry(), redissonClient, "redis", 2, 0);
+        TransactionArchiver archiverB = new TransactionArchiver(transactionRepository, archiveB,
+                transactionManager, new SimpleMeterRegistry(), redissonClient, "redis", 2, 0);
+
+        //when
+        long first = archiverA.archiveExpired() + archiverB.archiveExpired();
+        long second = archiverA.archiveExpired() + archiverB.archiveExpired();
+
+        //then (주기마다 한 노드만 옮기고, 각 노드는 다른 노드가 쓴 segment 에서도 찾는다)
+        assertEquals(1, first);
+        assertEquals(1, second);
+        verify(transactionRepository, times(2)).findArchivable(any(), any(), any());
+        verify(lockA).unlock();
+        verify(lockB).unlock();
+        assertTrue(archiveB.contains(transactionId(1L)));
+        assertTrue(archiveA.contains(transactionId(2L)));
+        // B 는 A 가 쓴 segment 다음 번호로 썼다
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+
+        archiveA.close();
+        archiveB.close();
+        archiverA.shutdown();
+        archiverB.shutdown();
+    }
+
+    private static ArchivedTransaction archived(Long id) {
+        return ArchivedTransaction.builder()
+                .id(id)
+                .transactionId(transactionId(id))
+                .accountId(12L)
+                .accountNumber("1000000012")
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .transactedAt(LocalDateTime.now().minusYears(2))
+                .build();
+    }
+
+    private static String transactionId(Long id) {
+        return String.format("%032d", id);
+    }
+}
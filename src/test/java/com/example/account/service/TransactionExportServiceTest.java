@@ -0,0 +1,136 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.ExportFormat;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionExportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private TransactionExportService transactionExportService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        transactionExportService = new TransactionExportService(
+                transactionRepository, accountRepository, entityManager, objectMapper);
+    }
+
+    @Test
+    void exportCsv_oneDay() throws IOException {
+        //given
+        given(accountRepository.findIdByAccountNumber(anyString()))
+                .willReturn(Optional.of(7L));
+        LocalDate date = LocalDate.of(2022, 6, 1);
+        given(transactionRepository.streamForExport(
+                7L, date.atStartOfDay(), date.plusDays(1).atStartOfDay()))
+                .willReturn(Stream.of(transaction(1L), transaction(2L)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        long count = transactionExportService.export("1000000000", date, ExportFormat.CSV, out);
+
+        //then (헤더 + 거래 2줄)
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, count);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("accountNumber,transactionType"));
+        assertEquals("1000000000,USE,S,transactionId1,1000,9000,2022-06-01T10:00", lines[1]);
+        verify(entityManager, never()).clear();
+    }
+
+    @Test
+    void exportNdjson_clearPersistenceContext() throws IOException {
+        //given (EXPORT_FETCH_SIZE 두 번 + 1건)
+        int total = TransactionRepository.EXPORT_FETCH_SIZE * 2 + 1;
+        given(accountRepository.findIdByAccountNumber(anyString()))
+                .willReturn(Optional.of(7L));
+        given(transactionRepository.streamForExport(7L, null, null))
+                .willReturn(LongStream.rangeClosed(1, total).mapToObj(this::transaction));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        long count = transactionExportService.export("1000000000", null, ExportFormat.NDJSON, out);
+
+        //then (한 줄에 한 건, EXPORT_FETCH_SIZE 건마다 영속성 컨텍스트를 비움)
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(total, count);
+        assertEquals(total, lines.length);
+        assertTrue(lines[0].contains("\"transactionId\":\"transactionId1\""));
+        assertTrue(lines[0].contains("\"transactedAt\":\"2022-06-01T10:00:00\""));
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void export_accountNotFound() {
+        //given
+        given(accountRepository.findIdByAccountNumber(anyString()))
+                .willReturn(Optional.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionExportService.export("1000000000", null, ExportFormat.CSV, out));
+
+        //then (응답에는 아무것도 쓰지 않음)
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, exception.getErrorCode());
+        assertEquals(0, out.size());
+        verify(transactionRepository, never()).streamForExport(anyLong(), any(), any());
+    }
+
+    private Transaction transaction(long id) {
+        return Transaction.builder()
+                .id(id)
+                .account(Account.builder().accountNumber("1000000000").build())
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .transactionId("transactionId" + id)
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .transactedAt(LocalDateTime.of(2022, 6, 1, 10, 0))
+                .build();
+    }
+}
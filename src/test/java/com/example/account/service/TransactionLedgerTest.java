@@ -0,0 +1,110 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionLedgerTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private TransactionLedger transactionLedger;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        given(accountRepository.getReferenceById(anyLong()))
+                .willReturn(Account.builder().id(12L).build());
+        transactionLedger = new TransactionLedger(transactionRepository, accountRepository, transactionManager,
+                new SimpleMeterRegistry(), directory.toString(), 1024 * 1024, 100, 100);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException, IOException {
+        transactionLedger.shutdown();
+    }
+
+    @Test
+    void batchFailed_retryOneByOne() {
+        //given (batch 저장은 실패하고, 한 건씩 다시 저장하면 성공)
+        given(transactionRepository.saveAll(anyList()))
+                .willThrow(new DataAccessResourceFailureException("db down"))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        //when
+        transactionLedger.append(transaction("00000000000000000000000000000001"));
+        transactionLedger.awaitPersisted("00000000000000000000000000000001");
+
+        //then
+        verify(transactionRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void persistFailed_awaitPersistedFails() {
+        //given (다시 저장해도 계속 실패)
+        given(transactionRepository.saveAll(anyList()))
+                .willThrow(new DataAccessResourceFailureException("db down"));
+
+        //when
+        transactionLedger.append(transaction("00000000000000000000000000000001"));
+        verify(transactionRepository, timeout(3000L).times(4)).saveAll(anyList());
+
+        //then (없는 거래로 응답하지 않도록, 저장될 때까지 기다리는 요청은 에러로 응답)
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionLedger.awaitPersisted("00000000000000000000000000000001"));
+        assertEquals(ErrorCode.INTERNAL_SERVER_ERROR, exception.getErrorCode());
+    }
+
+    private static Transaction transaction(String transactionId) {
+        return Transaction.builder()
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .account(Account.builder().id(12L).build())
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .transactionId(transactionId)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
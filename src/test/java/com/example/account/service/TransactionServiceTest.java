@@ -3,25 +3,42 @@ package com.example.account.service;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.FailedTransaction;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceResult;
+import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
-import com.example.account.repository.AccountUserRepository;
 import com.example.account.repository.TransactionRepository;
 import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionMode;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 public class TransactionServiceTest {
@@ -32,11 +49,17 @@ public class TransactionServiceTest {
     private AccountRepository accountRepository;
 
     @Mock
-    private AccountUserRepository accountUserRepository;
+    private AccountUserCache accountUserCache;
+
+    @Mock
+    private AccountNumberCache accountNumberCache;
 
     @Mock
     private AccountService accountService;
 
+    @Mock
+    private TransactionIdGenerator transactionIdGenerator;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -54,9 +77,9 @@ public class TransactionServiceTest {
                 .balance(1000L)
                 .accountNumber("1000000012").build();
 
-        given(accountUserRepository.findById(anyLong()))
+        given(accountUserCache.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.findByAccountNumber(anyString()))
+        given(accountNumberCache.findAccount(anyString()))
                 .willReturn(Optional.of(account));
         given(transactionRepository.save(any()))
                 .willReturn(Transaction.builder()
@@ -80,4 +103,345 @@ public class TransactionServiceTest {
         assertEquals(1000L, transactionDto.getAmount());
     }
 
+    @Test
+    void successUseBalance_atomic() {
+        //given
+        ReflectionTestUtils.setField(transactionService, "transactionMode", TransactionMode.ATOMIC);
+        AccountUser user
+                = AccountUser.builder()
+                .id(12L)
+                .name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(9000L)
+                .accountNumber("1000000012").build();
+
+        given(accountRepository.useBalanceIfAvailable(anyLong(), anyString(), anyLong()))
+                .willReturn(1);
+        given(accountNumberCache.findAccount(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        //when
+        TransactionDto transactionDto =
+                transactionService.useBalance(
+                        12L, "1000000012", 1000L);
+
+        //then (UPDATE 가 성공하면 사용자 조회 없이 바로 거래를 저장)
+        assertEquals(TransactionResultType.S, transactionDto.getTransactionResultType());
+        assertEquals(9000L, transactionDto.getBalanceSnapshot());
+        verify(accountUserCache, never()).findById(anyLong());
+    }
+
+    @Test
+    void useBalance_atomic_amountExceedBalance() {
+        //given
+        ReflectionTestUtils.setField(transactionService, "transactionMode", TransactionMode.ATOMIC);
+        AccountUser user
+                = AccountUser.builder()
+                .id(12L)
+                .name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(100L)
+                .accountNumber("1000000012").build();
+
+        given(accountRepository.useBalanceIfAvailable(anyLong(), anyString(), anyLong()))
+                .willReturn(0);
+        given(accountUserCache.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountNumberCache.findAccount(anyString()))
+                .willReturn(Optional.of(account));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(12L, "1000000012", 1000L));
+
+        //then (UPDATE 가 실패하면 다시 읽어서 기존과 같은 에러코드를 돌려줌)
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void useBalance_atomic_alreadyUnregistered() {
+        //given
+        ReflectionTestUtils.setField(transactionService, "transactionMode", TransactionMode.ATOMIC);
+        AccountUser user
+                = AccountUser.builder()
+                .id(12L)
+                .name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.UNREGISTERED)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+
+        given(accountRepository.useBalanceIfAvailable(anyLong(), anyString(), anyLong()))
+                .willReturn(0);
+        given(accountUserCache.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountNumberCache.findAccount(anyString()))
+                .willReturn(Optional.of(account));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(12L, "1000000012", 1000L));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_UNREGISTERED, exception.getErrorCode());
+    }
+
+    @Test
+    void useBalance_staleFencingToken() {
+        //given (lease 가 만료된 사이 다른 노드가 더 큰 token 으로 이미 쓰기를 함)
+        AccountUser user
+                = AccountUser.builder()
+                .id(12L)
+                .name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(10000L)
+                .fencingToken(8L)
+                .accountNumber("1000000012").build();
+        AccountLockContext.setFencingToken("1000000012", 7L);
+
+        given(accountRepository.fence(anyString(), anyLong()))
+                .willReturn(0);
+        given(accountNumberCache.findAccount(anyString()))
+                .willReturn(Optional.of(account));
+
+        //when
+        AccountException exception;
+        try {
+            exception = assertThrows(AccountException.class,
+                    () -> transactionService.useBalance(12L, "1000000012", 1000L));
+        } finally {
+            AccountLockContext.clear("1000000012");
+        }
+
+        //then (잔액은 바뀌지 않고 거래 내역도 남지 않음)
+        assertEquals(ErrorCode.ACCOUNT_LOCK_EXPIRED, exception.getErrorCode());
+        assertEquals(10000L, account.getBalance());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void useBalance_databaseLock() {
+        //given (Redis 장애로 DB 락으로 전환된 상태)
+        AccountUser user
+                = AccountUser.builder()
+                .id(12L)
+                .name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        AccountLockContext.useDatabaseLock("1000000012");
+
+        given(accountRepository.findByAccountNumberForUpdate(anyString()))
+                .willReturn(Optional.of(account));
+        given(accountUserCache.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountNumberCache.findAccount(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        //when
+        try {
+            transactionService.useBalance(12L, "1000000012", 1000L);
+        } finally {
+            AccountLockContext.clear("1000000012");
+        }
+
+        //then (계좌 row 락을 먼저 잡고, fencing token 확인은 하지 않음)
+        verify(accountRepository).findByAccountNumberForUpdate("1000000012");
+        verify(accountRepository, never()).fence(anyString(), anyLong());
+        assertEquals(9000L, account.getBalance());
+    }
+
+    @Test
+    void useBalances_saveFailures() {
+        //given
+        AccountUser user
+                = AccountUser.builder()
+                .id(12L)
+                .name("Pobi").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .accountNumber("1000000012").build();
+
+        given(accountUserCache.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountNumberCache.findAccount(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+
+        //when (두번째 건은 잔액 부족)
+        List<UseBalanceResult> results = transactionService.useBalances("1000000012", List.of(
+                new UseBalance.Request(12L, "1000000012", 700L),
+                new UseBalance.Request(12L, "1000000012", 700L)), true);
+
+        //then (성공 건 S, 실패 건 F 내역이 같은 트랜잭션에서 저장됨)
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, results.get(1).getErrorCode());
+        assertEquals(300L, account.getBalance());
+        verify(transactionRepository, times(2)).save(captor.capture());
+        assertEquals(TransactionResultType.S, captor.getAllValues().get(0).getTransactionResultType());
+        assertEquals(TransactionResultType.F, captor.getAllValues().get(1).getTransactionResultType());
+        assertEquals(300L, captor.getAllValues().get(1).getBalanceSnapshot());
+        // 잔액을 바꾼 거래만 계좌별 순번을 받는다
+        assertEquals(1L, captor.getAllValues().get(0).getAccountSeq());
+        assertNull(captor.getAllValues().get(1).getAccountSeq());
+        assertEquals(1L, account.getTransactionSeq());
+    }
+
+    @Test
+    void saveFailedTransactions() {
+        //given (두번째 건은 없는 계좌)
+        Account account = Account.builder()
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        given(accountRepository.findByAccountNumberIn(anyCollection()))
+                .willReturn(List.of(account));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        //when
+        int saved = transactionService.saveFailedTransactions(List.of(
+                new FailedTransaction(TransactionType.USE, "1000000012", 1000L, LocalDateTime.now()),
+                new FailedTransaction(TransactionType.USE, "9999999999", 1000L, LocalDateTime.now())));
+
+        //then (계좌는 한 번에 조회하고, 있는 계좌의 내역만 F 로 한번에 저장)
+        assertEquals(1, saved);
+        verify(transactionRepository).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(TransactionResultType.F, captor.getValue().get(0).getTransactionResultType());
+        assertEquals(10000L, captor.getValue().get(0).getBalanceSnapshot());
+    }
+
+    @Test
+    void queryTransaction() {
+        //given (엔티티를 읽지 않고 DTO 로 바로 조회)
+        given(transactionRepository.findDtoByTransactionId("transactionId"))
+                .willReturn(Optional.of(TransactionDto.builder()
+                        .accountNumber("1000000012")
+                        .transactionType(TransactionType.USE)
+                        .transactionResultType(TransactionResultType.S)
+                        .transactionId("transactionId")
+                        .amount(1000L)
+                        .balanceSnapshot(9000L)
+                        .build()));
+
+        //when
+        TransactionDto transactionDto = transactionService.queryTransaction("transactionId");
+
+        //then
+        assertEquals("1000000012", transactionDto.getAccountNumber());
+        assertEquals(9000L, transactionDto.getBalanceSnapshot());
+        verify(transactionRepository, never()).findByTransactionId(anyString());
+    }
+
+    @Test
+    void queryTransaction_fallbackToArchive() {
+        //given (테이블에는 없고 archive 에 있는 1년 지난 거래)
+        TransactionArchive transactionArchive = mock(TransactionArchive.class);
+        ReflectionTestUtils.setField(transactionService, "transactionArchive", transactionArchive);
+        given(transactionRepository.findDtoByTransactionId(anyString()))
+                .willReturn(Optional.empty());
+        given(transactionArchive.find("transactionId"))
+                .willReturn(Optional.of(Transaction.builder()
+                        .account(Account.builder().id(12L).accountNumber("1000000012").build())
+                        .transactionType(TransactionType.USE)
+                        .transactionResultType(TransactionResultType.S)
+                        .transactionId("transactionId")
+                        .amount(1000L)
+                        .balanceSnapshot(9000L)
+                        .transactedAt(LocalDateTime.now().minusYears(2))
+                        .build()));
+
+        //when
+        TransactionDto transactionDto = transactionService.queryTransaction("transactionId");
+
+        //then
+        assertEquals("1000000012", transactionDto.getAccountNumber());
+        assertEquals(1000L, transactionDto.getAmount());
+    }
+
+    @Test
+    void getTransactions_nextPage() {
+        //given (size 2 -> 3건을 읽어서 다음 페이지가 있는지 확인)
+        LocalDateTime now = LocalDateTime.now();
+        given(accountRepository.findIdByAccountNumber(anyString()))
+                .willReturn(Optional.of(7L));
+        given(transactionRepository.findHistory(
+                anyLong(), any(), any(), any()))
+                .willReturn(List.of(
+                        historyItem(30L, now),
+                        historyItem(20L, now.minusSeconds(1)),
+                        historyItem(10L, now.minusSeconds(2))));
+
+        //when
+        TransactionHistory.Response response = transactionService.getTransactions(
+                "1000000012", TransactionType.USE, null, null, 2);
+
+        //then (2건만 응답하고 마지막 건이 다음 커서가 됨)
+        assertEquals(2, response.getTransactions().size());
+        TransactionHistory.Cursor cursor = TransactionHistory.Cursor.decode(response.getNextCursor());
+        assertEquals(20L, cursor.getId());
+        assertEquals(now.minusSeconds(1), cursor.getTransactedAt());
+        verify(transactionRepository).findHistory(
+                7L, TransactionType.USE, null, Limit.of(3));
+    }
+
+    @Test
+    void getTransactions_lastPage() {
+        //given (커서 다음으로 남은 거래가 size 보다 적음)
+        LocalDateTime now = LocalDateTime.now();
+        String cursor = new TransactionHistory.Cursor(now, 20L).encode();
+        given(accountRepository.findIdByAccountNumber(anyString()))
+                .willReturn(Optional.of(7L));
+        given(transactionRepository.findHistoryBefore(
+                anyLong(), any(), any(), any(), any(), any()))
+                .willReturn(List.of(historyItem(10L, now.minusSeconds(1))));
+
+        //when
+        TransactionHistory.Response response = transactionService.getTransactions(
+                "1000000012", null, TransactionResultType.S, cursor, 2);
+
+        //then (커서의 거래일시 / id 보다 오래된 거래부터 조회, 다음 커서 없음)
+        assertEquals(1, response.getTransactions().size());
+        assertNull(response.getNextCursor());
+        verify(transactionRepository).findHistoryBefore(
+                7L, null, TransactionResultType.S, now, 20L, Limit.of(3));
+    }
+
+    @Test
+    void getTransactions_invalidCursor() {
+        //given
+        given(accountRepository.findIdByAccountNumber(anyString()))
+                .willReturn(Optional.of(7L));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.getTransactions(
+                        "1000000012", null, null, "not-a-cursor", 2));
+
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
+    private static TransactionHistory.Item historyItem(Long id, LocalDateTime transactedAt) {
+        return new TransactionHistory.Item(id, TransactionType.USE, TransactionResultType.S,
+                "transactionId" + id, 1000L, 9000L, transactedAt);
+    }
 }
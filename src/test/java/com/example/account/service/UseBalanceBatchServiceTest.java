@@ -0,0 +1,133 @@
+package com.example.account.service;
+
+import com.example.account.aop.LockPolicy;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceResult;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UseBalanceBatchServiceTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private LockStrategy lockStrategy;
+
+    @Mock
+    private AccountCommandQueue accountCommandQueue;
+
+    @Test
+    void lockOncePerAccount() {
+        //given
+        UseBalanceBatchService batchService = batchService(TransactionMode.LOCK);
+        given(transactionService.useBalances(anyString(), anyList(), eq(true)))
+                .willAnswer(invocation -> results(invocation.getArgument(1)));
+
+        //when (두 계좌의 요청이 섞여서 들어옴)
+        List<UseBalanceResult> results = batchService.useBalances(List.of(
+                new UseBalance.Request(1L, "1000000000", 100L),
+                new UseBalance.Request(2L, "2000000000", 200L),
+                new UseBalance.Request(1L, "1000000000", 300L)));
+
+        //then (계좌마다 락 1번 + useBalances 1번, 결과는 요청 순서대로)
+        verify(lockStrategy, times(1)).lock(eq("1000000000"), any(LockPolicy.class));
+        verify(lockStrategy, times(1)).lock(eq("2000000000"), any(LockPolicy.class));
+        verify(transactionService, times(2)).useBalances(anyString(), anyList(), eq(true));
+        assertEquals(List.of(100L, 200L, 300L),
+                results.stream().map(result -> result.getTransactionDto().getAmount()).toList());
+    }
+
+    @Test
+    void lockFailed_onlyThatAccountFails() {
+        //given
+        UseBalanceBatchService batchService = batchService(TransactionMode.LOCK);
+        willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .given(lockStrategy).lock(eq("1000000000"), any(LockPolicy.class));
+        given(transactionService.useBalances(eq("2000000000"), anyList(), eq(true)))
+                .willAnswer(invocation -> results(invocation.getArgument(1)));
+
+        //when
+        List<UseBalanceResult> results = batchService.useBalances(List.of(
+                new UseBalance.Request(1L, "1000000000", 100L),
+                new UseBalance.Request(2L, "2000000000", 200L)));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, results.get(0).getErrorCode());
+        assertTrue(results.get(1).isSuccess());
+        verify(transactionService, never()).useBalances(eq("1000000000"), anyList(), anyBoolean());
+    }
+
+    @Test
+    void queueMode_runInAccountQueue() throws Throwable {
+        //given
+        UseBalanceBatchService batchService = batchService(TransactionMode.QUEUE);
+        given(accountCommandQueue.execute(anyString(), anyLong(), any()))
+                .willAnswer(invocation -> ((AccountCommandQueue.Command<?>) invocation.getArgument(2)).execute());
+        given(transactionService.useBalances(anyString(), anyList(), eq(true)))
+                .willAnswer(invocation -> results(invocation.getArgument(1)));
+
+        //when
+        List<UseBalanceResult> results = batchService.useBalances(List.of(
+                new UseBalance.Request(1L, "1000000000", 100L),
+                new UseBalance.Request(1L, "1000000000", 200L)));
+
+        //then (queue 모드에서는 락 대신 계좌 대기열에서 한 번에 실행)
+        assertEquals(2, results.size());
+        verify(accountCommandQueue, times(1)).execute(eq("1000000000"), eq(5000L), any());
+        verify(lockStrategy, never()).lock(anyString(), any(LockPolicy.class));
+    }
+
+    @Test
+    void runtimeException_failThatAccount_errorPropagates() {
+        //given
+        UseBalanceBatchService batchService = batchService(TransactionMode.LOCK);
+        given(transactionService.useBalances(eq("1000000000"), anyList(), eq(true)))
+                .willThrow(new IllegalStateException("db error"));
+        given(transactionService.useBalances(eq("2000000000"), anyList(), eq(true)))
+                .willThrow(new OutOfMemoryError());
+
+        //when (DB 오류 같은 RuntimeException 은 해당 계좌의 건별 실패로 응답)
+        List<UseBalanceResult> results = batchService.useBalances(List.of(
+                new UseBalance.Request(1L, "1000000000", 100L)));
+
+        //then (Error 는 삼키지 않고 그대로 던지고, 락은 해제된다)
+        assertEquals(ErrorCode.INTERNAL_SERVER_ERROR, results.get(0).getErrorCode());
+        assertThrows(OutOfMemoryError.class, () -> batchService.useBalances(List.of(
+                new UseBalance.Request(1L, "2000000000", 100L))));
+        verify(lockStrategy, times(2)).unlock(anyString(), any(LockPolicy.class));
+    }
+
+    private UseBalanceBatchService batchService(TransactionMode transactionMode) {
+        return new UseBalanceBatchService(transactionService, lockStrategy, accountCommandQueue,
+                new SimpleMeterRegistry(), transactionMode);
+    }
+
+    private static List<UseBalanceResult> results(List<UseBalance.Request> requests) {
+        List<UseBalanceResult> results = new ArrayList<>();
+        for (UseBalance.Request request : requests) {
+            results.add(UseBalanceResult.success(TransactionDto.builder()
+                    .accountNumber(request.getAccountNumber())
+                    .amount(request.getAmount())
+                    .build()));
+        }
+        return results;
+    }
+}
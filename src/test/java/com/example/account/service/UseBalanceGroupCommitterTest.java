@@ -0,0 +1,180 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceResult;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class UseBalanceGroupCommitterTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private LockStrategy lockStrategy;
+
+    @Test
+    void successUseBalance() {
+        //given
+        UseBalanceGroupCommitter committer =
+                new UseBalanceGroupCommitter(transactionService, lockStrategy, 100);
+        given(transactionService.useBalances(anyString(), anyList()))
+                .willAnswer(invocation -> results(invocation.getArgument(1)));
+
+        //when
+        TransactionDto transactionDto = committer.useBalance(1L, "1000000000", 1000L);
+
+        //then
+        assertEquals(1000L, transactionDto.getAmount());
+        verify(lockStrategy, times(1)).lock("1000000000");
+        verify(lockStrategy, times(1)).unlock("1000000000");
+    }
+
+    @Test
+    void requestsQueuedDuringCommit_areCommittedTogether() throws InterruptedException {
+        //given (첫번째 묶음이 커밋되는 동안 나머지 요청들이 대기열에 쌓임)
+        UseBalanceGroupCommitter committer =
+                new UseBalanceGroupCommitter(transactionService, lockStrategy, 100);
+        CountDownLatch firstCommitStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+        List<Integer> batchSizes = new ArrayList<>();
+        given(transactionService.useBalances(anyString(), anyList()))
+                .willAnswer(invocation -> {
+                    List<UseBalance.Request> requests = invocation.getArgument(1);
+                    batchSizes.add(requests.size());
+                    if (batchSizes.size() == 1) {
+                        firstCommitStarted.countDown();
+                        releaseFirstCommit.await(5, TimeUnit.SECONDS);
+                    }
+                    return results(requests);
+                });
+
+        CompletableFuture<TransactionDto> first = CompletableFuture.supplyAsync(
+                () -> committer.useBalance(1L, "1000000000", 10L));
+        firstCommitStarted.await();
+
+        List<CompletableFuture<TransactionDto>> followers = new ArrayList<>();
+        for (long amount = 11; amount <= 15; amount++) {
+            long value = amount;
+            followers.add(CompletableFuture.supplyAsync(
+                    () -> committer.useBalance(1L, "1000000000", value)));
+        }
+        Thread.sleep(200L);
+
+        //when
+        releaseFirstCommit.countDown();
+        first.join();
+        followers.forEach(CompletableFuture::join);
+
+        //then (락과 트랜잭션은 묶음마다 한번씩, 두번째 묶음에 5건이 함께 처리됨)
+        assertEquals(List.of(1, 5), batchSizes);
+        verify(lockStrategy, times(2)).lock("1000000000");
+        for (int i = 0; i < followers.size(); i++) {
+            assertEquals(11L + i, followers.get(i).join().getAmount());
+        }
+    }
+
+    @Test
+    void leaderReturnsWhileQueueStaysFull() throws InterruptedException {
+        //given (요청 스레드들이 쉬지 않고 요청해서 대기열이 비지 않는 상황)
+        UseBalanceGroupCommitter committer =
+                new UseBalanceGroupCommitter(transactionService, lockStrategy, 2);
+        given(transactionService.useBalances(anyString(), anyList()))
+                .willAnswer(invocation -> {
+                    Thread.sleep(5L);
+                    return results(invocation.getArgument(1));
+                });
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicIntegerArray completed = new AtomicIntegerArray(8);
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < completed.length(); i++) {
+            int index = i;
+            producers.add(Thread.ofPlatform().start(() -> {
+                while (running.get()) {
+                    committer.useBalance(1L, "1000000000", 1L);
+                    completed.incrementAndGet(index);
+                }
+            }));
+        }
+
+        //when
+        Thread.sleep(1000L);
+
+        //then (처음 leader 가 된 스레드도 자기 요청이 처리되면 응답하고 다음 요청을 보낸다)
+        try {
+            for (int i = 0; i < completed.length(); i++) {
+                assertTrue(completed.get(i) > 1, "producer " + i + " completed " + completed.get(i));
+            }
+        } finally {
+            running.set(false);
+            for (Thread producer : producers) {
+                producer.join(5000L);
+            }
+        }
+    }
+
+    @Test
+    void perRequestFailure() {
+        //given
+        UseBalanceGroupCommitter committer =
+                new UseBalanceGroupCommitter(transactionService, lockStrategy, 100);
+        given(transactionService.useBalances(anyString(), anyList()))
+                .willReturn(List.of(UseBalanceResult.failure(ErrorCode.AMOUNT_EXCEED_BALANCE)));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> committer.useBalance(1L, "1000000000", 1000L));
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+    }
+
+    @Test
+    void lockFailed() {
+        //given
+        UseBalanceGroupCommitter committer =
+                new UseBalanceGroupCommitter(transactionService, lockStrategy, 100);
+        willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .given(lockStrategy).lock(anyString());
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> committer.useBalance(1L, "1000000000", 1000L));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+    }
+
+    private static List<UseBalanceResult> results(List<UseBalance.Request> requests) {
+        List<UseBalanceResult> results = new ArrayList<>();
+        for (UseBalance.Request request : requests) {
+            results.add(UseBalanceResult.success(TransactionDto.builder()
+                    .accountNumber(request.getAccountNumber())
+                    .amount(request.getAmount())
+                    .build()));
+        }
+        return results;
+    }
+}